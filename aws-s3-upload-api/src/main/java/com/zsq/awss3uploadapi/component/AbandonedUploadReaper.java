@@ -0,0 +1,283 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.ChunkActivityDTO;
+import com.zsq.awss3uploadapi.entity.vo.ReaperStatsVO;
+import com.zsq.awss3uploadapi.mapper.SysUploadChunkMapper;
+import com.zsq.awss3uploadapi.mapper.SysUploadTaskMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 过期分片上传清理
+ * <p>
+ * 状态为上传中、创建超过 ttlHours 且这段时间内没有新分片的任务视为已放弃：中止S3分片上传释放已上传的分片，
+ * 再删除分片记录和任务记录。扫描按主键分批向后推进，单次最多处理 maxTasksPerRun 个任务，剩余的下次从断点继续；
+ * 批与批之间停顿 batchPauseMillis，中止请求使用独立的小线程池，不与前台上传争抢数据库连接和S3传输线程。
+ */
+@Slf4j
+@Component
+public class AbandonedUploadReaper {
+
+    private final SysUploadTaskMapper sysUploadTaskMapper;
+    private final SysUploadChunkMapper sysUploadChunkMapper;
+    private final AmazonS3 amazonS3;
+    private final UploadSessionCache uploadSessionCache;
+    private final FileIdentifierBloomFilter fileIdentifierBloomFilter;
+    private final ChunkWriteBehindBuffer chunkWriteBehindBuffer;
+    private final PartStagingArea partStagingArea;
+    private final UploadProperties.Reaper properties;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("upload-reaper-", true));
+    private final ExecutorService abortExecutor;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * 下次扫描的起始任务ID，扫描到表尾后归零
+     */
+    private volatile long resumeId = 0;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong tasksReaped = new AtomicLong();
+    private final AtomicLong chunkRowsReclaimed = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong abortFailures = new AtomicLong();
+    private volatile long lastRunTasks = 0;
+    private volatile long lastRunBytes = 0;
+    private volatile long lastRunMillis = -1;
+    private volatile LocalDateTime lastRunAt;
+
+    public AbandonedUploadReaper(SysUploadTaskMapper sysUploadTaskMapper, SysUploadChunkMapper sysUploadChunkMapper,
+                                 AmazonS3 amazonS3, UploadSessionCache uploadSessionCache,
+                                 FileIdentifierBloomFilter fileIdentifierBloomFilter,
+                                 ChunkWriteBehindBuffer chunkWriteBehindBuffer, PartStagingArea partStagingArea,
+                                 UploadProperties uploadProperties) {
+        this.sysUploadTaskMapper = sysUploadTaskMapper;
+        this.sysUploadChunkMapper = sysUploadChunkMapper;
+        this.amazonS3 = amazonS3;
+        this.uploadSessionCache = uploadSessionCache;
+        this.fileIdentifierBloomFilter = fileIdentifierBloomFilter;
+        this.chunkWriteBehindBuffer = chunkWriteBehindBuffer;
+        this.partStagingArea = partStagingArea;
+        this.properties = uploadProperties.getReaper();
+        this.abortExecutor = Executors.newFixedThreadPool(Math.max(1, properties.getAbortConcurrency()),
+                new NamedThreadFactory("upload-reaper-abort-", true));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (properties.isEnabled()) {
+            long interval = properties.getIntervalMinutes();
+            scheduler.scheduleWithFixedDelay(this::reap, interval, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        abortExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交一次后台清理，已在清理中时忽略
+     */
+    public void requestRun() {
+        if (!running.get()) {
+            scheduler.execute(this::reap);
+        }
+    }
+
+    private void reap() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long runTasks = 0;
+        long runBytes = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusHours(properties.getTtlHours());
+            long lastId = resumeId;
+            while (runTasks < properties.getMaxTasksPerRun() && !Thread.currentThread().isInterrupted()) {
+                List<SysUploadTask> candidates = sysUploadTaskMapper.selectList(new LambdaQueryWrapper<SysUploadTask>()
+                        .eq(SysUploadTask::getStatus, (byte) 0)
+                        .lt(SysUploadTask::getCreatedAt, cutoff)
+                        .gt(SysUploadTask::getId, lastId)
+                        .orderByAsc(SysUploadTask::getId)
+                        .last("LIMIT " + properties.getScanBatchSize()));
+                if (candidates.isEmpty()) {
+                    lastId = 0;
+                    break;
+                }
+                lastId = candidates.get(candidates.size() - 1).getId();
+                long[] reclaimed = reapBatch(candidates, cutoff);
+                runTasks += reclaimed[0];
+                runBytes += reclaimed[1];
+                if (candidates.size() < properties.getScanBatchSize()) {
+                    lastId = 0;
+                    break;
+                }
+                Thread.sleep(properties.getBatchPauseMillis());
+            }
+            resumeId = lastId;
+            runs.incrementAndGet();
+            lastRunTasks = runTasks;
+            lastRunBytes = runBytes;
+            lastRunMillis = System.currentTimeMillis() - start;
+            lastRunAt = LocalDateTime.now();
+            if (runTasks > 0) {
+                log.info("过期分片上传清理完成，任务数: {}, 释放字节: {}, 耗时: {}ms", runTasks, runBytes, lastRunMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("过期分片上传清理失败，下次从任务ID {} 之后继续", resumeId, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 清理一批候选任务，返回 [清理的任务数, 释放的字节数]
+     */
+    private long[] reapBatch(List<SysUploadTask> candidates, LocalDateTime cutoff) {
+        List<String> uploadIds = candidates.stream()
+                .map(SysUploadTask::getUploadId)
+                .filter(uploadId -> uploadId != null && !uploadId.isEmpty())
+                .collect(Collectors.toList());
+        // 先取写后缓冲中还有记录的任务再查分片表，期间写入分片表的批次会出现在分片活跃时间中
+        Set<String> buffered = uploadIds.stream()
+                .filter(uploadId -> !chunkWriteBehindBuffer.pendingChunks(uploadId).isEmpty())
+                .collect(Collectors.toSet());
+        Map<String, ChunkActivityDTO> activity = uploadIds.isEmpty() ? new HashMap<>()
+                : sysUploadChunkMapper.selectActivity(uploadIds).stream()
+                .collect(Collectors.toMap(ChunkActivityDTO::getUploadId, Function.identity()));
+
+        // 最近仍有分片写入（包括还在写后缓冲中的）的任务跳过；暂存区中还有未写入S3的分片时同样跳过，
+        // 这些分片已应答客户端，还没有分片记录，中止上传后会被丢弃
+        List<SysUploadTask> expired = candidates.stream()
+                .filter(task -> {
+                    ChunkActivityDTO chunkActivity = activity.get(task.getUploadId());
+                    boolean recentChunk = chunkActivity != null && chunkActivity.getLastChunkAt() != null
+                            && !chunkActivity.getLastChunkAt().isBefore(cutoff);
+                    return !recentChunk && (task.getUploadId() == null
+                            || (!buffered.contains(task.getUploadId())
+                            && !partStagingArea.hasPending(task.getUploadId())));
+                })
+                .collect(Collectors.toList());
+        if (expired.isEmpty()) {
+            return new long[]{0, 0};
+        }
+
+        List<CompletableFuture<Boolean>> futures = expired.stream()
+                .map(task -> CompletableFuture.supplyAsync(() -> abort(task), abortExecutor))
+                .collect(Collectors.toList());
+        List<SysUploadTask> aborted = new ArrayList<>(expired.size());
+        for (int i = 0; i < expired.size(); i++) {
+            if (futures.get(i).join()) {
+                aborted.add(expired.get(i));
+            }
+        }
+        if (aborted.isEmpty()) {
+            return new long[]{0, 0};
+        }
+
+        long bytes = 0;
+        List<String> abortedUploadIds = new ArrayList<>(aborted.size());
+        for (SysUploadTask task : aborted) {
+            if (task.getUploadId() == null || task.getUploadId().isEmpty()) {
+                continue;
+            }
+            abortedUploadIds.add(task.getUploadId());
+            ChunkActivityDTO chunkActivity = activity.get(task.getUploadId());
+            if (chunkActivity != null && task.getChunkSize() != null) {
+                bytes += Math.min(chunkActivity.getChunkCount() * task.getChunkSize(), task.getTotalSize());
+            }
+        }
+        abortedUploadIds.forEach(chunkWriteBehindBuffer::discard);
+        abortedUploadIds.forEach(partStagingArea::discard);
+        int chunkRows = abortedUploadIds.isEmpty() ? 0 : sysUploadChunkMapper.delete(
+                new LambdaQueryWrapper<SysUploadChunk>()
+                        .in(SysUploadChunk::getUploadId, abortedUploadIds));
+        // 只删除仍处于上传中的任务，清理期间刚好完成合并的任务保持不变
+        int taskRows = sysUploadTaskMapper.delete(new LambdaQueryWrapper<SysUploadTask>()
+                .eq(SysUploadTask::getStatus, (byte) 0)
+                .in(SysUploadTask::getId, aborted.stream().map(SysUploadTask::getId).collect(Collectors.toList())));
+        for (SysUploadTask task : aborted) {
+            uploadSessionCache.invalidate(task);
+            fileIdentifierBloomFilter.markDeleted(task.getFileIdentifier());
+        }
+
+        tasksReaped.addAndGet(taskRows);
+        chunkRowsReclaimed.addAndGet(chunkRows);
+        bytesReclaimed.addAndGet(bytes);
+        return new long[]{taskRows, bytes};
+    }
+
+    /**
+     * 中止S3分片上传，上传已不存在时同样视为成功
+     */
+    private boolean abort(SysUploadTask task) {
+        if (task.getUploadId() == null || task.getUploadId().isEmpty()) {
+            return true;
+        }
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(
+                    task.getBucketName(), task.getObjectKey(), task.getUploadId()));
+            return true;
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return true;
+            }
+            abortFailures.incrementAndGet();
+            log.warn("中止过期分片上传失败，uploadId: {}", task.getUploadId(), e);
+            return false;
+        } catch (Exception e) {
+            abortFailures.incrementAndGet();
+            log.warn("中止过期分片上传失败，uploadId: {}", task.getUploadId(), e);
+            return false;
+        }
+    }
+
+    public ReaperStatsVO stats() {
+        return ReaperStatsVO.builder()
+                .enabled(properties.isEnabled())
+                .running(running.get())
+                .runs(runs.get())
+                .tasksReaped(tasksReaped.get())
+                .chunkRowsReclaimed(chunkRowsReclaimed.get())
+                .bytesReclaimed(bytesReclaimed.get())
+                .abortFailures(abortFailures.get())
+                .resumeId(resumeId)
+                .lastRunTasks(lastRunTasks)
+                .lastRunBytes(lastRunBytes)
+                .lastRunMillis(lastRunMillis)
+                .lastRunAt(lastRunAt)
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+package com.zsq.awss3uploadapi.component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把访问S3的接口处理提交到 s3RequestExecutor，控制器直接返回 {@link CompletableFuture}，容器线程不再等待S3
+ * <p>
+ * 指标：upload.async.inflight 为已提交未完成的请求数，upload.async.queue.wait 为请求在线程池中排队的时间，
+ * upload.async.rejected 为线程池饱和被拒绝的请求数，均按接口区分（endpoint 标签）
+ */
+@Component
+public class AsyncRequestDispatcher {
+
+    private final AsyncTaskExecutor s3RequestExecutor;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AsyncRequestDispatcher(@Qualifier("s3RequestExecutor") AsyncTaskExecutor s3RequestExecutor, MeterRegistry meterRegistry) {
+        this.s3RequestExecutor = s3RequestExecutor;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("upload.async.inflight", inFlight, AtomicInteger::get)
+                .description("已提交到S3请求线程池、尚未完成的请求数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 提交请求处理
+     * @param endpoint 接口名，作为指标标签
+     * @param task     请求处理逻辑，异常通过返回的 future 传给 Spring MVC 的全局异常处理
+     * @throws TaskRejectedException 线程池已满
+     */
+    public <T> CompletableFuture<T> submit(String endpoint, Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Timer queueWait = Timer.builder("upload.async.queue.wait")
+                .description("请求在S3请求线程池中排队的时间")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+        long submittedAt = System.nanoTime();
+        inFlight.incrementAndGet();
+        try {
+            s3RequestExecutor.execute(() -> {
+                queueWait.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (TaskRejectedException e) {
+            inFlight.decrementAndGet();
+            Counter.builder("upload.async.rejected")
+                    .description("S3请求线程池饱和被拒绝的请求数")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment();
+            throw e;
+        }
+        return future;
+    }
+}
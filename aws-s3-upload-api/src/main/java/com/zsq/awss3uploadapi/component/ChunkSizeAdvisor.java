@@ -0,0 +1,219 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.util.StrUtil;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.vo.UploadPlanVO;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 分片大小与上传并发数推荐
+ * <p>
+ * 分片大小只由文件大小决定：默认取 defaultChunkSize，分片数超过S3的10000上限时取满足上限的最小候选大小（defaultChunkSize 的2的幂倍）。
+ * 文件标识由分片MD5计算，分片大小随客户端变化会让同一文件在不同客户端上得到不同的文件标识和分片MD5，秒传与分片复用都会失效。
+ * <p>
+ * 按客户端（来源地址）记录最近分片上传请求的吞吐和耗时的指数加权平均，用来推荐同时上传的分片数：按吞吐估算单个分片的上传耗时，
+ * 在上次推荐的并发数基础上按 targetPartSeconds / 估算耗时 调整，单次最多翻倍或减半；只有上次推荐后有新样本时才调整。带宽受限时并发越高单个请求越慢，
+ * 慢速连接因此降低并发、缩短单个分片的耗时以减少失败重传的代价；单个请求受延迟限制时则提高并发
+ */
+@Component
+public class ChunkSizeAdvisor {
+
+    /**
+     * S3 分片上传的限制：除最后一个分片外不小于5MB，单个分片不大于5GB，最多10000个分片
+     */
+    public static final long S3_MIN_PART_SIZE = 5L * 1024 * 1024;
+    public static final long S3_MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+    public static final int S3_MAX_PARTS = 10000;
+
+    /**
+     * 小于该大小的分片（通常是最后一个分片）以请求开销为主，不计入吞吐样本
+     */
+    private static final long MIN_SAMPLE_BYTES = 1024 * 1024;
+
+    private final UploadProperties.ChunkPlan properties;
+    private final LRUCache<String, ClientStats> clients;
+    private final long minLadder;
+    private final long maxLadder;
+
+    public ChunkSizeAdvisor(UploadProperties uploadProperties) {
+        this.properties = uploadProperties.getChunkPlan();
+        this.clients = new LRUCache<>(properties.getClientCapacity(), properties.getClientTtlMinutes() * 60 * 1000);
+        long minimum = Math.max(properties.getMinChunkSize(), S3_MIN_PART_SIZE);
+        long maximum = Math.max(minimum, Math.min(properties.getMaxChunkSize(), S3_MAX_PART_SIZE));
+        long ladder = Math.max(properties.getDefaultChunkSize(), 1);
+        while (ladder / 2 >= minimum && ladder % 2 == 0) {
+            ladder /= 2;
+        }
+        while (ladder < minimum) {
+            ladder *= 2;
+        }
+        this.minLadder = ladder;
+        while (ladder * 2 <= maximum) {
+            ladder *= 2;
+        }
+        this.maxLadder = Math.max(minLadder, ladder);
+    }
+
+    /**
+     * 记录一次分片上传请求
+     *
+     * @param bytes 请求体字节数
+     * @param nanos 从收到请求到处理完成的耗时
+     */
+    public void record(String client, long bytes, long nanos) {
+        if (bytes < MIN_SAMPLE_BYTES || nanos <= 0) {
+            return;
+        }
+        clients.get(client, ClientStats::new).update(bytes, nanos, properties.getEwmaAlpha());
+    }
+
+    /**
+     * 按文件大小推荐分片大小，按客户端最近的吞吐推荐上传并发数
+     */
+    public UploadPlanVO plan(long totalSize, String client) {
+        if (totalSize < 0) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "文件大小不能小于0");
+        }
+        long chunkSize = nearestLadder(properties.getDefaultChunkSize());
+        String basis = "default";
+        long partLimitSize = ceilDiv(totalSize, S3_MAX_PARTS);
+        if (chunkSize < partLimitSize) {
+            chunkSize = ladderAtLeast(partLimitSize);
+            basis = "partLimit";
+        }
+        int concurrency = clampConcurrency(properties.getDefaultConcurrency());
+        UploadPlanVO.UploadPlanVOBuilder builder = UploadPlanVO.builder();
+        ClientStats stats = clients.get(client, false);
+        if (stats != null) {
+            synchronized (stats) {
+                builder.throughputBytesPerSecond((long) stats.throughput)
+                        .partMillis((long) stats.partMillis)
+                        .samples(stats.samples);
+                if (stats.samples >= properties.getMinSamples() && stats.samples == stats.concurrencySamples) {
+                    // 上次推荐后没有新的样本，重复调用（如一次选择多个文件）返回同样的并发数
+                    concurrency = stats.concurrency;
+                } else if (stats.samples >= properties.getMinSamples()) {
+                    int previous = stats.concurrency > 0 ? stats.concurrency : concurrency;
+                    double partSeconds = chunkSize / stats.throughput;
+                    long adjusted = Math.round(previous * properties.getTargetPartSeconds() / partSeconds);
+                    concurrency = clampConcurrency(Math.max(previous / 2, Math.min(previous * 2L, adjusted)));
+                    stats.concurrency = concurrency;
+                    stats.concurrencySamples = stats.samples;
+                }
+            }
+        }
+        return builder.chunkSize(chunkSize)
+                .chunkNum((int) Math.max(1, ceilDiv(totalSize, chunkSize)))
+                .basis(basis)
+                .concurrency(concurrency)
+                .build();
+    }
+
+    /**
+     * 校验初始化参数中的分片划分：分片数量与文件大小一致且满足S3的分片大小与数量限制
+     */
+    public void validate(long totalSize, long chunkSize, int chunkNum) {
+        if (totalSize < 0 || chunkSize <= 0) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "文件大小或分片大小不合法");
+        }
+        long expected = ceilDiv(totalSize, chunkSize);
+        if (chunkNum != expected && !(totalSize == 0 && chunkNum == 1)) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                    StrUtil.format("分片数量与文件大小不一致，应为 {}，实际 {}", expected, chunkNum));
+        }
+        if (chunkNum > S3_MAX_PARTS) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                    StrUtil.format("分片数量超过上限 {}，分片大小至少为 {} 字节", S3_MAX_PARTS, ceilDiv(totalSize, S3_MAX_PARTS)));
+        }
+        if (chunkNum > 1 && chunkSize < S3_MIN_PART_SIZE) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片大小不能小于 " + S3_MIN_PART_SIZE + " 字节");
+        }
+        if (chunkSize > S3_MAX_PART_SIZE && chunkNum > 1) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片大小不能大于 " + S3_MAX_PART_SIZE + " 字节");
+        }
+    }
+
+    /**
+     * 客户端标识：经过反向代理时取 X-Forwarded-For 的第一个地址
+     */
+    public static String clientKey(HttpServletRequest request) {
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (StrUtil.isNotBlank(forwardedFor)) {
+            return StrUtil.trim(StrUtil.subBefore(forwardedFor, ",", false));
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * 对数意义上最接近的候选大小
+     */
+    private long nearestLadder(double size) {
+        long ladder = minLadder;
+        while (ladder * 2 <= maxLadder && size > ladder * Math.sqrt(2)) {
+            ladder *= 2;
+        }
+        return ladder;
+    }
+
+    /**
+     * 不小于size的最小候选大小；超出上限时退回到恰好满足分片数上限的大小
+     */
+    private long ladderAtLeast(long size) {
+        long ladder = minLadder;
+        while (ladder < size && ladder * 2 <= S3_MAX_PART_SIZE) {
+            ladder *= 2;
+        }
+        if (ladder >= size) {
+            return ladder;
+        }
+        if (size > S3_MAX_PART_SIZE) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "文件超过分片上传支持的最大大小");
+        }
+        return size;
+    }
+
+    private int clampConcurrency(long concurrency) {
+        int minimum = Math.max(1, properties.getMinConcurrency());
+        int maximum = Math.max(minimum, properties.getMaxConcurrency());
+        return (int) Math.max(minimum, Math.min(maximum, concurrency));
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    /**
+     * 单个客户端的吞吐与分片耗时的指数加权平均
+     */
+    private static final class ClientStats {
+        private double throughput;
+        private double partMillis;
+        private long samples;
+        /**
+         * 上次推荐给该客户端的并发数，0 表示尚未按吞吐推荐过
+         */
+        private int concurrency;
+        /**
+         * 计算上次推荐时的样本数，没有新样本时不再调整并发数
+         */
+        private long concurrencySamples;
+
+        private synchronized void update(long bytes, long nanos, double alpha) {
+            double currentThroughput = bytes * 1e9 / nanos;
+            double currentMillis = nanos / 1e6;
+            if (samples == 0) {
+                throughput = currentThroughput;
+                partMillis = currentMillis;
+            } else {
+                throughput = alpha * currentThroughput + (1 - alpha) * throughput;
+                partMillis = alpha * currentMillis + (1 - alpha) * partMillis;
+            }
+            samples++;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.entity.vo.WriteBehindStatsVO;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import com.zsq.awss3uploadapi.mapper.SysUploadChunkMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分片记录的写后缓冲
+ * <p>
+ * 分片上传成功后记录先进入内存队列，攒够 batchSize 条或每隔 flushIntervalMillis 以一条多行
+ * INSERT ... ON DUPLICATE KEY UPDATE 写入 sys_upload_chunk，把每个分片一次提交合并成每批一次提交。
+ * 写库失败的批次放回队头下次重试；进程崩溃时丢失的记录对应的分片仍在S3上，合并时会以S3分片列表校正补齐。
+ * 积压以 maxPending 为上限：达到上限时上传线程最多等待 pendingWaitMillis 让刷盘线程腾出空间，以写库的速度限制上传速度；
+ * 仍没有空间（数据库长时间不可用）时该分片记录失败，由客户端重传，内存占用不会超过上限。
+ * 触发刷盘的请求合并为至多一个待执行的刷盘任务。
+ */
+@Slf4j
+@Component
+public class ChunkWriteBehindBuffer {
+
+    private final SysUploadChunkMapper sysUploadChunkMapper;
+    private final UploadProperties.ChunkWriteBehind properties;
+    private final LinkedBlockingDeque<SysUploadChunk> queue = new LinkedBlockingDeque<>();
+    /**
+     * 队列剩余容量：加入队列前取得，记录提交或丢弃后归还，写库失败放回队头的记录仍占用容量
+     */
+    private final Semaphore capacity;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    /**
+     * 正在写库的批次：已从队列取出、尚未提交，与队列一起由 pendingMonitor 保护，查询未落库记录时不会漏掉
+     */
+    private final Object pendingMonitor = new Object();
+    private List<SysUploadChunk> inFlight = Collections.emptyList();
+    private final ScheduledExecutorService flushExecutor =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("chunk-flush-", true));
+
+    private final AtomicLong bufferedRows = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong rejectedRows = new AtomicLong();
+
+    public ChunkWriteBehindBuffer(SysUploadChunkMapper sysUploadChunkMapper, UploadProperties uploadProperties) {
+        this.sysUploadChunkMapper = sysUploadChunkMapper;
+        this.properties = uploadProperties.getChunkWriteBehind();
+        this.capacity = new Semaphore(Math.max(1, properties.getMaxPending()));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.isEnabled()) {
+            long interval = properties.getFlushIntervalMillis();
+            flushExecutor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushExecutor.shutdownNow();
+        flushQuietly();
+    }
+
+    /**
+     * 记录一个上传完成的分片
+     */
+    public void add(SysUploadChunk chunk) {
+        if (chunk.getCreatedAt() == null) {
+            chunk.setCreatedAt(new Date());
+        }
+        if (!properties.isEnabled()) {
+            sysUploadChunkMapper.upsertBatch(Collections.singletonList(chunk));
+            return;
+        }
+        if (!capacity.tryAcquire()) {
+            scheduleFlush();
+            acquireCapacity();
+        }
+        queue.offer(chunk);
+        bufferedRows.incrementAndGet();
+        if (queue.size() >= properties.getBatchSize()) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 积压已满时等待刷盘腾出空间，超时说明数据库持续不可用，该分片记录失败
+     */
+    private void acquireCapacity() {
+        boolean acquired;
+        try {
+            acquired = capacity.tryAcquire(properties.getPendingWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedRows.incrementAndGet();
+            throw new SystemException(ResultCodeEnum.SERVER_BUSY.getCode(), "分片记录积压已满，请稍后重试");
+        }
+    }
+
+    /**
+     * 提交一次刷盘，已有刷盘任务等待执行时不再重复提交
+     */
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flushExecutor.execute(() -> {
+                    flushScheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // 正在关闭，关闭时会再刷盘一次
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * 把当前缓冲的全部记录写入数据库，合并分片前调用
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (true) {
+                List<SysUploadChunk> batch = new ArrayList<>(properties.getBatchSize());
+                synchronized (pendingMonitor) {
+                    if (queue.drainTo(batch, properties.getBatchSize()) == 0) {
+                        return;
+                    }
+                    inFlight = batch;
+                }
+                try {
+                    sysUploadChunkMapper.upsertBatch(batch);
+                } catch (RuntimeException e) {
+                    failedFlushes.incrementAndGet();
+                    synchronized (pendingMonitor) {
+                        // 按原顺序放回队头，保证同一分片的新旧etag不会乱序覆盖
+                        for (int i = batch.size() - 1; i >= 0; i--) {
+                            queue.offerFirst(batch.get(i));
+                        }
+                        inFlight = Collections.emptyList();
+                    }
+                    throw e;
+                }
+                synchronized (pendingMonitor) {
+                    inFlight = Collections.emptyList();
+                }
+                capacity.release(batch.size());
+                flushedRows.addAndGet(batch.size());
+                flushedBatches.incrementAndGet();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("分片记录批量写入失败，{} 条记录等待重试", queue.size(), e);
+        }
+    }
+
+    /**
+     * 尚未写入数据库的分片记录，包括正在写库、尚未提交的批次，按加入顺序排列（同一分片较新的在后）。
+     * 调用方需先取未落库记录再查分片表，否则期间提交的批次两边都查不到
+     */
+    public List<SysUploadChunk> pendingChunks(String uploadId) {
+        List<SysUploadChunk> chunks = new ArrayList<>();
+        synchronized (pendingMonitor) {
+            for (SysUploadChunk chunk : inFlight) {
+                if (uploadId.equals(chunk.getUploadId())) {
+                    chunks.add(chunk);
+                }
+            }
+            for (SysUploadChunk chunk : queue) {
+                if (uploadId.equals(chunk.getUploadId())) {
+                    chunks.add(chunk);
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * 丢弃某个上传任务尚未写入的记录，删除任务时在删除数据库分片记录之前调用，避免删除后又被写回
+     * <p>
+     * 持有 flushLock 执行：正在写库的批次已经从队列取出，需等它写完（随后由调用方一并删除）
+     * 或写库失败放回队头后再丢弃，否则这批记录会在任务删除后写入
+     */
+    public void discard(String uploadId) {
+        flushLock.lock();
+        try {
+            int removed = 0;
+            for (Iterator<SysUploadChunk> iterator = queue.iterator(); iterator.hasNext(); ) {
+                if (uploadId.equals(iterator.next().getUploadId())) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            capacity.release(removed);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public WriteBehindStatsVO stats() {
+        return WriteBehindStatsVO.builder()
+                .enabled(properties.isEnabled())
+                .pending(queue.size())
+                .bufferedRows(bufferedRows.get())
+                .flushedRows(flushedRows.get())
+                .flushedBatches(flushedBatches.get())
+                .failedFlushes(failedFlushes.get())
+                .rejectedRows(rejectedRows.get())
+                .build();
+    }
+}
@@ -0,0 +1,246 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.vo.BloomFilterStatsVO;
+import com.zsq.awss3uploadapi.mapper.SysUploadTaskMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 已知文件标识（file_identifier）的布隆过滤器
+ * <p>
+ * 启动后流式读取 sys_upload_task 构建，初始化任务时追加。布隆过滤器不支持删除，删除文件只记录过期数量，
+ * 过期比例超过阈值或到达定时间隔时在后台整体重建（重建期间新增的标识同时写入新旧两份位图）。
+ * 判定“一定不存在”时秒传检查可以直接返回未上传，不再查询数据库；首次构建完成前一律视为“可能存在”。
+ */
+@Slf4j
+@Component
+public class FileIdentifierBloomFilter {
+
+    private final SysUploadTaskMapper sysUploadTaskMapper;
+    private final UploadProperties.BloomFilter properties;
+    private final ScheduledExecutorService rebuildExecutor =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("bloom-rebuild-", true));
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * 当前生效的位图，首次构建完成前为null
+     */
+    private volatile Bits current;
+    /**
+     * 正在重建的位图，重建期间新增的标识也要写入
+     */
+    private volatile Bits building;
+
+    private final AtomicLong staleDeletions = new AtomicLong();
+    private final AtomicLong queryCount = new AtomicLong();
+    private final AtomicLong definiteMissCount = new AtomicLong();
+    private volatile long lastRebuildMillis = -1;
+    private volatile long lastRebuildRows = 0;
+    private volatile LocalDateTime lastRebuildAt;
+
+    public FileIdentifierBloomFilter(SysUploadTaskMapper sysUploadTaskMapper, UploadProperties uploadProperties) {
+        this.sysUploadTaskMapper = sysUploadTaskMapper;
+        this.properties = uploadProperties.getBloomFilter();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        rebuildExecutor.execute(this::rebuild);
+        // 其它节点新增的标识只能通过重建感知，定时重建保证最终一致
+        long interval = properties.getRebuildIntervalMinutes();
+        if (interval > 0) {
+            rebuildExecutor.scheduleWithFixedDelay(this::rebuild, interval, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 判断标识是否可能存在，返回false表示一定不存在
+     */
+    public boolean mightContain(String identifier) {
+        Bits bits = current;
+        if (!properties.isEnabled() || bits == null) {
+            return true;
+        }
+        queryCount.incrementAndGet();
+        boolean contains = bits.mightContain(identifier);
+        if (!contains) {
+            definiteMissCount.incrementAndGet();
+        }
+        return contains;
+    }
+
+    public void put(String identifier) {
+        // 先读building再读current，保证重建切换时新标识至少落入新位图
+        Bits rebuildingBits = building;
+        if (rebuildingBits != null) {
+            rebuildingBits.put(identifier);
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.put(identifier);
+        }
+    }
+
+    /**
+     * 记录一次删除，过期标识比例超过阈值时触发后台重建
+     */
+    public void markDeleted(String identifier) {
+        Bits bits = current;
+        long stale = staleDeletions.incrementAndGet();
+        if (bits != null && stale > bits.insertions.get() * properties.getRebuildStaleRatio()) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * 提交一次后台重建，已在重建中时忽略
+     */
+    public void requestRebuild() {
+        if (properties.isEnabled() && !rebuilding.get()) {
+            rebuildExecutor.execute(this::rebuild);
+        }
+    }
+
+    private void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            long rows = sysUploadTaskMapper.selectCount(null);
+            // 预留增长空间，避免重建后很快就超出设计容量导致误判率上升
+            long expected = Math.max(properties.getExpectedInsertions(), (long) (rows * 1.5));
+            Bits bits = new Bits(expected, properties.getFpp());
+            building = bits;
+            long staleBefore = staleDeletions.get();
+            sysUploadTaskMapper.streamFileIdentifiers(context -> bits.put(context.getResultObject()));
+            current = bits;
+            building = null;
+            staleDeletions.addAndGet(-staleBefore);
+            lastRebuildRows = bits.insertions.get();
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            lastRebuildAt = LocalDateTime.now();
+            log.info("文件标识布隆过滤器重建完成，标识数: {}, 位数: {}, 哈希函数数: {}, 耗时: {}ms",
+                    lastRebuildRows, bits.bitSize, bits.hashFunctions, lastRebuildMillis);
+        } catch (Exception e) {
+            building = null;
+            log.error("文件标识布隆过滤器重建失败，继续使用旧位图", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    public BloomFilterStatsVO stats() {
+        Bits bits = current;
+        BloomFilterStatsVO.BloomFilterStatsVOBuilder builder = BloomFilterStatsVO.builder()
+                .enabled(properties.isEnabled())
+                .ready(bits != null)
+                .rebuilding(rebuilding.get())
+                .configuredFpp(properties.getFpp())
+                .staleDeletions(staleDeletions.get())
+                .queryCount(queryCount.get())
+                .definiteMissCount(definiteMissCount.get())
+                .lastRebuildRows(lastRebuildRows)
+                .lastRebuildMillis(lastRebuildMillis)
+                .lastRebuildAt(lastRebuildAt);
+        if (bits != null) {
+            long bitsSet = bits.bitCount();
+            builder.expectedInsertions(bits.expectedInsertions)
+                    .insertions(bits.insertions.get())
+                    .bitSize(bits.bitSize)
+                    .hashFunctions(bits.hashFunctions)
+                    .bitsSet(bitsSet)
+                    .memoryBytes(bits.bitSize / 8)
+                    // 误判率约等于被置位比例的k次方
+                    .estimatedFpp(Math.pow((double) bitsSet / bits.bitSize, bits.hashFunctions));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 定长位图 + k个哈希函数，线程安全
+     */
+    private static final class Bits {
+        private final long expectedInsertions;
+        private final long bitSize;
+        private final int hashFunctions;
+        private final AtomicLongArray words;
+        private final AtomicLong insertions = new AtomicLong();
+
+        Bits(long expectedInsertions, double fpp) {
+            this.expectedInsertions = Math.max(1, expectedInsertions);
+            // m = -n*ln(p)/(ln2)^2, k = m/n*ln2
+            long bits = (long) (-this.expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + 63) / 64));
+            this.bitSize = (long) wordCount * 64;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / this.expectedInsertions * Math.log(2)));
+            this.words = new AtomicLongArray(wordCount);
+        }
+
+        void put(String identifier) {
+            long[] hash = MurmurHash.hash128(identifier);
+            long combined = hash[0];
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                setBit(index);
+                combined += hash[1];
+            }
+            insertions.incrementAndGet();
+        }
+
+        boolean mightContain(String identifier) {
+            long[] hash = MurmurHash.hash128(identifier);
+            long combined = hash[0];
+            for (int i = 0; i < hashFunctions; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += hash[1];
+            }
+            return true;
+        }
+
+        private void setBit(long index) {
+            int wordIndex = (int) (index >>> 6);
+            long mask = 1L << index;
+            long oldValue;
+            do {
+                oldValue = words.get(wordIndex);
+                if ((oldValue & mask) != 0) {
+                    return;
+                }
+            } while (!words.compareAndSet(wordIndex, oldValue, oldValue | mask));
+        }
+
+        long bitCount() {
+            long count = 0;
+            for (int i = 0; i < words.length(); i++) {
+                count += Long.bitCount(words.get(i));
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.zsq.awss3uploadapi.component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.stereotype.Component;
+
+/**
+ * 记录每条 Mapper 语句的执行耗时，指标名 db.queries，按 mapper（如 SysUploadTaskMapper）、statement（方法名）、
+ * command（SELECT/INSERT/UPDATE/DELETE）和 outcome 区分。游标查询只统计打开游标的耗时。
+ * 分页插件会在拦截链内部再调用一次 query，同一线程内已在计时时不重复记录
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class MapperMetricsInterceptor implements Interceptor {
+
+    private final MeterRegistry meterRegistry;
+    private final ThreadLocal<Boolean> timing = new ThreadLocal<>();
+
+    public MapperMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (timing.get() != null) {
+            return invocation.proceed();
+        }
+        timing.set(Boolean.TRUE);
+        MappedStatement mappedStatement = (MappedStatement) invocation.getArgs()[0];
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            timing.remove();
+            String id = mappedStatement.getId();
+            int methodIndex = id.lastIndexOf('.');
+            String namespace = methodIndex < 0 ? "" : id.substring(0, methodIndex);
+            sample.stop(Timer.builder("db.queries")
+                    .description("Mapper语句执行耗时")
+                    .tag("mapper", namespace.substring(namespace.lastIndexOf('.') + 1))
+                    .tag("statement", id.substring(methodIndex + 1))
+                    .tag("command", mappedStatement.getSqlCommandType().name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+}
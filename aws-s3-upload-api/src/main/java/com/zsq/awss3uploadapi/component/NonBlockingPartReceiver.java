@@ -0,0 +1,261 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 非阻塞接收分片请求体
+ * <p>
+ * 基于 Servlet 3.1 的 {@link ReadListener}：连接上有数据时容器线程才回调读取，读到的字节追加写入落盘文件，
+ * 等待客户端发送期间不占用任何线程，少量容器线程即可同时接收大量慢速连接。请求体收完后再把落盘文件交给
+ * {@link AsyncRequestDispatcher} 在 s3RequestExecutor 中写入S3，数据库访问同样在该线程池中进行。
+ * 读缓冲区按容器线程复用，每个在途连接只占用一个套接字和一个落盘文件句柄
+ */
+@Slf4j
+@Component
+public class NonBlockingPartReceiver {
+
+    private static final Object INTERCEPTOR_KEY = NonBlockingPartReceiver.class.getName();
+    private static final Pattern SPOOL_FILE_NAME = Pattern.compile("[0-9a-f]{32}");
+
+    private final AsyncRequestDispatcher asyncRequestDispatcher;
+    private final UploadProperties.NonBlockingPart properties;
+    private final Path spoolDirectory;
+    private final ThreadLocal<byte[]> readBuffer;
+    private final AtomicInteger receiving = new AtomicInteger();
+
+    public NonBlockingPartReceiver(AsyncRequestDispatcher asyncRequestDispatcher, UploadProperties uploadProperties, MeterRegistry meterRegistry) {
+        this.asyncRequestDispatcher = asyncRequestDispatcher;
+        this.properties = uploadProperties.getNonBlockingPart();
+        this.spoolDirectory = Paths.get(properties.getSpoolDirectory());
+        this.readBuffer = ThreadLocal.withInitial(() -> new byte[properties.getBufferSize()]);
+        Gauge.builder("upload.nio.receiving", receiving, AtomicInteger::get)
+                .description("正在非阻塞接收请求体的分片数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 清理上次运行残留的落盘文件，落盘文件只在单次请求内有效
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(spoolDirectory);
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            files.filter(file -> SPOOL_FILE_NAME.matcher(file.getFileName().toString()).matches())
+                    .forEach(FileUtil::del);
+        }
+    }
+
+    /**
+     * 开始非阻塞接收请求体，收完后在 s3RequestExecutor 中以落盘文件的输入流调用 handler
+     * @param request       请求
+     * @param contentLength 请求声明的 Content-Length
+     * @param endpoint      接口名，作为指标标签
+     * @param handler       处理完整分片内容，异常交给全局异常处理
+     * @return 处理结果，控制器直接返回
+     */
+    public <T> DeferredResult<T> receive(HttpServletRequest request, long contentLength, String endpoint, PartHandler<T> handler) {
+        if (contentLength > properties.getMaxPartSize()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片大小超过上限: " + properties.getMaxPartSize());
+        }
+        DeferredResult<T> deferredResult = new DeferredResult<>(TimeUnit.SECONDS.toMillis(properties.getReceiveTimeoutSeconds()));
+        // setReadListener 只能在异步模式下调用，而异步模式在控制器返回 DeferredResult 后才开启，所以在 preProcess 中注册
+        WebAsyncUtils.getAsyncManager(request).registerDeferredResultInterceptor(INTERCEPTOR_KEY, new DeferredResultProcessingInterceptor() {
+            @Override
+            public <S> void preProcess(NativeWebRequest webRequest, DeferredResult<S> result) throws IOException {
+                ServletInputStream inputStream = request.getInputStream();
+                SpoolingReadListener<T> listener = new SpoolingReadListener<>(inputStream, contentLength, endpoint, handler, deferredResult);
+                deferredResult.onCompletion(listener::release);
+                receiving.incrementAndGet();
+                inputStream.setReadListener(listener);
+            }
+        });
+        return deferredResult;
+    }
+
+    /**
+     * 处理已完整接收的分片内容
+     */
+    @FunctionalInterface
+    public interface PartHandler<T> {
+        T handle(InputStream inputStream) throws Exception;
+    }
+
+    /**
+     * 把请求体写入落盘文件，收完后提交处理
+     */
+    private class SpoolingReadListener<T> implements ReadListener {
+
+        private final ServletInputStream inputStream;
+        private final long contentLength;
+        private final String endpoint;
+        private final PartHandler<T> handler;
+        private final DeferredResult<T> deferredResult;
+        private final Path spoolFile = spoolDirectory.resolve(IdUtil.fastSimpleUUID());
+        /**
+         * 接收结束（成功交给处理或失败）后置位，只计数一次
+         */
+        private final AtomicBoolean received = new AtomicBoolean();
+        /**
+         * 落盘文件已交给处理线程时置位，由处理线程负责删除
+         */
+        private final AtomicBoolean handedOver = new AtomicBoolean();
+        private FileChannel channel;
+        private long receivedBytes;
+        private volatile boolean failed;
+
+        SpoolingReadListener(ServletInputStream inputStream, long contentLength, String endpoint,
+                             PartHandler<T> handler, DeferredResult<T> deferredResult) {
+            this.inputStream = inputStream;
+            this.contentLength = contentLength;
+            this.endpoint = endpoint;
+            this.handler = handler;
+            this.deferredResult = deferredResult;
+        }
+
+        @Override
+        public void onDataAvailable() {
+            byte[] buffer = readBuffer.get();
+            try {
+                if (failed) {
+                    // 已经应答错误，剩余的请求体读出丢弃
+                    while (inputStream.isReady() && inputStream.read(buffer) != -1) {
+                        // 丢弃
+                    }
+                    return;
+                }
+                if (channel == null) {
+                    channel = FileChannel.open(spoolFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                }
+                int read;
+                while (inputStream.isReady() && (read = inputStream.read(buffer)) != -1) {
+                    receivedBytes += read;
+                    if (receivedBytes > contentLength) {
+                        fail(new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "请求体长度超过Content-Length"));
+                        return;
+                    }
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        channel.write(byteBuffer);
+                    }
+                }
+            } catch (IOException e) {
+                onError(e);
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            if (failed) {
+                return;
+            }
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                onError(e);
+                return;
+            }
+            if (receivedBytes != contentLength) {
+                fail(new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                        "请求体长度与Content-Length不一致: " + receivedBytes + "/" + contentLength));
+                return;
+            }
+            markReceived();
+            handedOver.set(true);
+            try {
+                asyncRequestDispatcher.submit(endpoint, () -> {
+                    try (InputStream spooled = Files.newInputStream(spoolFile)) {
+                        return handler.handle(spooled);
+                    } finally {
+                        Files.deleteIfExists(spoolFile);
+                    }
+                }).whenComplete((result, throwable) -> {
+                    if (throwable == null) {
+                        deferredResult.setResult(result);
+                    } else {
+                        deferredResult.setErrorResult(throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause() : throwable);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                handedOver.set(false);
+                fail(e);
+            }
+        }
+
+        /**
+         * 读取或写盘失败、请求体长度不符、客户端断开时由容器回调
+         */
+        @Override
+        public void onError(Throwable t) {
+            if (failed) {
+                return;
+            }
+            log.warn("非阻塞接收分片失败: {}", t.toString());
+            fail(t);
+        }
+
+        private void fail(Throwable t) {
+            failed = true;
+            release();
+            deferredResult.setErrorResult(t);
+        }
+
+        /**
+         * 关闭并删除尚未交给处理线程的落盘文件，异步请求结束（含超时）时也会调用
+         */
+        void release() {
+            markReceived();
+            if (handedOver.get()) {
+                return;
+            }
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException e) {
+                log.warn("删除落盘文件失败: {}", spoolFile, e);
+            }
+        }
+
+        private void markReceived() {
+            if (received.compareAndSet(false, true)) {
+                receiving.decrementAndGet();
+            }
+        }
+    }
+}
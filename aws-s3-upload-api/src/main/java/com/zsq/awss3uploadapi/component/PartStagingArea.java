@@ -0,0 +1,688 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.vo.StagingStatsVO;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import com.zsq.awss3uploadapi.utils.ChecksumUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 分片本地暂存区
+ * <p>
+ * 启用后分片先通过 FileChannel 写入本地暂存文件并落盘，随即应答客户端，再由后台线程写入S3，
+ * S3的延迟抖动变成后台积压而不再拖慢上传请求。每个暂存分片在追加写的日志中记一行，写入S3后再记一行完成，
+ * 重启时回放日志恢复尚未写入的分片；写入S3失败按指数退避重试，重试耗尽的分片丢弃，由客户端按缺失分片重传。
+ * 日志按组提交：一次落盘期间到达的日志行合并为下一次写入和落盘，并发暂存的请求不再逐行排队等待磁盘同步；
+ * 完成行累计达到 journalCompactLines 时在运行中重写日志只保留未完成的分片，启动时同样压缩一次。
+ * 暂存字节数超过 maxStagedBytes 时新分片不再暂存，由调用方直接上传S3。合并前需等待该上传的暂存分片全部写入。
+ */
+@Slf4j
+@Component
+public class PartStagingArea {
+
+    private static final String JOURNAL_FILE = "journal.log";
+    private static final String DATA_DIR = "data";
+    private static final String STAGED = "S";
+    private static final String DRAINED = "D";
+
+    private final AmazonS3 amazonS3;
+    private final ChunkWriteBehindBuffer chunkWriteBehindBuffer;
+    private final UploadProperties.Staging properties;
+    private final Path directory;
+    private final ScheduledThreadPoolExecutor drainExecutor;
+
+    /**
+     * uploadId -> 分片编号 -> 待写入S3的暂存分片，同一分片重复暂存时新的覆盖旧的
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Integer, StagedPart>> pending = new ConcurrentHashMap<>();
+    private final Object drainMonitor = new Object();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    /**
+     * 日志写入状态由 journalMonitor 保护：同一时刻只有一个线程写入并落盘（journalWriting），
+     * 其间到达的日志行进入 openBatch，由下一个写入线程一并提交
+     */
+    private final Object journalMonitor = new Object();
+    private FileChannel journal;
+    private JournalBatch openBatch = new JournalBatch();
+    private boolean journalWriting;
+    private long drainedSinceCompaction;
+
+    private final AtomicLong stagedParts = new AtomicLong();
+    private final AtomicLong drainedParts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failedParts = new AtomicLong();
+    private final AtomicLong bypassedParts = new AtomicLong();
+    private final AtomicLong recoveredParts = new AtomicLong();
+
+    public PartStagingArea(AmazonS3 amazonS3, ChunkWriteBehindBuffer chunkWriteBehindBuffer, UploadProperties uploadProperties) {
+        this.amazonS3 = amazonS3;
+        this.chunkWriteBehindBuffer = chunkWriteBehindBuffer;
+        this.properties = uploadProperties.getStaging();
+        this.directory = Paths.get(properties.getDirectory());
+        this.drainExecutor = new ScheduledThreadPoolExecutor(Math.max(1, properties.getDrainConcurrency()),
+                new NamedThreadFactory("part-stage-drain-", true));
+        // 关闭时不再等待退避中的重试，它们仍在日志中，下次启动恢复
+        this.drainExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * 回放日志恢复上次未写入S3的分片，清理不再被引用的暂存文件并压缩日志。
+     * 未启用暂存时只要目录中有日志同样恢复，避免关闭开关后已应答的分片丢失
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        Path journalPath = directory.resolve(JOURNAL_FILE);
+        if (!properties.isEnabled() && !Files.exists(journalPath)) {
+            return;
+        }
+        Files.createDirectories(directory.resolve(DATA_DIR));
+        Map<String, StagedPart> survivors = new LinkedHashMap<>();
+        if (Files.exists(journalPath)) {
+            for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+                replay(line, survivors);
+            }
+        }
+        long maxSequence = 0;
+        List<String> lines = new ArrayList<>(survivors.size());
+        Set<Path> referenced = new HashSet<>();
+        for (StagedPart part : survivors.values()) {
+            if (!Files.exists(part.file) || Files.size(part.file) != part.size) {
+                log.warn("暂存分片文件缺失或长度不符，丢弃，uploadId: {}, partNumber: {}", part.uploadId, part.partNumber);
+                continue;
+            }
+            maxSequence = Math.max(maxSequence, part.sequence);
+            referenced.add(part.file);
+            lines.add(part.toJournalLine());
+            pending.computeIfAbsent(part.uploadId, key -> new ConcurrentHashMap<>()).put(part.partNumber, part);
+            pendingBytes.addAndGet(part.size);
+            recoveredParts.incrementAndGet();
+        }
+        sequence.set(maxSequence);
+        deleteUnreferenced(referenced);
+
+        // 只保留未完成的分片，运行中的压缩见 compactJournal
+        journal = rewriteJournal(lines);
+        if (recoveredParts.get() > 0) {
+            log.info("从暂存日志恢复 {} 个待写入S3的分片，共 {} 字节", recoveredParts.get(), pendingBytes.get());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        pending.values().forEach(parts -> parts.values().forEach(part -> drainExecutor.execute(() -> drain(part))));
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        drainExecutor.shutdown();
+        try {
+            if (!drainExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                drainExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            drainExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        acquireJournal();
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } finally {
+            releaseJournal();
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 把分片写入暂存区，落盘并记入日志后提交后台写入S3
+     *
+     * @param declaredMd5 客户端声明的分片MD5（十六进制），可为空
+     * @return 暂存区已满时返回false，输入流未被读取，调用方应直接上传S3
+     */
+    public boolean stage(SysUploadTask sysUploadTask, int partNumber, InputStream inputStream, long size, String declaredMd5) throws IOException {
+        if (StrUtil.isNotBlank(declaredMd5) && !ChecksumUtil.isMd5Hex(declaredMd5)) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片MD5格式错误: " + declaredMd5);
+        }
+        if (partNumber < 1 || partNumber > sysUploadTask.getTotalChunks()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                    "分片编号超出总分片数: " + sysUploadTask.getTotalChunks());
+        }
+        if (size <= 0 || !reserve(size)) {
+            bypassedParts.incrementAndGet();
+            return false;
+        }
+        long seq = sequence.incrementAndGet();
+        Path dir = directory.resolve(DATA_DIR).resolve(DigestUtil.md5Hex(sysUploadTask.getUploadId()));
+        Path tmp = dir.resolve(partNumber + "-" + seq + ".tmp");
+        Path file = dir.resolve(partNumber + "-" + seq + ".part");
+        boolean staged = false;
+        try {
+            Files.createDirectories(dir);
+            String md5 = writeFile(tmp, inputStream, size);
+            if (StrUtil.isNotBlank(declaredMd5) && !md5.equalsIgnoreCase(declaredMd5)) {
+                throw new SystemException(ResultCodeEnum.UPLOAD_CHECKSUM_MISMATCH.getCode(),
+                        "分片" + partNumber + "内容与声明的MD5不一致，声明: " + declaredMd5 + ", 实际: " + md5);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            StagedPart part = new StagedPart(sysUploadTask.getUploadId(), partNumber, seq, md5, size,
+                    sysUploadTask.getBucketName(), sysUploadTask.getObjectKey(), file);
+            appendJournal(part.toJournalLine());
+            // 与 complete 中移除空映射在同一个键上原子执行，不会放进已被移除的映射
+            pending.compute(part.uploadId, (uploadId, parts) -> {
+                ConcurrentHashMap<Integer, StagedPart> current = parts == null ? new ConcurrentHashMap<>() : parts;
+                current.put(partNumber, part);
+                return current;
+            });
+            staged = true;
+            stagedParts.incrementAndGet();
+            drainExecutor.execute(() -> drain(part));
+            return true;
+        } finally {
+            if (!staged) {
+                Files.deleteIfExists(tmp);
+                Files.deleteIfExists(file);
+                pendingBytes.addAndGet(-size);
+            }
+        }
+    }
+
+    /**
+     * 等待某个上传的暂存分片全部写入S3（或重试耗尽被丢弃）
+     *
+     * @return 超时仍有未写入的分片时返回false
+     */
+    public boolean awaitDrained(String uploadId, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (drainMonitor) {
+            while (pending.containsKey(uploadId)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(drainMonitor, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 已暂存但尚未写入S3的分片，ETag按普通上传的规则取内容MD5，供断点续传时视为已上传
+     */
+    public List<SysUploadChunk> pendingChunks(String uploadId) {
+        Map<Integer, StagedPart> parts = pending.get(uploadId);
+        if (parts == null) {
+            return new ArrayList<>();
+        }
+        return parts.values().stream()
+                .map(part -> SysUploadChunk.builder()
+                        .uploadId(uploadId)
+                        .partNumber(part.partNumber)
+                        .etag("\"" + part.md5 + "\"")
+                        .md5(part.md5)
+                        .createdAt(new Date(part.stagedAt))
+                        .build())
+                .sorted(Comparator.comparing(SysUploadChunk::getPartNumber))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 某个上传是否还有已暂存（已应答客户端）但尚未写入S3的分片，包括退避重试中的分片
+     */
+    public boolean hasPending(String uploadId) {
+        Map<Integer, StagedPart> parts = pending.get(uploadId);
+        return parts != null && !parts.isEmpty();
+    }
+
+    /**
+     * 丢弃某个上传任务尚未写入S3的分片，删除任务时调用；正在上传的分片完成后不再记录
+     */
+    public void discard(String uploadId) {
+        Map<Integer, StagedPart> parts = pending.remove(uploadId);
+        if (parts != null) {
+            // 文件由各自的写入任务发现已被丢弃后删除
+            synchronized (drainMonitor) {
+                drainMonitor.notifyAll();
+            }
+        }
+    }
+
+    public StagingStatsVO stats() {
+        long now = System.currentTimeMillis();
+        int parts = 0;
+        long oldest = now;
+        for (Map<Integer, StagedPart> uploadParts : pending.values()) {
+            for (StagedPart part : uploadParts.values()) {
+                parts++;
+                oldest = Math.min(oldest, part.stagedAt);
+            }
+        }
+        return StagingStatsVO.builder()
+                .enabled(properties.isEnabled())
+                .pendingParts(parts)
+                .pendingBytes(pendingBytes.get())
+                .oldestPendingMillis(now - oldest)
+                .stagedParts(stagedParts.get())
+                .drainedParts(drainedParts.get())
+                .retries(retries.get())
+                .failedParts(failedParts.get())
+                .bypassedParts(bypassedParts.get())
+                .recoveredParts(recoveredParts.get())
+                .build();
+    }
+
+    private boolean reserve(long size) {
+        long max = properties.getMaxStagedBytes();
+        while (true) {
+            long current = pendingBytes.get();
+            if (current + size > max) {
+                return false;
+            }
+            if (pendingBytes.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 把输入流写入文件并落盘，同时计算MD5
+     */
+    private static String writeFile(Path file, InputStream inputStream, long size) throws IOException {
+        DigestInputStream digestInputStream = new DigestInputStream(inputStream, DigestUtil.digester(DigestAlgorithm.MD5).getDigest());
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ReadableByteChannel source = Channels.newChannel(digestInputStream);
+            while (written < size) {
+                long transferred = channel.transferFrom(source, written, size - written);
+                if (transferred <= 0) {
+                    break;
+                }
+                written += transferred;
+            }
+            channel.force(true);
+        }
+        if (written != size) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                    "分片长度不符，声明: " + size + ", 实际: " + written);
+        }
+        return HexUtil.encodeHexStr(digestInputStream.getMessageDigest().digest());
+    }
+
+    /**
+     * 把暂存分片写入S3，成功后记录分片并删除暂存文件；失败按指数退避重新调度
+     */
+    private void drain(StagedPart part) {
+        if (!isCurrent(part)) {
+            // 已被重传的分片覆盖或任务已删除
+            complete(part);
+            return;
+        }
+        part.attempts++;
+        try {
+            UploadPartRequest uploadPartRequest = new UploadPartRequest()
+                    .withBucketName(part.bucketName)
+                    .withKey(part.objectKey)
+                    .withUploadId(part.uploadId)
+                    .withPartNumber(part.partNumber)
+                    .withPartSize(part.size)
+                    .withFile(part.file.toFile())
+                    .withMD5Digest(ChecksumUtil.md5HexToBase64(part.md5));
+            String etag = amazonS3.uploadPart(uploadPartRequest).getETag();
+            String etagMd5 = ChecksumUtil.md5FromEtag(etag);
+            if (etagMd5 != null && !etagMd5.equals(part.md5)) {
+                throw new IllegalStateException("ETag与暂存分片MD5不一致，ETag: " + etag + ", 实际: " + part.md5);
+            }
+            // 写入期间任务被删除或分片被覆盖时不再记录，以新的分片为准
+            if (isCurrent(part)) {
+                chunkWriteBehindBuffer.add(SysUploadChunk.builder()
+                        .uploadId(part.uploadId)
+                        .partNumber(part.partNumber)
+                        .etag(etag)
+                        .md5(part.md5)
+                        .build());
+                drainedParts.incrementAndGet();
+            }
+            complete(part);
+        } catch (Exception e) {
+            if (isNoSuchUpload(e) || part.attempts >= properties.getMaxAttempts()) {
+                failedParts.incrementAndGet();
+                log.error("暂存分片写入S3失败，已丢弃，uploadId: {}, partNumber: {}, 尝试次数: {}",
+                        part.uploadId, part.partNumber, part.attempts, e);
+                complete(part);
+                return;
+            }
+            retries.incrementAndGet();
+            long delay = properties.getRetryBackoffMillis() << Math.min(part.attempts - 1, 16);
+            log.warn("暂存分片写入S3失败，{} 毫秒后重试，uploadId: {}, partNumber: {}", delay, part.uploadId, part.partNumber, e);
+            try {
+                drainExecutor.schedule(() -> drain(part), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException rejected) {
+                // 正在关闭，分片仍在日志中，下次启动恢复
+                log.info("暂存区正在关闭，uploadId: {}, partNumber: {} 留待下次启动写入", part.uploadId, part.partNumber);
+            }
+        }
+    }
+
+    private boolean isCurrent(StagedPart part) {
+        Map<Integer, StagedPart> parts = pending.get(part.uploadId);
+        return parts != null && parts.get(part.partNumber) == part;
+    }
+
+    /**
+     * 分片处理结束：记一行完成日志，删除暂存文件，释放配额并唤醒等待合并的线程
+     */
+    private void complete(StagedPart part) {
+        try {
+            appendJournal(DRAINED + "\t" + encode(part.uploadId) + "\t" + part.partNumber + "\t" + part.sequence);
+            compactJournalIfNeeded();
+            Files.deleteIfExists(part.file);
+        } catch (IOException e) {
+            log.warn("清理暂存分片失败，uploadId: {}, partNumber: {}", part.uploadId, part.partNumber, e);
+        }
+        pendingBytes.addAndGet(-part.size);
+        pending.computeIfPresent(part.uploadId, (uploadId, parts) -> {
+            parts.remove(part.partNumber, part);
+            return parts.isEmpty() ? null : parts;
+        });
+        synchronized (drainMonitor) {
+            drainMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * 追加一行日志，返回时该行已落盘。正在落盘时只把日志行放入下一批并等待，
+     * 上一次落盘结束后由该批中最先醒来的线程写入整批并落盘一次，再唤醒同批的其他线程
+     */
+    private void appendJournal(String line) throws IOException {
+        JournalBatch batch;
+        synchronized (journalMonitor) {
+            batch = openBatch;
+            batch.lines.add(line);
+            boolean interrupted = false;
+            while (journalWriting && !batch.done) {
+                try {
+                    journalMonitor.wait();
+                } catch (InterruptedException e) {
+                    // 日志行已进入批次，必须等它写完才能告诉调用方结果
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (batch.done) {
+                if (batch.failure != null) {
+                    throw new IOException("写入暂存日志失败", batch.failure);
+                }
+                return;
+            }
+            journalWriting = true;
+            openBatch = new JournalBatch();
+        }
+        IOException failure = null;
+        try {
+            writeLines(journal, batch.lines);
+            journal.force(false);
+        } catch (IOException e) {
+            failure = e;
+        }
+        synchronized (journalMonitor) {
+            batch.failure = failure;
+            batch.done = true;
+            journalWriting = false;
+            journalMonitor.notifyAll();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 完成行累计达到阈值时压缩日志：独占日志后回放当前文件，只保留未完成的分片写入新文件并替换。
+     * 回放的是已落盘的日志而不是内存中的暂存分片，已写入日志、尚未放入 pending 的分片不会丢失。
+     * 压缩失败时继续使用原日志，下次达到阈值或启动时再压缩
+     */
+    private void compactJournalIfNeeded() {
+        synchronized (journalMonitor) {
+            if (++drainedSinceCompaction < properties.getJournalCompactLines()) {
+                return;
+            }
+            drainedSinceCompaction = 0;
+        }
+        acquireJournal();
+        try {
+            Map<String, StagedPart> survivors = new LinkedHashMap<>();
+            for (String line : Files.readAllLines(directory.resolve(JOURNAL_FILE), StandardCharsets.UTF_8)) {
+                replay(line, survivors);
+            }
+            List<String> lines = survivors.values().stream().map(StagedPart::toJournalLine).collect(Collectors.toList());
+            FileChannel compacted = rewriteJournal(lines);
+            journal.close();
+            journal = compacted;
+        } catch (IOException e) {
+            log.warn("压缩暂存日志失败", e);
+        } finally {
+            releaseJournal();
+        }
+    }
+
+    /**
+     * 把日志行写入临时文件并落盘，原子替换日志后返回新日志的追加通道。
+     * 通道在替换前打开，替换失败时原日志及其通道不受影响
+     */
+    private FileChannel rewriteJournal(List<String> lines) throws IOException {
+        Path compacted = directory.resolve(JOURNAL_FILE + ".tmp");
+        Files.deleteIfExists(compacted);
+        FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            writeLines(channel, lines);
+            channel.force(true);
+            Files.move(compacted, directory.resolve(JOURNAL_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(compacted);
+            throw e;
+        }
+    }
+
+    private static void writeLines(FileChannel channel, List<String> lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 等待正在进行的落盘结束后独占日志，期间到达的日志行留在下一批
+     */
+    private void acquireJournal() {
+        synchronized (journalMonitor) {
+            boolean interrupted = false;
+            while (journalWriting) {
+                try {
+                    journalMonitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            journalWriting = true;
+        }
+    }
+
+    private void releaseJournal() {
+        synchronized (journalMonitor) {
+            journalWriting = false;
+            journalMonitor.notifyAll();
+        }
+    }
+
+    private void replay(String line, Map<String, StagedPart> survivors) {
+        String[] fields = line.split("\t");
+        try {
+            if (STAGED.equals(fields[0]) && fields.length == 8) {
+                String uploadId = decode(fields[1]);
+                int partNumber = Integer.parseInt(fields[2]);
+                long seq = Long.parseLong(fields[3]);
+                Path file = directory.resolve(DATA_DIR).resolve(DigestUtil.md5Hex(uploadId)).resolve(partNumber + "-" + seq + ".part");
+                survivors.put(uploadId + "\t" + partNumber, new StagedPart(uploadId, partNumber, seq, fields[4],
+                        Long.parseLong(fields[5]), decode(fields[6]), decode(fields[7]), file));
+            } else if (DRAINED.equals(fields[0]) && fields.length == 4) {
+                String key = decode(fields[1]) + "\t" + fields[2];
+                StagedPart part = survivors.get(key);
+                // 只移除同一次暂存，较新的重传记录保留
+                if (part != null && part.sequence == Long.parseLong(fields[3])) {
+                    survivors.remove(key);
+                }
+            }
+        } catch (RuntimeException e) {
+            // 崩溃时写了一半的最后一行
+            log.warn("忽略无法解析的暂存日志行: {}", line);
+        }
+    }
+
+    private void deleteUnreferenced(Set<Path> referenced) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory.resolve(DATA_DIR))) {
+            List<Path> sorted = paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+            for (Path path : sorted) {
+                if (Files.isRegularFile(path) && !referenced.contains(path)) {
+                    Files.deleteIfExists(path);
+                } else if (Files.isDirectory(path) && !path.equals(directory.resolve(DATA_DIR))) {
+                    try (Stream<Path> children = Files.list(path)) {
+                        if (!children.findAny().isPresent()) {
+                            Files.deleteIfExists(path);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isNoSuchUpload(Exception e) {
+        return e instanceof AmazonServiceException
+                && (((AmazonServiceException) e).getStatusCode() == 404
+                || "NoSuchUpload".equals(((AmazonServiceException) e).getErrorCode()));
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 一次写入并落盘的日志行
+     */
+    private static final class JournalBatch {
+        private final List<String> lines = new ArrayList<>();
+        private boolean done;
+        private IOException failure;
+    }
+
+    /**
+     * 已落盘、等待写入S3的分片
+     */
+    private static final class StagedPart {
+        private final String uploadId;
+        private final int partNumber;
+        private final long sequence;
+        private final String md5;
+        private final long size;
+        private final String bucketName;
+        private final String objectKey;
+        private final Path file;
+        private final long stagedAt = System.currentTimeMillis();
+        /**
+         * 只在写入线程中读写，同一分片同一时刻只有一个写入任务
+         */
+        private volatile int attempts;
+
+        private StagedPart(String uploadId, int partNumber, long sequence, String md5, long size,
+                           String bucketName, String objectKey, Path file) {
+            this.uploadId = uploadId;
+            this.partNumber = partNumber;
+            this.sequence = sequence;
+            this.md5 = md5;
+            this.size = size;
+            this.bucketName = bucketName;
+            this.objectKey = objectKey;
+            this.file = file;
+        }
+
+        private String toJournalLine() {
+            return STAGED + "\t" + encode(uploadId) + "\t" + partNumber + "\t" + sequence + "\t" + md5 + "\t" + size
+                    + "\t" + encode(bucketName) + "\t" + encode(objectKey);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.zsq.awss3uploadapi.component;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 统计单分片上传请求的耗时，供 {@link ChunkSizeAdvisor} 推荐分片大小
+ * <p>
+ * 在过滤器中计时才能包含接收请求体（multipart解析）的时间，即客户端实际感受到的分片耗时。
+ * 只统计接口通过 {@link #markSucceeded(HttpServletRequest)} 标记为成功的请求：全局异常处理对S3异常同样返回200，
+ * 不能按状态码判断，否则快速失败的分片会被当作吞吐很高的样本
+ */
+public class PartUploadTimingFilter extends OncePerRequestFilter {
+
+    private static final String SUCCEEDED_ATTRIBUTE = PartUploadTimingFilter.class.getName() + ".SUCCEEDED";
+
+    private final ChunkSizeAdvisor chunkSizeAdvisor;
+
+    public PartUploadTimingFilter(ChunkSizeAdvisor chunkSizeAdvisor) {
+        this.chunkSizeAdvisor = chunkSizeAdvisor;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        filterChain.doFilter(request, response);
+        if (request.isAsyncStarted()) {
+            // 接口异步处理时过滤器返回后S3写入尚未完成，异步分派也不再经过本过滤器，等异步请求结束再计时
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    record(request, start);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            record(request, start);
+        }
+    }
+
+    /**
+     * 标记分片已成功写入，在分片上传的服务调用正常返回后调用
+     */
+    public static void markSucceeded(HttpServletRequest request) {
+        request.setAttribute(SUCCEEDED_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    private void record(HttpServletRequest request, long start) {
+        if (Boolean.TRUE.equals(request.getAttribute(SUCCEEDED_ATTRIBUTE))) {
+            chunkSizeAdvisor.record(ChunkSizeAdvisor.clientKey(request), request.getContentLengthLong(), System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.zsq.awss3uploadapi.component;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 记录S3请求的耗时与错误，按操作名（UploadPart、CompleteMultipartUpload 等）区分，注册到原生 AmazonS3 客户端上。
+ * 指标名 s3.requests，outcome 为 success/error，error 为S3错误码或异常类型；耗时包含SDK内部重试
+ */
+@Component
+public class S3RequestMetricsHandler extends RequestHandler2 {
+
+    private static final HandlerContextKey<Timer.Sample> SAMPLE = new HandlerContextKey<>("MetricsTimerSample");
+
+    private final MeterRegistry meterRegistry;
+
+    public S3RequestMetricsHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(SAMPLE, Timer.start(meterRegistry));
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        stop(request, "success", "none");
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        String error = e instanceof AmazonServiceException && ((AmazonServiceException) e).getErrorCode() != null
+                ? ((AmazonServiceException) e).getErrorCode() : e.getClass().getSimpleName();
+        stop(request, "error", error);
+    }
+
+    private void stop(Request<?> request, String outcome, String error) {
+        Timer.Sample sample = request.getHandlerContext(SAMPLE);
+        if (sample == null) {
+            return;
+        }
+        sample.stop(Timer.builder("s3.requests")
+                .description("S3请求耗时")
+                .tag("operation", operation(request))
+                .tag("outcome", outcome)
+                .tag("error", error)
+                .register(meterRegistry));
+    }
+
+    private static String operation(Request<?> request) {
+        if (request.getOriginalRequest() == null) {
+            return request.getHttpMethod().name();
+        }
+        String name = request.getOriginalRequest().getClass().getSimpleName();
+        return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+    }
+}
@@ -0,0 +1,61 @@
+package com.zsq.awss3uploadapi.component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 上传下载的业务指标
+ * <p>
+ * 各阶段耗时由服务方法上的 @Timed 记录（upload.phase），这里记录字节数和在途分片数：
+ * upload.bytes.in 为客户端上传的分片字节数，download.bytes.out 为代理下载写给客户端的字节数，
+ * 在Prometheus中取 rate() 即每秒字节数。uploadId 基数不可控，不作为标签，只按存储桶区分
+ */
+@Component
+public class UploadMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlightParts = new AtomicInteger();
+    private final Counter bytesOut;
+
+    public UploadMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("upload.parts.inflight", inFlightParts, AtomicInteger::get)
+                .description("正在接收或写入S3的分片数")
+                .register(meterRegistry);
+        this.bytesOut = Counter.builder("download.bytes.out")
+                .baseUnit("bytes")
+                .description("代理下载写给客户端的字节数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 开始处理一个分片，必须与 {@link #partFinished()} 成对调用
+     */
+    public void partStarted() {
+        inFlightParts.incrementAndGet();
+    }
+
+    public void partFinished() {
+        inFlightParts.decrementAndGet();
+    }
+
+    /**
+     * 记录客户端上传的分片字节数
+     */
+    public void bytesIn(String bucketName, long bytes) {
+        Counter.builder("upload.bytes.in")
+                .baseUnit("bytes")
+                .description("客户端上传的分片字节数")
+                .tag("bucket", bucketName == null ? "unknown" : bucketName)
+                .register(meterRegistry)
+                .increment(bytes);
+    }
+
+    public void bytesOut(long bytes) {
+        bytesOut.increment(bytes);
+    }
+}
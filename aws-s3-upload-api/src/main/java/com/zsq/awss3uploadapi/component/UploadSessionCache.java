@@ -0,0 +1,108 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.cache.impl.LRUCache;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.vo.CacheStatsVO;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 上传会话缓存
+ * <p>
+ * 同一个上传任务分别以 存储桶+file_identifier 和 uploadId 为键缓存，分片上传时只需按 uploadId 命中缓存即可拿到 objectKey，
+ * 不再每个分片查询一次 sys_upload_task。容量满时按LRU淘汰，写入超过ttl后过期。
+ * 缓存的任务对象被修改后（如合并完成更新状态）必须调用 {@link #invalidate(SysUploadTask)}
+ */
+@Component
+public class UploadSessionCache {
+
+    private final LRUCache<String, SysUploadTask> identifierCache;
+    private final LRUCache<String, SysUploadTask> uploadIdCache;
+
+    public UploadSessionCache(UploadProperties uploadProperties) {
+        UploadProperties.SessionCache properties = uploadProperties.getSessionCache();
+        this.identifierCache = new LRUCache<>(properties.getCapacity(), properties.getTtlSeconds() * 1000);
+        this.uploadIdCache = new LRUCache<>(properties.getCapacity(), properties.getTtlSeconds() * 1000);
+    }
+
+    /**
+     * 按存储桶与文件标识获取上传任务，未命中时通过loader加载并写入缓存
+     */
+    public SysUploadTask getByIdentifier(String bucketName, String identifier, Supplier<SysUploadTask> loader) {
+        // 不刷新访问时间，ttl按写入时间计算
+        SysUploadTask sysUploadTask = identifierCache.get(identifierKey(bucketName, identifier), false);
+        if (sysUploadTask == null) {
+            sysUploadTask = loader.get();
+            put(sysUploadTask);
+        }
+        return sysUploadTask;
+    }
+
+    /**
+     * 按uploadId获取上传任务，未命中时通过loader加载并写入缓存
+     */
+    public SysUploadTask getByUploadId(String uploadId, Supplier<SysUploadTask> loader) {
+        SysUploadTask sysUploadTask = uploadIdCache.get(uploadId, false);
+        if (sysUploadTask == null) {
+            sysUploadTask = loader.get();
+            put(sysUploadTask);
+        }
+        return sysUploadTask;
+    }
+
+    public void put(SysUploadTask sysUploadTask) {
+        if (sysUploadTask == null) {
+            return;
+        }
+        if (sysUploadTask.getFileIdentifier() != null) {
+            identifierCache.put(identifierKey(sysUploadTask.getBucketName(), sysUploadTask.getFileIdentifier()), sysUploadTask);
+        }
+        if (sysUploadTask.getUploadId() != null) {
+            uploadIdCache.put(sysUploadTask.getUploadId(), sysUploadTask);
+        }
+    }
+
+    public void invalidate(SysUploadTask sysUploadTask) {
+        if (sysUploadTask == null) {
+            return;
+        }
+        if (sysUploadTask.getFileIdentifier() != null) {
+            identifierCache.remove(identifierKey(sysUploadTask.getBucketName(), sysUploadTask.getFileIdentifier()));
+        }
+        if (sysUploadTask.getUploadId() != null) {
+            uploadIdCache.remove(sysUploadTask.getUploadId());
+        }
+    }
+
+    /**
+     * 同一文件可以分别存在于多个存储桶，文件标识缓存按存储桶区分
+     */
+    private static String identifierKey(String bucketName, String identifier) {
+        return bucketName + "/" + identifier;
+    }
+
+    /**
+     * 缓存命中统计
+     */
+    public List<CacheStatsVO> stats() {
+        return Arrays.asList(toStats("identifier", identifierCache), toStats("uploadId", uploadIdCache));
+    }
+
+    private static CacheStatsVO toStats(String name, LRUCache<String, SysUploadTask> cache) {
+        long hitCount = cache.getHitCount();
+        long missCount = cache.getMissCount();
+        long requestCount = hitCount + missCount;
+        return CacheStatsVO.builder()
+                .name(name)
+                .size(cache.size())
+                .capacity(cache.capacity())
+                .hitCount(hitCount)
+                .missCount(missCount)
+                .hitRate(requestCount == 0 ? 0D : (double) hitCount / requestCount)
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.zsq.awss3uploadapi.component;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个任务一个虚拟线程的执行器，用信号量限制同时运行的任务数，超过上限时拒绝
+ * <p>
+ * 项目以 Java 8 编译，虚拟线程API（JDK 21）通过反射获取，运行在低版本JDK上时 {@link #createIfSupported} 返回null
+ */
+@Slf4j
+public class VirtualThreadTaskExecutor implements AsyncTaskExecutor, DisposableBean {
+
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private final ThreadFactory threadFactory;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+
+    private VirtualThreadTaskExecutor(ThreadFactory threadFactory, int maxConcurrency) {
+        this.threadFactory = threadFactory;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * 当前JDK支持虚拟线程时创建执行器，否则返回null
+     * @param threadNamePrefix 线程名前缀，后接递增序号
+     * @param maxConcurrency   同时运行的任务数上限
+     */
+    public static VirtualThreadTaskExecutor createIfSupported(String threadNamePrefix, int maxConcurrency) {
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory()
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, threadNamePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return new VirtualThreadTaskExecutor(threadFactory, Math.max(1, maxConcurrency));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("当前JDK不支持虚拟线程: {}", System.getProperty("java.version"), e);
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            throw new TaskRejectedException("虚拟线程执行器已达并发上限: " + maxConcurrency);
+        }
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            }).start();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw new TaskRejectedException("创建虚拟线程失败", e);
+        }
+    }
+
+    @Override
+    @Deprecated
+    public void execute(Runnable task, long startTimeout) {
+        execute(task);
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * 正在运行的任务数
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * 关闭时等待运行中的任务结束，最多等待 {@link #SHUTDOWN_WAIT_SECONDS} 秒
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (permits.tryAcquire(maxConcurrency, SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+            permits.release(maxConcurrency);
+        } else {
+            log.warn("等待虚拟线程任务结束超时，仍在运行: {}", getActiveCount());
+        }
+    }
+}
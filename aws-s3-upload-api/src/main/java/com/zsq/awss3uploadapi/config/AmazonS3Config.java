@@ -0,0 +1,44 @@
+package com.zsq.awss3uploadapi.config;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.zsq.awss3uploadapi.component.S3RequestMetricsHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * 原生 S3 客户端配置
+ * <p>
+ * AmazonS3Template 只提供基于 MultipartFile 的上传方法，流式上传、分页列举分片等能力需要直接使用 SDK 客户端，
+ * 这里复用 winter-aws 的连接配置创建一个与 AmazonS3Template 指向同一个存储的客户端，并记录每个S3请求的耗时与错误
+ */
+@Configuration
+public class AmazonS3Config {
+
+    @Bean(destroyMethod = "shutdown")
+    @Primary
+    public AmazonS3 uploadAmazonS3(@Value("${winter-aws.endpoint}") String endpoint,
+                                   @Value("${winter-aws.access-key}") String accessKey,
+                                   @Value("${winter-aws.secret-key}") String secretKey,
+                                   @Value("${winter-aws.region}") String region,
+                                   @Value("${winter-aws.path-style-access:true}") boolean pathStyleAccess,
+                                   @Value("${winter-aws.max-connections:200}") int maxConnections,
+                                   S3RequestMetricsHandler s3RequestMetricsHandler) {
+        ClientConfiguration clientConfiguration = new ClientConfiguration();
+        // 分片并发上传时每个分片占用一个连接，默认的50个连接在高并发下会排队
+        clientConfiguration.setMaxConnections(maxConnections);
+        return AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(endpoint, region))
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey)))
+                .withPathStyleAccessEnabled(pathStyleAccess)
+                .withClientConfiguration(clientConfiguration)
+                .withRequestHandlers(s3RequestMetricsHandler)
+                .build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.zsq.awss3uploadapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 异步执行器配置
+ * <p>
+ * 容器中有多个线程池时 @EnableAsync 找不到默认执行器，会退回每个任务新建一个线程的 SimpleAsyncTaskExecutor，
+ * Spring MVC 处理 Callable 返回值时同样如此；这里统一指定为有界的 s3RequestExecutor。
+ * 异步请求超时由 spring.mvc.async.request-timeout 配置
+ */
+@Slf4j
+@Configuration
+public class AsyncConfig implements AsyncConfigurer, WebMvcConfigurer {
+
+    private final AsyncTaskExecutor s3RequestExecutor;
+
+    public AsyncConfig(@Qualifier("s3RequestExecutor") @Lazy AsyncTaskExecutor s3RequestExecutor) {
+        this.s3RequestExecutor = s3RequestExecutor;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return s3RequestExecutor;
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (e, method, params) -> log.error("异步任务执行失败: {}", method.getName(), e);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(s3RequestExecutor);
+    }
+}
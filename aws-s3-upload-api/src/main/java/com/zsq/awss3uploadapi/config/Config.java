@@ -15,14 +15,21 @@ import com.fasterxml.jackson.datatype.jsr310.deser.LocalTimeDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalTimeSerializer;
+import com.zsq.awss3uploadapi.component.ChunkSizeAdvisor;
+import com.zsq.awss3uploadapi.component.PartUploadTimingFilter;
+import com.zsq.awss3uploadapi.component.VirtualThreadTaskExecutor;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.time.LocalDate;
@@ -33,6 +40,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 
+@Slf4j
 @EnableAsync
 @Configuration
 @EnableConfigurationProperties
@@ -51,6 +59,92 @@ public class Config implements WebMvcConfigurer {
     }
 
 
+    /**
+     * 服务端向S3并发传输分片的有界线程池，队列满时直接拒绝，避免无限堆积
+     */
+    @Bean(name = "s3TransferExecutor")
+    public ThreadPoolTaskExecutor s3TransferExecutor(UploadProperties uploadProperties) {
+        UploadProperties.TransferExecutor properties = uploadProperties.getTransferExecutor();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("s3-transfer-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 并发分段下载的有界线程池，队列满时拒绝，由请求线程自己读取该分段
+     */
+    @Bean(name = "s3DownloadExecutor")
+    public ThreadPoolTaskExecutor s3DownloadExecutor(UploadProperties uploadProperties) {
+        UploadProperties.TransferExecutor properties = uploadProperties.getDownload().getExecutor();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("s3-download-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 访问S3的接口（单文件上传、分片上传、合并）的请求处理线程池，容器线程收完请求体后即释放，
+     * 等待S3的时间占用这里的线程；开启虚拟线程且JDK支持时每个请求一个虚拟线程，否则为有界平台线程池，
+     * 两种方式饱和时都拒绝任务，由全局异常处理返回 503
+     */
+    @Bean(name = "s3RequestExecutor")
+    public AsyncTaskExecutor s3RequestExecutor(UploadProperties uploadProperties) {
+        UploadProperties.AsyncRequest asyncRequest = uploadProperties.getAsyncRequest();
+        if (asyncRequest.isVirtualThreads()) {
+            VirtualThreadTaskExecutor virtualThreadTaskExecutor = VirtualThreadTaskExecutor.createIfSupported("s3-request-", asyncRequest.getMaxConcurrency());
+            if (virtualThreadTaskExecutor != null) {
+                return virtualThreadTaskExecutor;
+            }
+            log.warn("当前JDK {} 不支持虚拟线程，S3请求改用平台线程池", System.getProperty("java.version"));
+        }
+        UploadProperties.TransferExecutor properties = asyncRequest.getExecutor();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("s3-request-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * 单分片上传接口的计时过滤器，为分片大小推荐提供吞吐样本
+     */
+    @Bean
+    public FilterRegistrationBean<PartUploadTimingFilter> partUploadTimingFilter(ChunkSizeAdvisor chunkSizeAdvisor) {
+        FilterRegistrationBean<PartUploadTimingFilter> registration = new FilterRegistrationBean<>(new PartUploadTimingFilter(chunkSizeAdvisor));
+        registration.addUrlPatterns("/bunUpload/multipart/uploadPart", "/bunUpload/multipart/uploadPart/stream", "/bunUpload/multipart/uploadPart/nio");
+        return registration;
+    }
+
+    /**
+     * 跨存储桶复制作业线程池，作业线程只负责编排，分片复制仍提交到 s3TransferExecutor，
+     * 两者分开避免编排线程占满传输线程池后互相等待
+     */
+    @Bean(name = "crossBucketCopyExecutor")
+    public ThreadPoolTaskExecutor crossBucketCopyExecutor(UploadProperties uploadProperties) {
+        UploadProperties.CrossBucket properties = uploadProperties.getCrossBucket();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getMaxConcurrentJobs());
+        executor.setMaxPoolSize(properties.getMaxConcurrentJobs());
+        executor.setQueueCapacity(properties.getJobQueueCapacity());
+        executor.setThreadNamePrefix("cross-bucket-copy-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+
     @Bean
     public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter() {
         // 创建并配置 ObjectMapper
@@ -0,0 +1,52 @@
+package com.zsq.awss3uploadapi.config;
+
+import com.zsq.awss3uploadapi.component.ChunkWriteBehindBuffer;
+import com.zsq.awss3uploadapi.component.PartStagingArea;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 指标配置
+ * <p>
+ * 指标通过 /actuator/prometheus 暴露。各有界线程池（s3TransferExecutor、s3DownloadExecutor、crossBucketCopyExecutor、s3RequestExecutor）
+ * 的活跃线程数与队列长度由 Spring Boot 自动注册为 executor.* 指标，按 name 标签区分
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 使服务方法上的 @Timed 生效
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * 写后缓冲与本地暂存区的积压
+     * <p>
+     * MeterRegistry 创建时就会绑定这里的指标，而写后缓冲、暂存区依赖 Mapper 和 S3 客户端，它们的拦截器又依赖 MeterRegistry，
+     * 所以组件在读取指标时才获取，避免循环依赖
+     */
+    @Bean
+    public MeterBinder uploadBacklogMetrics(ObjectProvider<ChunkWriteBehindBuffer> chunkWriteBehindBuffer,
+                                            ObjectProvider<PartStagingArea> partStagingArea) {
+        return registry -> {
+            Gauge.builder("upload.chunk.writebehind.pending", () -> chunkWriteBehindBuffer.getObject().stats().getPending())
+                    .description("等待写入数据库的分片记录数")
+                    .register(registry);
+            Gauge.builder("upload.staging.pending.parts", () -> partStagingArea.getObject().stats().getPendingParts())
+                    .description("已暂存、等待写入S3的分片数")
+                    .register(registry);
+            Gauge.builder("upload.staging.pending.bytes", () -> partStagingArea.getObject().stats().getPendingBytes())
+                    .description("已暂存、等待写入S3的字节数")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,450 @@
+package com.zsq.awss3uploadapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 上传相关的可调参数，对应配置文件中的 upload 前缀
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload")
+public class UploadProperties {
+
+    /**
+     * 预签名直传配置
+     */
+    private Presign presign = new Presign();
+
+    /**
+     * 单文件上传（/singleUpload）配置
+     */
+    private SingleUpload singleUpload = new SingleUpload();
+
+    /**
+     * 服务端向S3并发传输分片使用的线程池配置
+     */
+    private TransferExecutor transferExecutor = new TransferExecutor();
+
+    /**
+     * 上传会话缓存配置
+     */
+    private SessionCache sessionCache = new SessionCache();
+
+    /**
+     * 文件标识布隆过滤器配置
+     */
+    private BloomFilter bloomFilter = new BloomFilter();
+
+    /**
+     * 分片记录写后缓冲配置
+     */
+    private ChunkWriteBehind chunkWriteBehind = new ChunkWriteBehind();
+
+    /**
+     * 批量分片上传配置
+     */
+    private BatchPart batchPart = new BatchPart();
+
+    /**
+     * 批量删除配置
+     */
+    private BatchDelete batchDelete = new BatchDelete();
+
+    /**
+     * 过期分片上传清理配置
+     */
+    private Reaper reaper = new Reaper();
+
+    /**
+     * 增量上传配置
+     */
+    private Delta delta = new Delta();
+
+    /**
+     * 跨存储桶秒传配置
+     */
+    private CrossBucket crossBucket = new CrossBucket();
+
+    /**
+     * 代理下载配置
+     */
+    private Download download = new Download();
+
+    /**
+     * 分片本地暂存配置
+     */
+    private Staging staging = new Staging();
+
+    /**
+     * 分片大小推荐配置
+     */
+    private ChunkPlan chunkPlan = new ChunkPlan();
+
+    /**
+     * 访问S3的接口（单文件上传、分片上传、合并）的异步处理配置
+     */
+    private AsyncRequest asyncRequest = new AsyncRequest();
+
+    /**
+     * 非阻塞分片接收配置（/multipart/uploadPart/nio）
+     */
+    private NonBlockingPart nonBlockingPart = new NonBlockingPart();
+
+    @Data
+    public static class Presign {
+        /**
+         * 预签名URL有效期（秒）
+         */
+        private long expireSeconds = 3600;
+        /**
+         * 单次请求最多签发的分片URL数量
+         */
+        private int maxPartsPerRequest = 1000;
+    }
+
+    @Data
+    public static class SingleUpload {
+        /**
+         * 文件大小超过该值（字节）时改为服务端并发分片上传
+         */
+        private long multipartThreshold = 64L * 1024 * 1024;
+        /**
+         * 服务端分片大小（字节），S3要求除最后一片外不小于5MB
+         */
+        private long partSize = 16L * 1024 * 1024;
+        /**
+         * 单个文件同时在传的分片数
+         */
+        private int concurrency = 4;
+    }
+
+    @Data
+    public static class TransferExecutor {
+        /**
+         * 核心线程数
+         */
+        private int corePoolSize = 16;
+        /**
+         * 最大线程数
+         */
+        private int maxPoolSize = 32;
+        /**
+         * 等待队列长度，队列满且线程数达到上限后拒绝新任务
+         */
+        private int queueCapacity = 256;
+    }
+
+    @Data
+    public static class SessionCache {
+        /**
+         * 每个缓存（按文件标识、按uploadId）的最大条目数
+         */
+        private int capacity = 10000;
+        /**
+         * 写入后多少秒过期
+         */
+        private long ttlSeconds = 1800;
+    }
+
+    @Data
+    public static class BloomFilter {
+        /**
+         * 是否启用，关闭后秒传检查始终查询数据库
+         */
+        private boolean enabled = true;
+        /**
+         * 设计容量，实际按max(设计容量, 表行数*1.5)分配位图
+         */
+        private long expectedInsertions = 1_000_000;
+        /**
+         * 目标误判率
+         */
+        private double fpp = 0.01;
+        /**
+         * 定时重建间隔（分钟），用于感知其它节点新增的标识，0表示不定时重建
+         */
+        private long rebuildIntervalMinutes = 60;
+        /**
+         * 已删除标识占写入数的比例超过该值时触发重建
+         */
+        private double rebuildStaleRatio = 0.2;
+    }
+
+    @Data
+    public static class ChunkWriteBehind {
+        /**
+         * 是否启用，关闭后每个分片同步写一次库
+         */
+        private boolean enabled = true;
+        /**
+         * 每批最多写入的记录数
+         */
+        private int batchSize = 500;
+        /**
+         * 定时刷盘间隔（毫秒）
+         */
+        private long flushIntervalMillis = 200;
+        /**
+         * 积压记录数上限，达到上限时上传线程等待刷盘腾出空间
+         */
+        private int maxPending = 20000;
+        /**
+         * 积压已满时上传线程最多等待的时间（毫秒），超时后该分片记录失败
+         */
+        private long pendingWaitMillis = 5000;
+    }
+
+    @Data
+    public static class BatchPart {
+        /**
+         * 单次请求最多携带的分片数
+         */
+        private int maxPartsPerRequest = 16;
+    }
+
+    @Data
+    public static class BatchDelete {
+        /**
+         * 单次请求最多删除的文件数（按条件删除时同样生效）
+         */
+        private int maxItemsPerRequest = 100000;
+        /**
+         * 每批处理的文件数，S3单次DeleteObjects最多1000个key
+         */
+        private int batchSize = 1000;
+    }
+
+    @Data
+    public static class Reaper {
+        /**
+         * 是否启用
+         */
+        private boolean enabled = true;
+        /**
+         * 上传任务创建后超过该时长且期间没有新分片时视为放弃（小时）
+         */
+        private long ttlHours = 24;
+        /**
+         * 两次清理之间的间隔（分钟）
+         */
+        private long intervalMinutes = 10;
+        /**
+         * 每批扫描的任务数
+         */
+        private int scanBatchSize = 200;
+        /**
+         * 单次清理最多处理的任务数，剩余的下次从断点继续
+         */
+        private int maxTasksPerRun = 2000;
+        /**
+         * 每批之间的停顿（毫秒），限制对数据库和S3的压力
+         */
+        private long batchPauseMillis = 500;
+        /**
+         * 并发中止分片上传的线程数，使用独立线程池，不占用前台上传的线程
+         */
+        private int abortConcurrency = 4;
+    }
+
+    @Data
+    public static class Delta {
+        /**
+         * 同时进行的服务端分片复制数
+         */
+        private int copyConcurrency = 8;
+    }
+
+    @Data
+    public static class CrossBucket {
+        /**
+         * 当前存储桶没有、其它存储桶已有相同文件时，是否在服务端复制过来
+         */
+        private boolean enabled = true;
+        /**
+         * 文件大小超过该值（字节）时改为并发 UploadPartCopy，否则一次 CopyObject
+         */
+        private long multipartThreshold = 104857600L;
+        /**
+         * 并发复制时每个分片的大小（字节），分片数超过10000时自动调大
+         */
+        private long partSize = 67108864L;
+        /**
+         * 单个复制作业同时进行的分片复制数
+         */
+        private int partConcurrency = 8;
+        /**
+         * 同时运行的复制作业数
+         */
+        private int maxConcurrentJobs = 4;
+        /**
+         * 等待执行的复制作业上限，超过后直接按未上传处理
+         */
+        private int jobQueueCapacity = 100;
+        /**
+         * 复制作业结束后保留进度的时间（分钟）
+         */
+        private long jobRetentionMinutes = 30;
+    }
+
+    @Data
+    public static class Download {
+        /**
+         * 从S3读取并写出响应时使用的缓冲区大小（字节），每个下载请求只占用这一块内存
+         */
+        private int bufferSize = 65536;
+        /**
+         * 单个请求最多接受的Range段数，超过时按整个文件返回
+         */
+        private int maxRanges = 16;
+        /**
+         * 是否对大范围下载启用并发分段读取
+         */
+        private boolean parallelEnabled = true;
+        /**
+         * 单段下载范围超过该值（字节）时并发分段读取，否则一个 GetObject 顺序读取
+         */
+        private long parallelThreshold = 67108864L;
+        /**
+         * 每个请求同时读取的分段数，也是按序写出前最多缓存的分段数
+         */
+        private int parallelism = 4;
+        /**
+         * 分段大小上限（字节），分段默认取文件的分片大小，超过上限时取上限；单个请求最多占用 parallelism * 分段大小 的内存
+         */
+        private long maxSegmentSize = 16777216L;
+        /**
+         * 所有请求的分段缓冲区合计上限（字节），新的大范围下载超出时退回一个 GetObject 顺序读取
+         */
+        private long parallelBufferBudget = 268435456L;
+        /**
+         * 分段读取使用的线程池，与上传传输线程池分开，下载不会占满上传的线程
+         */
+        private TransferExecutor executor = new TransferExecutor();
+    }
+
+    @Data
+    public static class Staging {
+        /**
+         * 是否启用，启用后分片写入本地暂存文件即返回，由后台写入S3
+         */
+        private boolean enabled = false;
+        /**
+         * 暂存目录，存放分片文件与日志
+         */
+        private String directory = System.getProperty("java.io.tmpdir") + "/aws-s3-upload-staging";
+        /**
+         * 暂存的分片总字节数上限，超过时新分片直接上传S3
+         */
+        private long maxStagedBytes = 10737418240L;
+        /**
+         * 同时写入S3的分片数
+         */
+        private int drainConcurrency = 4;
+        /**
+         * 单个分片写入S3的最大尝试次数，全部失败后丢弃，由客户端按缺失分片重传
+         */
+        private int maxAttempts = 5;
+        /**
+         * 首次重试的等待时间（毫秒），之后每次翻倍
+         */
+        private long retryBackoffMillis = 1000;
+        /**
+         * 合并时等待该上传的暂存分片全部写入S3的最长时间（秒）
+         */
+        private long mergeWaitSeconds = 120;
+        /**
+         * 运行中累计多少条完成日志后压缩暂存日志，只保留未写入S3的分片
+         */
+        private int journalCompactLines = 10000;
+    }
+
+    @Data
+    public static class ChunkPlan {
+        /**
+         * 推荐的分片大小，文件过大导致分片数超过S3上限时取它的2的幂倍
+         */
+        private long defaultChunkSize = 20971520;
+        /**
+         * 推荐分片大小下限，不低于S3要求的5MB
+         */
+        private long minChunkSize = 5242880;
+        /**
+         * 推荐分片大小上限，不高于S3允许的5GB
+         */
+        private long maxChunkSize = 536870912;
+        /**
+         * 按客户端吞吐推荐并发数时，单个分片期望的上传耗时（秒）
+         */
+        private double targetPartSeconds = 5;
+        /**
+         * 没有该客户端的吞吐样本时推荐的上传并发数
+         */
+        private int defaultConcurrency = 3;
+        /**
+         * 推荐上传并发数下限
+         */
+        private int minConcurrency = 1;
+        /**
+         * 推荐上传并发数上限
+         */
+        private int maxConcurrency = 8;
+        /**
+         * 吞吐与耗时指数加权平均的平滑系数，越大越偏向最近的分片
+         */
+        private double ewmaAlpha = 0.3;
+        /**
+         * 客户端至少有多少个分片样本才按吞吐推荐并发数
+         */
+        private int minSamples = 3;
+        /**
+         * 最多跟踪的客户端数，超过时按LRU淘汰
+         */
+        private int clientCapacity = 10000;
+        /**
+         * 客户端吞吐样本的保留时间（分钟），网络环境变化后不再沿用旧样本
+         */
+        private long clientTtlMinutes = 60;
+    }
+
+    @Data
+    public static class AsyncRequest {
+        /**
+         * 线程池已满拒绝请求时，响应头 Retry-After 建议客户端等待的秒数
+         */
+        private int retryAfterSeconds = 2;
+        /**
+         * 是否使用虚拟线程处理请求，需要 JDK 21 及以上，低版本JDK退回平台线程池
+         */
+        private boolean virtualThreads = false;
+        /**
+         * 虚拟线程模式下同时处理的请求数上限，超过时拒绝
+         */
+        private int maxConcurrency = 1000;
+        /**
+         * 平台线程池配置，请求在等待S3期间占用其中一个线程
+         */
+        private TransferExecutor executor = new TransferExecutor();
+    }
+
+    @Data
+    public static class NonBlockingPart {
+        /**
+         * 分片请求体的落盘目录，请求体收完后再从这里读出写入S3（或暂存区）
+         */
+        private String spoolDirectory = System.getProperty("java.io.tmpdir") + "/aws-s3-upload-spool";
+        /**
+         * 每次从连接读取的缓冲区大小（字节），缓冲区按容器线程复用，不随连接数增长
+         */
+        private int bufferSize = 16384;
+        /**
+         * 单个分片从开始接收到写入S3完成的最长时间（秒），慢速移动网络下应足够接收一个完整分片
+         */
+        private long receiveTimeoutSeconds = 1800;
+        /**
+         * 单个分片大小上限（字节），S3单片不大于5GB
+         */
+        private long maxPartSize = 5368709120L;
+    }
+}
@@ -0,0 +1,101 @@
+package com.zsq.awss3uploadapi.controller;
+
+import com.zsq.awss3uploadapi.component.AbandonedUploadReaper;
+import com.zsq.awss3uploadapi.component.ChunkWriteBehindBuffer;
+import com.zsq.awss3uploadapi.component.FileIdentifierBloomFilter;
+import com.zsq.awss3uploadapi.component.PartStagingArea;
+import com.zsq.awss3uploadapi.component.UploadSessionCache;
+import com.zsq.awss3uploadapi.entity.Result;
+import com.zsq.awss3uploadapi.entity.vo.BloomFilterStatsVO;
+import com.zsq.awss3uploadapi.entity.vo.CacheStatsVO;
+import com.zsq.awss3uploadapi.entity.vo.ReaperStatsVO;
+import com.zsq.awss3uploadapi.entity.vo.StagingStatsVO;
+import com.zsq.awss3uploadapi.entity.vo.WriteBehindStatsVO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/bunUpload/stats")
+public class StatsController {
+    final UploadSessionCache uploadSessionCache;
+    final FileIdentifierBloomFilter fileIdentifierBloomFilter;
+    final ChunkWriteBehindBuffer chunkWriteBehindBuffer;
+    final AbandonedUploadReaper abandonedUploadReaper;
+    final PartStagingArea partStagingArea;
+
+    /**
+     * 上传会话缓存命中统计
+     *
+     * @return 按文件标识、按uploadId两个缓存的统计
+     */
+    @GetMapping("/session-cache")
+    public Result<List<CacheStatsVO>> sessionCacheStats() {
+        return Result.ok(uploadSessionCache.stats());
+    }
+
+    /**
+     * 文件标识布隆过滤器统计，包括位图大小、估算误判率和上次重建耗时
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/bloom-filter")
+    public Result<BloomFilterStatsVO> bloomFilterStats() {
+        return Result.ok(fileIdentifierBloomFilter.stats());
+    }
+
+    /**
+     * 在后台重建文件标识布隆过滤器
+     *
+     * @return 提交结果
+     */
+    @PostMapping("/bloom-filter/rebuild")
+    public Result<String> rebuildBloomFilter() {
+        fileIdentifierBloomFilter.requestRebuild();
+        return Result.build("已提交重建", 200, "已提交重建");
+    }
+
+    /**
+     * 分片记录写后缓冲统计，flushedRows/flushedBatches 即每次提交平均写入的行数
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/chunk-write-behind")
+    public Result<WriteBehindStatsVO> chunkWriteBehindStats() {
+        return Result.ok(chunkWriteBehindBuffer.stats());
+    }
+
+    /**
+     * 过期分片上传清理统计，包括累计清理的任务数、分片记录数和释放的字节数
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/reaper")
+    public Result<ReaperStatsVO> reaperStats() {
+        return Result.ok(abandonedUploadReaper.stats());
+    }
+
+    /**
+     * 立即在后台执行一次过期分片上传清理
+     *
+     * @return 提交结果
+     */
+    @PostMapping("/reaper/run")
+    public Result<String> runReaper() {
+        abandonedUploadReaper.requestRun();
+        return Result.build("已提交清理", 200, "已提交清理");
+    }
+
+    /**
+     * 分片本地暂存统计，oldestPendingMillis 即后台写入S3的积压延迟
+     *
+     * @return 统计信息
+     */
+    @GetMapping("/staging")
+    public Result<StagingStatsVO> stagingStats() {
+        return Result.ok(partStagingArea.stats());
+    }
+}
@@ -3,47 +3,83 @@ package com.zsq.awss3uploadapi.controller;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 
+import com.zsq.awss3uploadapi.component.AsyncRequestDispatcher;
+import com.zsq.awss3uploadapi.component.ChunkSizeAdvisor;
+import com.zsq.awss3uploadapi.component.NonBlockingPartReceiver;
+import com.zsq.awss3uploadapi.component.PartUploadTimingFilter;
 import com.zsq.awss3uploadapi.entity.Result;
+import com.zsq.awss3uploadapi.entity.dto.BatchDeleteParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.DeltaInitParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.FileExportQueryDTO;
+import com.zsq.awss3uploadapi.entity.dto.FilePageQueryDTO;
 import com.zsq.awss3uploadapi.entity.dto.InitTaskParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.PresignPartParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.ReportPartParamDTO;
+import com.zsq.awss3uploadapi.entity.vo.BatchDeleteResultVO;
+import com.zsq.awss3uploadapi.entity.vo.CopyJobVO;
+import com.zsq.awss3uploadapi.entity.vo.CursorPageVO;
+import com.zsq.awss3uploadapi.entity.vo.DeltaInitVO;
 import com.zsq.awss3uploadapi.entity.vo.FileListVO;
+import com.zsq.awss3uploadapi.entity.vo.PartUploadResultVO;
+import com.zsq.awss3uploadapi.entity.vo.PresignedPartVO;
 import com.zsq.awss3uploadapi.entity.vo.TaskInfoVO;
+import com.zsq.awss3uploadapi.entity.vo.UploadPlanVO;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import com.zsq.awss3uploadapi.service.IBatchDeleteService;
+import com.zsq.awss3uploadapi.service.IFileDownloadService;
+import com.zsq.awss3uploadapi.service.IParallelUploadService;
 import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
 import com.zsq.winter.minio.service.AmazonS3Template;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-@CrossOrigin
+@CrossOrigin(exposedHeaders = HttpHeaders.RETRY_AFTER)
 @RequiredArgsConstructor
 @RestController
 @RequestMapping("/bunUpload")
 public class UploadController {
+    final IBatchDeleteService iBatchDeleteService;
+    final IFileDownloadService iFileDownloadService;
     final AmazonS3Template amazonS3Template;
     final ISysUploadTaskService iSysUploadTaskService;
+    final IParallelUploadService iParallelUploadService;
+    final AsyncRequestDispatcher asyncRequestDispatcher;
+    final NonBlockingPartReceiver nonBlockingPartReceiver;
 
     /**
-     * 单文件上传
+     * 单文件上传，超过 upload.single-upload.multipart-threshold 的文件在服务端拆分片并发上传；
+     * 写入S3在 s3RequestExecutor 中进行，线程池已满时返回 503
      *
      * @param file 文件
      * @return 文件上传结果
      */
     @PostMapping("/singleUpload")
-    public Result<?> uploadFiles(@RequestParam("file") MultipartFile file) throws IOException {
+    public CompletableFuture<Result<?>> uploadFiles(@RequestParam("file") MultipartFile file) {
         String fileName = file.getOriginalFilename();
         LocalDateTime now = LocalDateTime.now();
 
         String suffix = fileName.substring(fileName.lastIndexOf(".") + 1);
         // 文件名称
         String key = StrUtil.format("{}/zsqyyds/{}.{}", now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd")), IdUtil.randomUUID(), suffix);
-        amazonS3Template.putObject(key, file, null);
-        String gatewayUrl = amazonS3Template.getGatewayUrl(key);
-        return Result.build(gatewayUrl, 200, "");
+        return asyncRequestDispatcher.submit("singleUpload", () -> {
+            iParallelUploadService.putObject(key, file);
+            String gatewayUrl = amazonS3Template.getGatewayUrl(key);
+            return Result.build(gatewayUrl, 200, "");
+        });
     }
 
 
@@ -59,41 +95,188 @@ public class UploadController {
         return Result.ok(iSysUploadTaskService.checkFileByMd5(md5));
     }
 
+    /**
+     * 查询跨存储桶复制进度，检查或初始化接口返回2004（服务端复制中）时轮询该接口
+     *
+     * @param md5 文件MD5
+     * @return 复制作业进度
+     */
+    @GetMapping("/multipart/copy/{md5}")
+    public Result<CopyJobVO> getCopyProgress(@PathVariable("md5") String md5) {
+        CopyJobVO copyJobVO = iSysUploadTaskService.getCopyProgress(md5);
+        if (copyJobVO == null) {
+            return Result.fail(ResultCodeEnum.DATA_ERROR.getCode(), "复制作业不存在");
+        }
+        return Result.ok(copyJobVO);
+    }
+
+    /**
+     * 推荐分片大小：按文件大小、S3分片数上限和该客户端最近的分片上传吞吐给出分片大小与分片数量，
+     * 文件标识由分片MD5计算，因此需要在切片之前调用，初始化时按推荐值传入 chunkSize 与 chunkNum
+     *
+     * @param totalSize 文件大小（byte）
+     * @param request   请求
+     * @return 推荐的分片划分
+     */
+    @GetMapping("/multipart/plan")
+    public Result<UploadPlanVO> planUpload(@RequestParam long totalSize, HttpServletRequest request) {
+        return Result.ok(iSysUploadTaskService.planUpload(totalSize, ChunkSizeAdvisor.clientKey(request)));
+    }
+
     /**
      * 创建一个上传任务,前端需要根据checkFileByMd5函数有没有返回uploadId信息来判断需不需要调用/multipart/init该接口,没有uploadId则调用该接口
      *
      * @param initTaskParamDTO
-     * @return
+     * @return 上传ID；相同文件已上传完成时 code 为 2001、data 为文件地址，复制中为 2004，已失败为 5001
      */
 
     @PostMapping("/multipart/init")
     public Result<String> initMultiPartFile(@Valid @RequestBody InitTaskParamDTO initTaskParamDTO) {
-        return Result.ok(iSysUploadTaskService.initMultiPartFile(initTaskParamDTO));
+        TaskInfoVO taskInfoVO = iSysUploadTaskService.initMultiPartFile(initTaskParamDTO);
+        Integer code = taskInfoVO.getCode();
+        if (ResultCodeEnum.UPLOAD_SUCCESS.getCode().equals(code)) {
+            // 相同文件已上传完成，返回文件地址，客户端按秒传处理
+            return Result.build(taskInfoVO.getUrl(), ResultCodeEnum.UPLOAD_SUCCESS);
+        }
+        if (ResultCodeEnum.COPYING.getCode().equals(code)) {
+            return Result.build("", ResultCodeEnum.COPYING);
+        }
+        if (ResultCodeEnum.UPLOAD_FILE_FAILED.getCode().equals(code)) {
+            return Result.build("", ResultCodeEnum.UPLOAD_FILE_FAILED);
+        }
+        return Result.ok(taskInfoVO.getUploadId());
+    }
+
+    /**
+     * 增量上传初始化：携带每个分片的MD5，服务端把已有文件中相同的分片直接复制到新对象，
+     * 返回的reusedParts无需再上传
+     *
+     * @param deltaInitParamDTO 文件信息与分片MD5
+     * @return 上传ID与已就绪的分片
+     */
+    @PostMapping("/multipart/initDelta")
+    public Result<DeltaInitVO> initDeltaUpload(@Valid @RequestBody DeltaInitParamDTO deltaInitParamDTO) {
+        return Result.ok(iSysUploadTaskService.initDeltaUpload(deltaInitParamDTO));
     }
 
     /**
-     * 上传分片
+     * 上传分片，写入S3在 s3RequestExecutor 中进行，线程池已满时返回 503
      *
      * @param file      文件
      * @param uploadId  上传ID
      * @param partNumber 分片编号
+     * @param md5       分片MD5（可选），传入时服务端校验分片内容
+     * @param request   请求
      * @return 上传结果
      */
     @PostMapping("/multipart/uploadPart")
-    public Result<?> uploadPart(@RequestParam(value = "file") MultipartFile file
-            , @RequestParam String uploadId, @RequestParam int partNumber) throws Exception {
-        return Result.ok(iSysUploadTaskService.uploadPart(file, uploadId, partNumber));
+    public CompletableFuture<Result<?>> uploadPart(@RequestParam(value = "file") MultipartFile file
+            , @RequestParam String uploadId, @RequestParam int partNumber
+            , @RequestParam(required = false) String md5, HttpServletRequest request) {
+        return asyncRequestDispatcher.submit("uploadPart", () -> {
+            boolean result = iSysUploadTaskService.uploadPart(file, uploadId, partNumber, md5);
+            PartUploadTimingFilter.markSucceeded(request);
+            return Result.ok(result);
+        });
+    }
+
+    /**
+     * 批量上传分片，一次请求携带同一个uploadId的多个分片，服务端并发上传到S3；
+     * 在 s3RequestExecutor 中执行，线程池已满时返回 503
+     *
+     * @param files       分片文件
+     * @param partNumbers 与files顺序一一对应的分片编号
+     * @param uploadId    上传ID
+     * @param md5s        与files顺序一一对应的分片MD5（可选）
+     * @return 每个分片的上传结果
+     */
+    @PostMapping("/multipart/uploadParts")
+    public CompletableFuture<Result<List<PartUploadResultVO>>> uploadParts(@RequestParam("files") List<MultipartFile> files
+            , @RequestParam("partNumbers") List<Integer> partNumbers, @RequestParam String uploadId
+            , @RequestParam(value = "md5s", required = false) List<String> md5s) {
+        return asyncRequestDispatcher.submit("uploadParts", () -> Result.ok(iSysUploadTaskService.uploadParts(uploadId, files, partNumbers, md5s)));
+    }
+
+    /**
+     * 以原始字节流上传分片，请求体即分片内容（application/octet-stream），必须声明Content-Length
+     *
+     * @param request    请求
+     * @param uploadId   上传ID
+     * @param partNumber 分片编号
+     * @param md5        分片MD5（可选），传入时服务端校验分片内容
+     * @return 上传结果
+     */
+    @PostMapping(value = "/multipart/uploadPart/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Result<?> uploadPartStream(HttpServletRequest request
+            , @RequestParam String uploadId, @RequestParam int partNumber
+            , @RequestParam(required = false) String md5) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength <= 0) {
+            return Result.fail(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片请求必须声明Content-Length");
+        }
+        boolean result = iSysUploadTaskService.uploadPartStream(request.getInputStream(), contentLength, uploadId, partNumber, md5);
+        PartUploadTimingFilter.markSucceeded(request);
+        return Result.ok(result);
+    }
+
+    /**
+     * 以原始字节流上传分片的非阻塞版本，参数与 /multipart/uploadPart/stream 相同；
+     * 等待客户端发送请求体期间不占用线程，适合大量慢速连接（如移动网络）同时上传
+     *
+     * @param request    请求
+     * @param uploadId   上传ID
+     * @param partNumber 分片编号
+     * @param md5        分片MD5（可选），传入时服务端校验分片内容
+     * @return 上传结果
+     */
+    @PostMapping(value = "/multipart/uploadPart/nio", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public DeferredResult<Result<?>> uploadPartNonBlocking(HttpServletRequest request
+            , @RequestParam String uploadId, @RequestParam int partNumber
+            , @RequestParam(required = false) String md5) {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength <= 0) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片请求必须声明Content-Length");
+        }
+        return nonBlockingPartReceiver.receive(request, contentLength, "uploadPartNio",
+                inputStream -> {
+                    boolean result = iSysUploadTaskService.uploadPartStream(inputStream, contentLength, uploadId, partNumber, md5);
+                    PartUploadTimingFilter.markSucceeded(request);
+                    return Result.ok(result);
+                });
     }
 
     /**
-     * 合并分片
+     * 签发分片直传地址，前端拿到地址后直接把分片PUT到S3，然后通过/multipart/reportPart回传ETag
+     * 注意：存储桶需要配置CORS并暴露ETag响应头，浏览器才能读到ETag
+     *
+     * @param presignPartParamDTO 上传ID与分片编号范围
+     * @return 每个分片的预签名地址
+     */
+    @PostMapping("/multipart/presign")
+    public Result<List<PresignedPartVO>> presignUploadParts(@Valid @RequestBody PresignPartParamDTO presignPartParamDTO) {
+        return Result.ok(iSysUploadTaskService.presignUploadParts(presignPartParamDTO));
+    }
+
+    /**
+     * 回传直传完成的分片
+     *
+     * @param reportPartParamDTO 上传ID、分片编号与ETag
+     * @return 记录结果
+     */
+    @PostMapping("/multipart/reportPart")
+    public Result<Boolean> reportPart(@Valid @RequestBody ReportPartParamDTO reportPartParamDTO) {
+        return Result.ok(iSysUploadTaskService.reportPart(reportPartParamDTO));
+    }
+
+    /**
+     * 合并分片，在 s3RequestExecutor 中执行，线程池已满时返回 503
      *
      * @param md5 文件md5
      * @return 合并结果
      */
     @PostMapping("/multipart/merge/{md5}")
-    public Result<String> mergeMultipartUpload(@PathVariable String md5) {
-        return Result.ok(iSysUploadTaskService.mergeMultipartUpload(md5));
+    public CompletableFuture<Result<String>> mergeMultipartUpload(@PathVariable String md5) {
+        return asyncRequestDispatcher.submit("merge", () -> Result.ok(iSysUploadTaskService.mergeMultipartUpload(md5)));
     }
 
     /**
@@ -106,6 +289,45 @@ public class UploadController {
         return Result.ok(iSysUploadTaskService.getFileList(fileName));
     }
 
+    /**
+     * 游标分页获取文件列表，传入上一页返回的nextCursor获取下一页
+     * @param query 游标、每页条数与文件名前缀（前缀匹配）
+     * @return 当前页文件与下一页游标
+     */
+    @GetMapping("/files/page")
+    public Result<CursorPageVO<FileListVO>> getFilePage(@Valid FilePageQueryDTO query) {
+        return Result.ok(iSysUploadTaskService.getFilePage(query));
+    }
+
+    /**
+     * 流式导出文件目录，逐行写出NDJSON或CSV，用于对账
+     * @param query    导出格式、状态与创建时间范围
+     * @param response 响应
+     * @throws IOException 写出失败
+     */
+    @GetMapping("/files/export")
+    public void exportFiles(@Valid FileExportQueryDTO query, HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equals(query.getFormat());
+        response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        String fileName = "files-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + (csv ? ".csv" : ".ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName);
+        iSysUploadTaskService.exportFiles(query, response.getOutputStream());
+    }
+
+    /**
+     * 经本服务下载文件内容，供无法直接访问S3的内部调用方使用；
+     * 支持 Range（含多段）、If-Range、If-None-Match，视频拖动和断点下载直接可用
+     *
+     * @param fileId   文件ID
+     * @param request  请求
+     * @param response 响应
+     * @throws IOException 读取或写出失败
+     */
+    @GetMapping("/files/{fileId}/content")
+    public void getFileContent(@PathVariable Long fileId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        iFileDownloadService.download(fileId, request, response);
+    }
+
     /**
      * 删除文件
      * @param fileId 文件ID
@@ -120,4 +342,14 @@ public class UploadController {
             return Result.fail(400, "文件删除失败");
         }
     }
+
+    /**
+     * 批量删除文件，按ID列表或按状态与创建时间筛选，返回每个文件的删除结果
+     * @param param 文件ID或筛选条件
+     * @return 删除结果
+     */
+    @PostMapping("/files/batchDelete")
+    public Result<BatchDeleteResultVO> batchDeleteFiles(@RequestBody BatchDeleteParamDTO param) {
+        return Result.ok(iBatchDeleteService.deleteFiles(param));
+    }
 }
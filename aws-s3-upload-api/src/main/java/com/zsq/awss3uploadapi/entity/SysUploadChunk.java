@@ -44,6 +44,13 @@ public class SysUploadChunk {
     @Size(max = 255,message = "S3返回的etag最大长度要小于 255")
     private String etag;
 
+    /**
+     * 分片内容的MD5（十六进制）
+     */
+    @TableField(value = "md5")
+    @Size(max = 32,message = "分片MD5最大长度要小于 32")
+    private String md5;
+
     @TableField(value = "created_at")
     private Date createdAt;
 }
\ No newline at end of file
@@ -86,10 +86,10 @@ public class SysUploadTask {
     private Integer totalChunks;
 
     /**
-     * 状态: 0=上传中,1=已完成,2=失败
+     * 状态: 0=上传中,1=已完成,2=失败,3=从其它存储桶复制中
      */
     @TableField(value = "`status`")
-    @NotNull(message = "状态: 0=上传中,1=已完成,2=失败不能为null")
+    @NotNull(message = "状态: 0=上传中,1=已完成,2=失败,3=复制中不能为null")
     private Byte status;
 
     @TableField(value = "created_at")
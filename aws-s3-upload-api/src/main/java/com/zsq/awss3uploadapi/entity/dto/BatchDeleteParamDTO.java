@@ -0,0 +1,31 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@ToString
+@Accessors(chain = true)
+public class BatchDeleteParamDTO {
+
+    /**
+     * 要删除的文件ID，传了ID时忽略下面的筛选条件
+     */
+    private List<Long> ids;
+    /**
+     * 按条件删除：任务状态
+     */
+    private Byte status;
+    /**
+     * 按条件删除：创建时间下限（包含）
+     */
+    private LocalDateTime startTime;
+    /**
+     * 按条件删除：创建时间上限（不包含）
+     */
+    private LocalDateTime endTime;
+}
@@ -0,0 +1,25 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 单个上传任务的分片统计
+ */
+@Data
+public class ChunkActivityDTO {
+
+    /**
+     * 上传ID
+     */
+    private String uploadId;
+    /**
+     * 已记录的分片数
+     */
+    private Long chunkCount;
+    /**
+     * 最后一个分片的记录时间
+     */
+    private LocalDateTime lastChunkAt;
+}
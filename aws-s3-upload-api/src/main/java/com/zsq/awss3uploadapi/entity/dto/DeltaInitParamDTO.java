@@ -0,0 +1,22 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@ToString(callSuper = true)
+@Accessors(chain = true)
+public class DeltaInitParamDTO extends InitTaskParamDTO {
+
+    /**
+     * 按分片编号顺序排列的分片MD5，数量与分片数量一致
+     */
+    @NotEmpty(message = "分片MD5不能为空")
+    private List<String> chunkHashes;
+}
@@ -0,0 +1,35 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import javax.validation.constraints.Pattern;
+import java.time.LocalDateTime;
+
+@Data
+@ToString
+@Accessors(chain = true)
+public class FileExportQueryDTO {
+
+    /**
+     * 导出格式：ndjson 或 csv
+     */
+    @Pattern(regexp = "ndjson|csv", message = "导出格式只支持ndjson或csv")
+    private String format = "ndjson";
+    /**
+     * 任务状态，默认只导出已完成的文件
+     */
+    private Byte status = 1;
+    /**
+     * 创建时间下限（包含）
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+    /**
+     * 创建时间上限（不包含）
+     */
+    @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime endTime;
+}
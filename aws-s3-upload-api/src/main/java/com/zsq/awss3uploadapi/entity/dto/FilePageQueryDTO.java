@@ -0,0 +1,29 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@Data
+@ToString
+@Accessors(chain = true)
+public class FilePageQueryDTO {
+
+    /**
+     * 上一页返回的游标，首页不传
+     */
+    private String cursor;
+    /**
+     * 每页条数
+     */
+    @Min(value = 1, message = "每页条数最少为1")
+    @Max(value = 100, message = "每页条数最多为100")
+    private Integer pageSize = 20;
+    /**
+     * 文件名前缀（按前缀匹配，结果按文件名排序）
+     */
+    private String fileName;
+}
@@ -0,0 +1,33 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+@Data
+@ToString
+@Accessors(chain = true)
+public class PresignPartParamDTO {
+
+    /**
+     * 上传ID
+     */
+    @NotBlank(message = "上传ID不能为空")
+    private String uploadId;
+    /**
+     * 起始分片编号（包含）
+     */
+    @NotNull(message = "起始分片编号不能为空")
+    @Min(value = 1, message = "分片编号从1开始")
+    private Integer startPartNumber;
+    /**
+     * 结束分片编号（包含）
+     */
+    @NotNull(message = "结束分片编号不能为空")
+    @Min(value = 1, message = "分片编号从1开始")
+    private Integer endPartNumber;
+}
@@ -0,0 +1,34 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+@Data
+@ToString
+@Accessors(chain = true)
+public class ReportPartParamDTO {
+
+    /**
+     * 上传ID
+     */
+    @NotBlank(message = "上传ID不能为空")
+    private String uploadId;
+    /**
+     * 分片编号
+     */
+    @NotNull(message = "分片编号不能为空")
+    @Min(value = 1, message = "分片编号从1开始")
+    private Integer partNumber;
+    /**
+     * S3返回的etag（PUT预签名URL的响应头ETag）
+     */
+    @NotBlank(message = "etag不能为空")
+    @Size(max = 255, message = "etag最大长度要小于 255")
+    private String etag;
+}
@@ -0,0 +1,35 @@
+package com.zsq.awss3uploadapi.entity.dto;
+
+import lombok.Data;
+
+/**
+ * 已完成文件中可复用的分片及其所在对象
+ */
+@Data
+public class ReusableChunkDTO {
+
+    /**
+     * 分片MD5
+     */
+    private String md5;
+    /**
+     * 分片在源对象中的编号
+     */
+    private Integer partNumber;
+    /**
+     * 源对象所在的存储桶
+     */
+    private String bucketName;
+    /**
+     * 源对象路径
+     */
+    private String objectKey;
+    /**
+     * 源文件大小
+     */
+    private Long totalSize;
+    /**
+     * 源文件分片数
+     */
+    private Integer totalChunks;
+}
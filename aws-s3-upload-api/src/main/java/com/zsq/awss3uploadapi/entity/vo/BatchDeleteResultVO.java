@@ -0,0 +1,32 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchDeleteResultVO {
+
+    /**
+     * 处理的文件数
+     */
+    private Integer total;
+    /**
+     * 删除成功数
+     */
+    private Integer succeeded;
+    /**
+     * 删除失败数
+     */
+    private Integer failed;
+    /**
+     * 每个文件的删除结果
+     */
+    private List<FileDeleteResultVO> items;
+}
@@ -0,0 +1,84 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BloomFilterStatsVO {
+
+    /**
+     * 是否启用
+     */
+    private Boolean enabled;
+    /**
+     * 首次构建是否完成，未完成前所有检查都会查询数据库
+     */
+    private Boolean ready;
+    /**
+     * 是否正在重建
+     */
+    private Boolean rebuilding;
+    /**
+     * 设计容量
+     */
+    private Long expectedInsertions;
+    /**
+     * 已写入的标识数（含已删除但尚未重建的）
+     */
+    private Long insertions;
+    /**
+     * 位图大小（bit）
+     */
+    private Long bitSize;
+    /**
+     * 位图占用内存（字节）
+     */
+    private Long memoryBytes;
+    /**
+     * 哈希函数个数
+     */
+    private Integer hashFunctions;
+    /**
+     * 已置位的bit数
+     */
+    private Long bitsSet;
+    /**
+     * 配置的目标误判率
+     */
+    private Double configuredFpp;
+    /**
+     * 按当前置位比例估算的误判率
+     */
+    private Double estimatedFpp;
+    /**
+     * 上次重建后删除的标识数
+     */
+    private Long staleDeletions;
+    /**
+     * 查询次数
+     */
+    private Long queryCount;
+    /**
+     * 判定一定不存在（跳过数据库）的次数
+     */
+    private Long definiteMissCount;
+    /**
+     * 上次重建读取的标识数
+     */
+    private Long lastRebuildRows;
+    /**
+     * 上次重建耗时（毫秒）
+     */
+    private Long lastRebuildMillis;
+    /**
+     * 上次重建完成时间
+     */
+    private LocalDateTime lastRebuildAt;
+}
@@ -0,0 +1,38 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheStatsVO {
+
+    /**
+     * 缓存名称
+     */
+    private String name;
+    /**
+     * 当前条目数
+     */
+    private Integer size;
+    /**
+     * 容量上限
+     */
+    private Integer capacity;
+    /**
+     * 命中次数
+     */
+    private Long hitCount;
+    /**
+     * 未命中次数
+     */
+    private Long missCount;
+    /**
+     * 命中率
+     */
+    private Double hitRate;
+}
@@ -0,0 +1,64 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CopyJobVO {
+
+    /**
+     * 文件标识（MD5）
+     */
+    private String fileIdentifier;
+    /**
+     * 源存储桶
+     */
+    private String sourceBucket;
+    /**
+     * 目标存储桶
+     */
+    private String targetBucket;
+    /**
+     * 对象路径
+     */
+    private String objectKey;
+    /**
+     * 作业状态：RUNNING / SUCCEEDED / FAILED
+     */
+    private String status;
+    /**
+     * 文件总大小（字节）
+     */
+    private Long totalBytes;
+    /**
+     * 已复制字节数
+     */
+    private Long copiedBytes;
+    /**
+     * 分片总数，一次 CopyObject 复制时为1
+     */
+    private Integer totalParts;
+    /**
+     * 已复制分片数
+     */
+    private Integer completedParts;
+    /**
+     * 失败原因
+     */
+    private String message;
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startedAt;
+    /**
+     * 结束时间
+     */
+    private LocalDateTime finishedAt;
+}
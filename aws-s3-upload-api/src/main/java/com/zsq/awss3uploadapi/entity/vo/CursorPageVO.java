@@ -0,0 +1,28 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPageVO<T> {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records;
+    /**
+     * 下一页游标，没有下一页时为null
+     */
+    private String nextCursor;
+    /**
+     * 是否还有下一页
+     */
+    private Boolean hasMore;
+}
@@ -0,0 +1,37 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeltaInitVO {
+
+    /**
+     * 上传状态：UPLOADING 时按 reusedParts 继续上传；UPLOAD_SUCCESS 表示相同文件已上传完成（秒传，返回url），
+     * COPYING 表示正在从其它存储桶复制，UPLOAD_FILE_FAILED 表示相同文件上传失败
+     */
+    private Integer code;
+    /**
+     * 上传ID
+     */
+    private String uploadId;
+    /**
+     * 服务端已就绪的分片编号（从已有文件复制的分片和之前已上传的分片），客户端无需再上传
+     */
+    private List<Integer> reusedParts;
+    /**
+     * 本次从已有文件复制的字节数
+     */
+    private Long reusedBytes;
+    /**
+     * 秒传时文件的访问地址
+     */
+    private String url;
+}
@@ -0,0 +1,26 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileDeleteResultVO {
+
+    /**
+     * 文件ID
+     */
+    private Long id;
+    /**
+     * 是否删除成功
+     */
+    private Boolean success;
+    /**
+     * 失败原因
+     */
+    private String message;
+}
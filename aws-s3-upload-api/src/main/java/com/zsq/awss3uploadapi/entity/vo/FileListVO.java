@@ -0,0 +1,38 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FileListVO {
+
+    /**
+     * 文件ID
+     */
+    private Long id;
+    /**
+     * 原始文件名
+     */
+    private String originFileName;
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+    /**
+     * 文件访问地址
+     */
+    private String url;
+    /**
+     * 上传时间
+     */
+    private String uploadTime;
+    /**
+     * 文件唯一标识（md5）
+     */
+    private String md5;
+}
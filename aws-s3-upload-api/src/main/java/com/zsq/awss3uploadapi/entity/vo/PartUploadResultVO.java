@@ -0,0 +1,30 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PartUploadResultVO {
+
+    /**
+     * 分片编号
+     */
+    private Integer partNumber;
+    /**
+     * 是否上传成功
+     */
+    private Boolean success;
+    /**
+     * S3返回的etag，上传失败时为空
+     */
+    private String etag;
+    /**
+     * 失败原因
+     */
+    private String message;
+}
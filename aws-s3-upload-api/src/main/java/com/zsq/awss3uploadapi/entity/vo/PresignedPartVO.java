@@ -0,0 +1,26 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PresignedPartVO {
+
+    /**
+     * 分片编号
+     */
+    private Integer partNumber;
+    /**
+     * 预签名的UploadPart地址，前端直接PUT分片内容到该地址
+     */
+    private String url;
+    /**
+     * 地址过期时间（毫秒时间戳）
+     */
+    private Long expireAt;
+}
@@ -0,0 +1,64 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReaperStatsVO {
+
+    /**
+     * 是否启用
+     */
+    private Boolean enabled;
+    /**
+     * 是否正在清理
+     */
+    private Boolean running;
+    /**
+     * 累计清理次数
+     */
+    private Long runs;
+    /**
+     * 累计清理的上传任务数
+     */
+    private Long tasksReaped;
+    /**
+     * 累计删除的分片记录数
+     */
+    private Long chunkRowsReclaimed;
+    /**
+     * 累计释放的S3分片字节数（按分片数*分片大小估算）
+     */
+    private Long bytesReclaimed;
+    /**
+     * 累计中止分片上传失败次数
+     */
+    private Long abortFailures;
+    /**
+     * 下次扫描的起始任务ID（不包含）
+     */
+    private Long resumeId;
+    /**
+     * 上次清理的任务数
+     */
+    private Long lastRunTasks;
+    /**
+     * 上次清理释放的字节数
+     */
+    private Long lastRunBytes;
+    /**
+     * 上次清理耗时（毫秒）
+     */
+    private Long lastRunMillis;
+    /**
+     * 上次清理完成时间
+     */
+    private LocalDateTime lastRunAt;
+}
@@ -0,0 +1,54 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StagingStatsVO {
+
+    /**
+     * 是否启用本地暂存
+     */
+    private Boolean enabled;
+    /**
+     * 等待写入S3的分片数
+     */
+    private Integer pendingParts;
+    /**
+     * 等待写入S3的字节数
+     */
+    private Long pendingBytes;
+    /**
+     * 最早一个待写入分片已等待的时间（毫秒），即后台积压的延迟
+     */
+    private Long oldestPendingMillis;
+    /**
+     * 累计暂存的分片数
+     */
+    private Long stagedParts;
+    /**
+     * 累计写入S3的分片数
+     */
+    private Long drainedParts;
+    /**
+     * 累计重试次数
+     */
+    private Long retries;
+    /**
+     * 累计重试耗尽后丢弃的分片数
+     */
+    private Long failedParts;
+    /**
+     * 暂存区已满、改为直接上传的分片数
+     */
+    private Long bypassedParts;
+    /**
+     * 启动时从日志恢复的分片数
+     */
+    private Long recoveredParts;
+}
@@ -0,0 +1,42 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadPlanVO {
+
+    /**
+     * 推荐的分片大小（byte）
+     */
+    private Long chunkSize;
+    /**
+     * 按推荐分片大小切分后的分片数量
+     */
+    private Integer chunkNum;
+    /**
+     * 分片大小的依据：default（默认分片大小）、partLimit（受S3分片数上限约束）
+     */
+    private String basis;
+    /**
+     * 推荐同时上传的分片数，有足够吞吐样本时按该客户端的吞吐调整
+     */
+    private Integer concurrency;
+    /**
+     * 该客户端最近的分片上传吞吐（byte/s），没有样本时为空
+     */
+    private Long throughputBytesPerSecond;
+    /**
+     * 该客户端最近的单分片请求耗时（毫秒），没有样本时为空
+     */
+    private Long partMillis;
+    /**
+     * 该客户端的分片样本数
+     */
+    private Long samples;
+}
@@ -0,0 +1,42 @@
+package com.zsq.awss3uploadapi.entity.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WriteBehindStatsVO {
+
+    /**
+     * 是否启用写后缓冲
+     */
+    private Boolean enabled;
+    /**
+     * 当前等待写入的记录数
+     */
+    private Integer pending;
+    /**
+     * 累计进入缓冲的记录数
+     */
+    private Long bufferedRows;
+    /**
+     * 累计写入数据库的记录数
+     */
+    private Long flushedRows;
+    /**
+     * 累计批量写入次数（即数据库提交次数）
+     */
+    private Long flushedBatches;
+    /**
+     * 累计写入失败次数
+     */
+    private Long failedFlushes;
+    /**
+     * 累计因积压已满、等待超时而失败的记录数
+     */
+    private Long rejectedRows;
+}
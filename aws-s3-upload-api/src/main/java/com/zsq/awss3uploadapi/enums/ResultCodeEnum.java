@@ -70,7 +70,11 @@ public enum ResultCodeEnum {
     UPLOAD_SUCCESS(2001, "上传成功"),
     UPLOADING(2002, "上传中"),
     NOT_UPLOADED(2003, "未上传"),
-    UPLOAD_FILE_FAILED(5001, "文件上传失败");
+    COPYING(2004, "服务端复制中"),
+    UPLOAD_FILE_FAILED(5001, "文件上传失败"),
+    UPLOAD_PARTS_MISSING(5002, "分片不完整"),
+    UPLOAD_CHECKSUM_MISMATCH(5003, "文件校验失败"),
+    SERVER_BUSY(5004, "服务繁忙，请稍后重试");
     private Integer code;
 
     private String message;
@@ -1,11 +1,16 @@
 package com.zsq.awss3uploadapi.exception;
 
 
+import com.zsq.awss3uploadapi.config.UploadProperties;
 import com.zsq.awss3uploadapi.entity.Result;
 import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.BindException;
 import org.springframework.validation.BindingResult;
@@ -17,6 +22,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
@@ -26,8 +32,11 @@ import java.util.stream.Collectors;
 //AOP 面向切面
 @RestControllerAdvice
 @Slf4j
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    private final UploadProperties uploadProperties;
+
     @ExceptionHandler(Exception.class) //异常处理器
     public Result<?> error(Exception e) {
         log.error(e.getMessage());
@@ -132,5 +141,33 @@ public class GlobalExceptionHandler {
         return Result.fail(ResultCodeEnum.METHOD_ERROR.getCode(), ResultCodeEnum.METHOD_ERROR.getMessage());
     }
 
+    /**
+     * 请求处理线程池已满，返回 503 并通过 Retry-After 告知客户端稍后重试，避免请求堆积耗尽容器线程
+     *
+     * @param e 任务拒绝异常
+     * @return {@link Result}<{@link ?}>
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<Result<?>> taskRejectedExceptionHandler(TaskRejectedException e) {
+        log.warn("请求处理线程池已满: {}", e.getMessage());
+        return serverBusy();
+    }
 
+    /**
+     * 异步请求超过 spring.mvc.async.request-timeout 仍未完成
+     *
+     * @param e 异步请求超时异常
+     * @return {@link Result}<{@link ?}>
+     */
+    @ExceptionHandler(AsyncRequestTimeoutException.class)
+    public ResponseEntity<Result<?>> asyncRequestTimeoutExceptionHandler(AsyncRequestTimeoutException e) {
+        log.warn("异步请求处理超时");
+        return serverBusy();
+    }
+
+    private ResponseEntity<Result<?>> serverBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(uploadProperties.getAsyncRequest().getRetryAfterSeconds()))
+                .body(Result.fail(ResultCodeEnum.SERVER_BUSY.getCode(), ResultCodeEnum.SERVER_BUSY.getMessage()));
+    }
 }
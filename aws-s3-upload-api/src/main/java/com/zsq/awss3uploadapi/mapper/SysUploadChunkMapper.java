@@ -2,8 +2,37 @@ package com.zsq.awss3uploadapi.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.entity.dto.ChunkActivityDTO;
+import com.zsq.awss3uploadapi.entity.dto.ReusableChunkDTO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 @Mapper
 public interface SysUploadChunkMapper extends BaseMapper<SysUploadChunk> {
-}
\ No newline at end of file
+
+    /**
+     * 多行插入分片记录，同一分片重复上传时覆盖etag
+     * @param chunks 分片记录
+     * @return 影响行数
+     */
+    int upsertBatch(@Param("chunks") List<SysUploadChunk> chunks);
+
+    /**
+     * 按上传ID统计分片数与最后一个分片的时间，没有分片的上传ID不返回
+     * @param uploadIds 上传ID
+     * @return 每个上传ID的分片统计
+     */
+    List<ChunkActivityDTO> selectActivity(@Param("uploadIds") Collection<String> uploadIds);
+
+    /**
+     * 在已完成且分片大小相同的文件中查找MD5相同的分片，每个MD5只返回一个复制源，优先取完整长度的分片
+     * @param md5s 分片MD5（不重复）
+     * @param chunkSize 分片大小
+     * @param limit 最多返回的行数
+     * @return 可复用的分片及其所在对象
+     */
+    List<ReusableChunkDTO> selectReusableChunks(@Param("md5s") Collection<String> md5s, @Param("chunkSize") Long chunkSize, @Param("limit") int limit);
+}
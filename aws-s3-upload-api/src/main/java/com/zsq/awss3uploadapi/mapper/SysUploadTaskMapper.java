@@ -3,7 +3,29 @@ package com.zsq.awss3uploadapi.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zsq.awss3uploadapi.entity.SysUploadTask;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
 
 @Mapper
 public interface SysUploadTaskMapper extends BaseMapper<SysUploadTask> {
-}
\ No newline at end of file
+
+    /**
+     * 流式读取全部文件标识，逐行回调，不在内存中聚合结果
+     * @param resultHandler 每行的处理回调
+     */
+    void streamFileIdentifiers(ResultHandler<String> resultHandler);
+
+    /**
+     * 按状态与创建时间范围游标读取任务，调用方需在事务内迭代并关闭游标
+     * @param status    任务状态，为null时不过滤
+     * @param startTime 创建时间下限（包含），为null时不过滤
+     * @param endTime   创建时间上限（不包含），为null时不过滤
+     * @return 任务游标
+     */
+    Cursor<SysUploadTask> streamTasks(@Param("status") Byte status,
+                                      @Param("startTime") LocalDateTime startTime,
+                                      @Param("endTime") LocalDateTime endTime);
+}
@@ -0,0 +1,14 @@
+package com.zsq.awss3uploadapi.service;
+
+import com.zsq.awss3uploadapi.entity.dto.BatchDeleteParamDTO;
+import com.zsq.awss3uploadapi.entity.vo.BatchDeleteResultVO;
+
+public interface IBatchDeleteService {
+
+    /**
+     * 批量删除文件：按ID列表或按状态与创建时间筛选
+     * @param param 文件ID或筛选条件
+     * @return 每个文件的删除结果
+     */
+    BatchDeleteResultVO deleteFiles(BatchDeleteParamDTO param);
+}
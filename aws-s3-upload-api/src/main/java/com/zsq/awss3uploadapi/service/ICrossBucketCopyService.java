@@ -0,0 +1,28 @@
+package com.zsq.awss3uploadapi.service;
+
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.vo.CopyJobVO;
+
+public interface ICrossBucketCopyService {
+
+    /**
+     * 当前存储桶没有该文件、其它存储桶有已完成的相同文件时，创建复制中（status=3）的任务并在后台复制
+     * @param identifier 文件标识
+     * @return 当前存储桶的任务；没有可复制的源文件或作业无法提交时返回null
+     */
+    SysUploadTask copyFromOtherBucket(String identifier);
+
+    /**
+     * 复制中的任务没有对应的后台作业时（如服务重启）重新提交
+     * @param sysUploadTask 复制中的任务（可能来自缓存）
+     * @return 数据库中的最新任务；源文件已不存在、作业无法提交时任务被删除并返回null
+     */
+    SysUploadTask resumeIfStalled(SysUploadTask sysUploadTask);
+
+    /**
+     * 查询复制作业进度，作业结束后保留 upload.cross-bucket.job-retention-minutes
+     * @param identifier 文件标识
+     * @return 作业进度，不存在时返回null
+     */
+    CopyJobVO getProgress(String identifier);
+}
@@ -0,0 +1,17 @@
+package com.zsq.awss3uploadapi.service;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+public interface IFileDownloadService {
+
+    /**
+     * 经本服务流式下载已完成的文件，支持 Range（含多段）、If-Range、If-None-Match 与 ETag
+     * @param fileId   文件ID
+     * @param request  请求，读取条件请求与Range头
+     * @param response 响应，文件内容直接写入输出流
+     * @throws IOException 读取S3或写出失败
+     */
+    void download(Long fileId, HttpServletRequest request, HttpServletResponse response) throws IOException;
+}
@@ -0,0 +1,15 @@
+package com.zsq.awss3uploadapi.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+public interface IParallelUploadService {
+
+    /**
+     * 上传整个文件，超过阈值时在服务端拆成分片并发上传
+     * @param key 对象路径
+     * @param file 文件
+     */
+    void putObject(String key, MultipartFile file) throws IOException;
+}
@@ -2,8 +2,42 @@ package com.zsq.awss3uploadapi.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.ReusableChunkDTO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 public interface ISysUploadChunkService extends IService<SysUploadChunk>{
 
+    /**
+     * 查询上传任务已记录的分片，按分片编号升序（走uk_task_part索引）
+     * @param uploadId 上传ID
+     * @return 分片列表
+     */
+    List<SysUploadChunk> listByUploadId(String uploadId);
+
+    /**
+     * 以S3的分片列表为准校正分片表：分页列出全部分片，补齐缺失或ETag不一致的记录，删除S3中不存在的记录；
+     * 未记录MD5（前端直传）的分片按S3返回的ETag补上MD5
+     * @param sysUploadTask 上传任务
+     * @return 校正后的分片列表，按分片编号升序
+     */
+    List<SysUploadChunk> reconcileWithS3(SysUploadTask sysUploadTask);
+
+    /**
+     * 一条SQL删除多个上传任务的全部分片记录
+     * @param uploadIds 上传ID
+     * @return 删除的行数
+     */
+    int removeByUploadIds(Collection<String> uploadIds);
 
+    /**
+     * 在已完成且分片大小相同的文件中按分片MD5查找可复用的分片，MD5分批查询
+     * @param md5s 分片MD5（小写）
+     * @param chunkSize 分片大小
+     * @return MD5 -> 可复用分片，每个MD5一个复制源
+     */
+    Map<String, ReusableChunkDTO> listReusableChunks(Collection<String> md5s, Long chunkSize);
 }
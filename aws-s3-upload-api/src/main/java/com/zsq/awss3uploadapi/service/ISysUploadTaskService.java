@@ -2,18 +2,105 @@ package com.zsq.awss3uploadapi.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.DeltaInitParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.FileExportQueryDTO;
+import com.zsq.awss3uploadapi.entity.dto.FilePageQueryDTO;
 import com.zsq.awss3uploadapi.entity.dto.InitTaskParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.PresignPartParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.ReportPartParamDTO;
+import com.zsq.awss3uploadapi.entity.vo.CopyJobVO;
+import com.zsq.awss3uploadapi.entity.vo.CursorPageVO;
+import com.zsq.awss3uploadapi.entity.vo.DeltaInitVO;
 import com.zsq.awss3uploadapi.entity.vo.FileListVO;
+import com.zsq.awss3uploadapi.entity.vo.PartUploadResultVO;
+import com.zsq.awss3uploadapi.entity.vo.PresignedPartVO;
 import com.zsq.awss3uploadapi.entity.vo.TaskInfoVO;
+import com.zsq.awss3uploadapi.entity.vo.UploadPlanVO;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface ISysUploadTaskService extends IService<SysUploadTask>{
     TaskInfoVO checkFileByMd5 (String identifier);
-    boolean uploadPart(MultipartFile file, String uploadId,  int partNumber) throws Exception;
-    String initMultiPartFile(@Valid InitTaskParamDTO initTaskParamDTO);
+
+    /**
+     * 上传分片，转发到S3的同时计算分片MD5
+     * @param file 分片文件
+     * @param uploadId 上传ID
+     * @param partNumber 分片编号
+     * @param md5 客户端声明的分片MD5（十六进制），可为空
+     * @return 是否上传成功
+     */
+    boolean uploadPart(MultipartFile file, String uploadId,  int partNumber, String md5) throws Exception;
+
+    /**
+     * 以原始字节流上传分片
+     * @param inputStream 分片内容
+     * @param contentLength 分片字节数（请求头Content-Length）
+     * @param uploadId 上传ID
+     * @param partNumber 分片编号
+     * @param md5 客户端声明的分片MD5（十六进制），可为空
+     * @return 是否上传成功
+     */
+    boolean uploadPartStream(InputStream inputStream, long contentLength, String uploadId, int partNumber, String md5);
+
+    /**
+     * 一次请求上传同一个uploadId的多个分片
+     * @param uploadId 上传ID
+     * @param files 分片文件
+     * @param partNumbers 与files一一对应的分片编号
+     * @param md5s 与files一一对应的分片MD5，可为空
+     * @return 每个分片的上传结果
+     */
+    List<PartUploadResultVO> uploadParts(String uploadId, List<MultipartFile> files, List<Integer> partNumbers, List<String> md5s);
+
+    /**
+     * 按文件大小和客户端最近的上传吞吐推荐分片大小，客户端在切片计算MD5之前调用
+     * @param totalSize 文件大小（byte）
+     * @param client 客户端标识
+     * @return 推荐的分片大小与分片数量
+     */
+    UploadPlanVO planUpload(long totalSize, String client);
+
+    /**
+     * 初始化分片上传任务
+     * @param initTaskParamDTO 初始化参数
+     * @return 新建或已有的上传中任务返回 UPLOADING 与uploadId；相同文件已完成返回 UPLOAD_SUCCESS 与地址，
+     * 复制中返回 COPYING，已失败返回 UPLOAD_FILE_FAILED
+     */
+    TaskInfoVO initMultiPartFile(@Valid InitTaskParamDTO initTaskParamDTO);
+
+    /**
+     * 增量上传初始化，复用已有文件中内容相同的分片
+     * @param deltaInitParamDTO 文件信息与按分片编号排列的分片MD5
+     * @return 上传ID与服务端已就绪的分片
+     */
+    DeltaInitVO initDeltaUpload(DeltaInitParamDTO deltaInitParamDTO);
+
+    /**
+     * 查询跨存储桶复制作业的进度
+     * @param md5 文件MD5
+     * @return 作业进度，不存在或已过保留期时返回null
+     */
+    CopyJobVO getCopyProgress(String md5);
+
+    /**
+     * 为一段分片编号签发预签名上传地址
+     * @param presignPartParamDTO 上传ID与分片编号范围
+     * @return 每个分片的预签名地址
+     */
+    List<PresignedPartVO> presignUploadParts(PresignPartParamDTO presignPartParamDTO);
+
+    /**
+     * 记录前端直传到S3完成的分片
+     * @param reportPartParamDTO 上传ID、分片编号与ETag
+     * @return 是否记录成功
+     */
+    boolean reportPart(ReportPartParamDTO reportPartParamDTO);
 
     String mergeMultipartUpload(String md5);
     
@@ -23,6 +110,22 @@ public interface ISysUploadTaskService extends IService<SysUploadTask>{
      * @return 文件列表
      */
     List<FileListVO> getFileList(String fileName);
+
+    /**
+     * 游标分页获取文件列表
+     * @param query 游标、每页条数与文件名前缀
+     * @return 当前页文件与下一页游标
+     */
+    CursorPageVO<FileListVO> getFilePage(FilePageQueryDTO query);
+
+    /**
+     * 以NDJSON或CSV格式把文件目录逐行写入输出流，不在内存中聚合结果
+     * @param query        导出格式、状态与创建时间范围
+     * @param outputStream 输出流
+     * @return 导出的行数
+     * @throws IOException 写出失败
+     */
+    long exportFiles(FileExportQueryDTO query, OutputStream outputStream) throws IOException;
     
     /**
      * 删除文件
@@ -0,0 +1,260 @@
+package com.zsq.awss3uploadapi.service.impl;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.zsq.awss3uploadapi.component.ChunkWriteBehindBuffer;
+import com.zsq.awss3uploadapi.component.FileIdentifierBloomFilter;
+import com.zsq.awss3uploadapi.component.PartStagingArea;
+import com.zsq.awss3uploadapi.component.UploadSessionCache;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.BatchDeleteParamDTO;
+import com.zsq.awss3uploadapi.entity.vo.BatchDeleteResultVO;
+import com.zsq.awss3uploadapi.entity.vo.FileDeleteResultVO;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import com.zsq.awss3uploadapi.service.IBatchDeleteService;
+import com.zsq.awss3uploadapi.service.ISysUploadChunkService;
+import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批量删除文件
+ * <p>
+ * 按批处理，每批最多 batchSize 个文件：一次IN查询取出任务，按存储桶合并成一次 DeleteObjects 请求，
+ * 上传中的任务并发中止分片上传，最后一条SQL删除分片记录、一条SQL删除任务记录。
+ * 删除10万个文件只需要约100次S3请求和300次数据库请求，而逐个删除需要约40万次
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchDeleteServiceImpl implements IBatchDeleteService {
+    /**
+     * S3 DeleteObjects 单次最多删除的key数量
+     */
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+
+    final AmazonS3 amazonS3;
+    final ISysUploadTaskService iSysUploadTaskService;
+    final ISysUploadChunkService iSysUploadChunkService;
+    final UploadProperties uploadProperties;
+    final UploadSessionCache uploadSessionCache;
+    final FileIdentifierBloomFilter fileIdentifierBloomFilter;
+    final ChunkWriteBehindBuffer chunkWriteBehindBuffer;
+    final PartStagingArea partStagingArea;
+    @Qualifier("s3TransferExecutor")
+    final ThreadPoolTaskExecutor s3TransferExecutor;
+
+    @Timed(value = "upload.phase", extraTags = {"phase", "batchDelete"}, histogram = true)
+    @Override
+    public BatchDeleteResultVO deleteFiles(BatchDeleteParamDTO param) {
+        UploadProperties.BatchDelete properties = uploadProperties.getBatchDelete();
+        int batchSize = Math.max(1, Math.min(properties.getBatchSize(), MAX_KEYS_PER_DELETE));
+        List<FileDeleteResultVO> items = new ArrayList<>();
+
+        if (!CollectionUtils.isEmpty(param.getIds())) {
+            List<Long> ids = new ArrayList<>(new LinkedHashSet<>(param.getIds()));
+            if (ids.size() > properties.getMaxItemsPerRequest()) {
+                throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                        "单次最多删除" + properties.getMaxItemsPerRequest() + "个文件");
+            }
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batchIds = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                Map<Long, SysUploadTask> tasks = iSysUploadTaskService.listByIds(batchIds).stream()
+                        .collect(Collectors.toMap(SysUploadTask::getId, Function.identity()));
+                for (Long id : batchIds) {
+                    if (!tasks.containsKey(id)) {
+                        items.add(failure(id, "文件不存在"));
+                    }
+                }
+                items.addAll(deleteBatch(new ArrayList<>(tasks.values())));
+            }
+        } else {
+            if (param.getStatus() == null && param.getStartTime() == null && param.getEndTime() == null) {
+                throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "请传入文件ID或筛选条件");
+            }
+            // 按主键递增分批扫描，每批从上一批最后一个ID之后开始，不使用OFFSET
+            long lastId = 0;
+            int remaining = properties.getMaxItemsPerRequest();
+            while (remaining > 0) {
+                List<SysUploadTask> tasks = iSysUploadTaskService.list(new LambdaQueryWrapper<SysUploadTask>()
+                        .gt(SysUploadTask::getId, lastId)
+                        .eq(param.getStatus() != null, SysUploadTask::getStatus, param.getStatus())
+                        .ge(param.getStartTime() != null, SysUploadTask::getCreatedAt, param.getStartTime())
+                        .lt(param.getEndTime() != null, SysUploadTask::getCreatedAt, param.getEndTime())
+                        .orderByAsc(SysUploadTask::getId)
+                        .last("LIMIT " + Math.min(batchSize, remaining)));
+                if (tasks.isEmpty()) {
+                    break;
+                }
+                lastId = tasks.get(tasks.size() - 1).getId();
+                remaining -= tasks.size();
+                items.addAll(deleteBatch(tasks));
+            }
+        }
+
+        int succeeded = (int) items.stream().filter(FileDeleteResultVO::getSuccess).count();
+        log.info("批量删除文件完成，处理: {}, 成功: {}, 失败: {}", items.size(), succeeded, items.size() - succeeded);
+        return BatchDeleteResultVO.builder()
+                .total(items.size())
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .items(items)
+                .build();
+    }
+
+    /**
+     * 删除一批任务：先删S3，S3删除成功的再统一删除数据库记录，S3失败的保留记录以便重试
+     */
+    private List<FileDeleteResultVO> deleteBatch(List<SysUploadTask> tasks) {
+        if (tasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, String> errors = new HashMap<>();
+        deleteObjects(tasks, errors);
+        abortUploads(tasks, errors);
+
+        List<SysUploadTask> deletable = tasks.stream()
+                .filter(task -> !errors.containsKey(task.getId()))
+                .collect(Collectors.toList());
+        if (!deletable.isEmpty()) {
+            try {
+                // 先删分片再删任务，中途失败时任务记录仍在，可以再次删除
+                Set<String> uploadIds = deletable.stream()
+                        .map(SysUploadTask::getUploadId)
+                        .filter(uploadId -> uploadId != null && !uploadId.isEmpty())
+                        .collect(Collectors.toSet());
+                uploadIds.forEach(chunkWriteBehindBuffer::discard);
+                uploadIds.forEach(partStagingArea::discard);
+                iSysUploadChunkService.removeByUploadIds(uploadIds);
+                iSysUploadTaskService.removeByIds(deletable.stream().map(SysUploadTask::getId).collect(Collectors.toList()));
+                for (SysUploadTask task : deletable) {
+                    uploadSessionCache.invalidate(task);
+                    fileIdentifierBloomFilter.markDeleted(task.getFileIdentifier());
+                }
+            } catch (Exception e) {
+                log.error("批量删除数据库记录失败，数量: {}", deletable.size(), e);
+                deletable.forEach(task -> errors.put(task.getId(), "删除数据库记录失败: " + e.getMessage()));
+            }
+        }
+
+        return tasks.stream()
+                .map(task -> errors.containsKey(task.getId())
+                        ? failure(task.getId(), errors.get(task.getId()))
+                        : FileDeleteResultVO.builder().id(task.getId()).success(true).build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 已完成的文件按存储桶合并成 DeleteObjects 请求，quiet模式下只返回失败的key
+     */
+    private void deleteObjects(List<SysUploadTask> tasks, Map<Long, String> errors) {
+        Map<String, Map<String, List<Long>>> keysByBucket = new LinkedHashMap<>();
+        for (SysUploadTask task : tasks) {
+            if (task.getStatus() != null && task.getStatus() == 1) {
+                keysByBucket.computeIfAbsent(task.getBucketName(), bucket -> new LinkedHashMap<>())
+                        .computeIfAbsent(task.getObjectKey(), key -> new ArrayList<>())
+                        .add(task.getId());
+            }
+        }
+        keysByBucket.forEach((bucket, idsByKey) -> {
+            List<String> keys = new ArrayList<>(idsByKey.keySet());
+            for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+                List<String> batchKeys = keys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keys.size()));
+                DeleteObjectsRequest request = new DeleteObjectsRequest(bucket)
+                        .withKeys(batchKeys.toArray(new String[0]))
+                        .withQuiet(true);
+                try {
+                    amazonS3.deleteObjects(request);
+                } catch (MultiObjectDeleteException e) {
+                    for (MultiObjectDeleteException.DeleteError error : e.getErrors()) {
+                        List<Long> ids = idsByKey.get(error.getKey());
+                        if (ids != null) {
+                            ids.forEach(id -> errors.put(id, "删除S3对象失败: " + error.getCode() + " " + error.getMessage()));
+                        }
+                    }
+                } catch (Exception e) {
+                    log.error("批量删除S3对象失败，bucket: {}, 数量: {}", bucket, batchKeys.size(), e);
+                    batchKeys.forEach(key -> idsByKey.get(key)
+                            .forEach(id -> errors.put(id, "删除S3对象失败: " + e.getMessage())));
+                }
+            }
+        });
+    }
+
+    /**
+     * 上传中的任务没有最终对象，需要中止分片上传释放已上传的分片，中止请求之间互不依赖，并发发送
+     */
+    private void abortUploads(List<SysUploadTask> tasks, Map<Long, String> errors) {
+        List<SysUploadTask> uploading = tasks.stream()
+                .filter(task -> task.getStatus() != null && task.getStatus() == 0)
+                .filter(task -> task.getUploadId() != null && !task.getUploadId().isEmpty())
+                .collect(Collectors.toList());
+        if (uploading.isEmpty()) {
+            return;
+        }
+        Map<Long, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (SysUploadTask task : uploading) {
+            CompletableFuture<String> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> abortUpload(task), s3TransferExecutor);
+            } catch (TaskRejectedException e) {
+                // 线程池已满时在当前线程执行，不丢弃请求
+                future = CompletableFuture.completedFuture(abortUpload(task));
+            }
+            futures.put(task.getId(), future);
+        }
+        futures.forEach((id, future) -> {
+            String error = future.join();
+            if (error != null) {
+                errors.put(id, error);
+            }
+        });
+    }
+
+    /**
+     * 中止分片上传，返回失败原因，成功或上传已不存在时返回null
+     */
+    private String abortUpload(SysUploadTask task) {
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(
+                    task.getBucketName(), task.getObjectKey(), task.getUploadId()));
+            return null;
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            log.warn("中止分片上传失败，uploadId: {}", task.getUploadId(), e);
+            return "中止分片上传失败: " + e.getErrorCode();
+        } catch (Exception e) {
+            log.warn("中止分片上传失败，uploadId: {}", task.getUploadId(), e);
+            return "中止分片上传失败: " + e.getMessage();
+        }
+    }
+
+    private static FileDeleteResultVO failure(Long id, String message) {
+        return FileDeleteResultVO.builder().id(id).success(false).message(message).build();
+    }
+}
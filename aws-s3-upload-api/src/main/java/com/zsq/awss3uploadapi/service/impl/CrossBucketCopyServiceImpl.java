@@ -0,0 +1,397 @@
+package com.zsq.awss3uploadapi.service.impl;
+
+import cn.hutool.cache.impl.LRUCache;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.zsq.awss3uploadapi.component.UploadSessionCache;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.vo.CopyJobVO;
+import com.zsq.awss3uploadapi.mapper.SysUploadTaskMapper;
+import com.zsq.awss3uploadapi.service.ICrossBucketCopyService;
+import com.zsq.winter.minio.service.AmazonS3Template;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 跨存储桶秒传
+ * <p>
+ * 切换或新增存储桶后，相同内容的文件在旧存储桶里已经存在，客户端不需要再上传一遍：
+ * 在当前存储桶创建复制中（status=3）的任务，后台用 CopyObject 或并发 UploadPartCopy 在S3内部复制，
+ * 数据不经过客户端和本服务。复制完成后任务变为已完成，失败时删除任务，客户端按未上传重新走分片上传
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CrossBucketCopyServiceImpl implements ICrossBucketCopyService {
+    /**
+     * S3 分片上传最多10000个分片
+     */
+    private static final int MAX_PARTS = 10000;
+    /**
+     * S3 分片（最后一个除外）最小5MB
+     */
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    /**
+     * 保留的已结束作业数量上限
+     */
+    private static final int FINISHED_JOB_CAPACITY = 1000;
+    private static final byte STATUS_COMPLETED = 1;
+    private static final byte STATUS_COPYING = 3;
+
+    final AmazonS3 amazonS3;
+    final AmazonS3Template amazonS3Template;
+    final SysUploadTaskMapper sysUploadTaskMapper;
+    final UploadSessionCache uploadSessionCache;
+    final UploadProperties uploadProperties;
+    @Qualifier("s3TransferExecutor")
+    final ThreadPoolTaskExecutor s3TransferExecutor;
+    @Qualifier("crossBucketCopyExecutor")
+    final ThreadPoolTaskExecutor crossBucketCopyExecutor;
+
+    /**
+     * 运行中的作业，按文件标识
+     */
+    private final Map<String, CopyJob> runningJobs = new ConcurrentHashMap<>();
+    /**
+     * 已结束的作业，保留一段时间供查询进度
+     */
+    private LRUCache<String, CopyJob> finishedJobs;
+
+    @PostConstruct
+    public void init() {
+        long retentionMillis = uploadProperties.getCrossBucket().getJobRetentionMinutes() * 60_000L;
+        finishedJobs = new LRUCache<>(FINISHED_JOB_CAPACITY, retentionMillis);
+    }
+
+    @Timed(value = "upload.phase", extraTags = {"phase", "crossBucketCopy"}, histogram = true)
+    @Override
+    public SysUploadTask copyFromOtherBucket(String identifier) {
+        if (!uploadProperties.getCrossBucket().isEnabled()) {
+            return null;
+        }
+        String targetBucket = amazonS3Template.getBucketName();
+        SysUploadTask source = findSource(identifier, targetBucket);
+        if (source == null) {
+            return null;
+        }
+        SysUploadTask target = SysUploadTask.builder()
+                .fileIdentifier(identifier)
+                .fileName(source.getFileName())
+                .bucketName(targetBucket)
+                .objectKey(source.getObjectKey())
+                .totalSize(source.getTotalSize())
+                .chunkSize(source.getChunkSize())
+                .totalChunks(source.getTotalChunks())
+                .status(STATUS_COPYING)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        try {
+            sysUploadTaskMapper.insert(target);
+        } catch (DuplicateKeyException e) {
+            // 并发请求已经创建了任务，返回已有的任务
+            return sysUploadTaskMapper.selectOne(new LambdaQueryWrapper<SysUploadTask>()
+                    .eq(SysUploadTask::getFileIdentifier, identifier)
+                    .eq(SysUploadTask::getBucketName, targetBucket));
+        }
+        return submit(source, target) ? target : null;
+    }
+
+    @Override
+    public SysUploadTask resumeIfStalled(SysUploadTask sysUploadTask) {
+        // 缓存中的任务可能已经复制完成，以数据库为准
+        SysUploadTask current = sysUploadTaskMapper.selectById(sysUploadTask.getId());
+        if (current == null || !Byte.valueOf(STATUS_COPYING).equals(current.getStatus())) {
+            uploadSessionCache.invalidate(sysUploadTask);
+            return current;
+        }
+        if (runningJobs.containsKey(current.getFileIdentifier())) {
+            return current;
+        }
+        SysUploadTask source = findSource(current.getFileIdentifier(), current.getBucketName());
+        if (source != null && submit(source, current)) {
+            log.info("恢复中断的跨存储桶复制，fileIdentifier: {}, {} -> {}",
+                    current.getFileIdentifier(), source.getBucketName(), current.getBucketName());
+            return current;
+        }
+        if (source == null) {
+            // 源文件已被删除，放弃复制；已提交过作业的情况由作业自己清理
+            abortQuietly(current);
+            deleteCopyingTask(current);
+        }
+        return null;
+    }
+
+    @Override
+    public CopyJobVO getProgress(String identifier) {
+        CopyJob job = runningJobs.get(identifier);
+        if (job == null) {
+            job = finishedJobs.get(identifier, false);
+        }
+        return job == null ? null : job.toVO();
+    }
+
+    /**
+     * 其它存储桶中已完成的相同文件
+     */
+    private SysUploadTask findSource(String identifier, String targetBucket) {
+        return sysUploadTaskMapper.selectOne(new LambdaQueryWrapper<SysUploadTask>()
+                .eq(SysUploadTask::getFileIdentifier, identifier)
+                .eq(SysUploadTask::getStatus, STATUS_COMPLETED)
+                .ne(SysUploadTask::getBucketName, targetBucket)
+                .last("LIMIT 1"));
+    }
+
+    /**
+     * 提交复制作业，同一文件同时只有一个作业；线程池已满时删除任务，由客户端正常上传
+     */
+    private boolean submit(SysUploadTask source, SysUploadTask target) {
+        CopyJob job = new CopyJob(source, target);
+        if (runningJobs.putIfAbsent(target.getFileIdentifier(), job) != null) {
+            return true;
+        }
+        try {
+            crossBucketCopyExecutor.execute(() -> run(job, source, target));
+            return true;
+        } catch (TaskRejectedException e) {
+            log.warn("跨存储桶复制作业队列已满，fileIdentifier: {}", target.getFileIdentifier());
+            runningJobs.remove(target.getFileIdentifier());
+            deleteCopyingTask(target);
+            return false;
+        }
+    }
+
+    private void run(CopyJob job, SysUploadTask source, SysUploadTask target) {
+        try {
+            if (target.getUploadId() != null) {
+                // 上次未完成的分片复制（服务重启前留下的）先中止
+                abortQuietly(target);
+                sysUploadTaskMapper.update(null, new LambdaUpdateWrapper<SysUploadTask>()
+                        .set(SysUploadTask::getUploadId, null)
+                        .eq(SysUploadTask::getId, target.getId()));
+            }
+            if (source.getTotalSize() > uploadProperties.getCrossBucket().getMultipartThreshold()) {
+                multipartCopy(job, source, target);
+            } else {
+                job.totalParts.set(1);
+                amazonS3.copyObject(new CopyObjectRequest(
+                        source.getBucketName(), source.getObjectKey(), target.getBucketName(), target.getObjectKey()));
+                job.completedParts.set(1);
+                job.copiedBytes.set(source.getTotalSize());
+            }
+            long copiedLength = amazonS3.getObjectMetadata(target.getBucketName(), target.getObjectKey()).getContentLength();
+            if (copiedLength != source.getTotalSize()) {
+                throw new IllegalStateException("复制后的对象大小不一致，期望: " + source.getTotalSize() + ", 实际: " + copiedLength);
+            }
+            int updated = sysUploadTaskMapper.update(SysUploadTask.builder()
+                            .status(STATUS_COMPLETED)
+                            .uploadId(target.getUploadId())
+                            .updatedAt(LocalDateTime.now())
+                            .build(),
+                    new LambdaQueryWrapper<SysUploadTask>()
+                            .eq(SysUploadTask::getId, target.getId())
+                            .eq(SysUploadTask::getStatus, STATUS_COPYING));
+            if (updated == 0) {
+                // 复制期间任务被删除，复制出的对象不再有记录引用
+                amazonS3.deleteObject(target.getBucketName(), target.getObjectKey());
+                throw new IllegalStateException("复制期间任务已被删除");
+            }
+            job.finish("SUCCEEDED", null);
+            log.info("跨存储桶复制完成，fileIdentifier: {}, {} -> {}, 大小: {}, 分片数: {}", target.getFileIdentifier(),
+                    source.getBucketName(), target.getBucketName(), source.getTotalSize(), job.totalParts.get());
+        } catch (Exception e) {
+            log.warn("跨存储桶复制失败，fileIdentifier: {}, {} -> {}",
+                    target.getFileIdentifier(), source.getBucketName(), target.getBucketName(), e);
+            abortQuietly(target);
+            deleteCopyingTask(target);
+            job.finish("FAILED", e.getMessage());
+        } finally {
+            uploadSessionCache.invalidate(target);
+            runningJobs.remove(target.getFileIdentifier());
+            finishedJobs.put(target.getFileIdentifier(), job);
+        }
+    }
+
+    /**
+     * 大文件按分片并发 UploadPartCopy，分片复制提交到传输线程池，线程池满时在当前线程执行
+     */
+    private void multipartCopy(CopyJob job, SysUploadTask source, SysUploadTask target) {
+        UploadProperties.CrossBucket properties = uploadProperties.getCrossBucket();
+        long totalSize = source.getTotalSize();
+        long partSize = Math.max(Math.max(properties.getPartSize(), MIN_PART_SIZE), (totalSize + MAX_PARTS - 1) / MAX_PARTS);
+        int totalParts = (int) ((totalSize + partSize - 1) / partSize);
+        job.totalParts.set(totalParts);
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(amazonS3.getObjectMetadata(source.getBucketName(), source.getObjectKey()).getContentType());
+        String uploadId = amazonS3.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(target.getBucketName(), target.getObjectKey(), metadata)).getUploadId();
+        target.setUploadId(uploadId);
+        // 记录uploadId，服务重启后恢复时可以中止这次未完成的复制
+        sysUploadTaskMapper.updateById(SysUploadTask.builder().id(target.getId()).uploadId(uploadId).build());
+
+        Semaphore permits = new Semaphore(Math.max(1, properties.getPartConcurrency()));
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<CompletableFuture<PartETag>> futures = new ArrayList<>(totalParts);
+        try {
+            for (int partNumber = 1; partNumber <= totalParts && !failed.get(); partNumber++) {
+                long firstByte = (partNumber - 1) * partSize;
+                long lastByte = Math.min(firstByte + partSize, totalSize) - 1;
+                CopyPartRequest copyPartRequest = new CopyPartRequest()
+                        .withSourceBucketName(source.getBucketName())
+                        .withSourceKey(source.getObjectKey())
+                        .withDestinationBucketName(target.getBucketName())
+                        .withDestinationKey(target.getObjectKey())
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withFirstByte(firstByte)
+                        .withLastByte(lastByte);
+                permits.acquire();
+                CompletableFuture<PartETag> future;
+                try {
+                    future = CompletableFuture.supplyAsync(() -> copyPart(job, copyPartRequest), s3TransferExecutor);
+                } catch (TaskRejectedException e) {
+                    try {
+                        future = CompletableFuture.completedFuture(copyPart(job, copyPartRequest));
+                    } catch (RuntimeException ex) {
+                        future = new CompletableFuture<>();
+                        future.completeExceptionally(ex);
+                    }
+                }
+                futures.add(future.whenComplete((partETag, throwable) -> {
+                    permits.release();
+                    if (throwable != null) {
+                        failed.set(true);
+                    }
+                }));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+        }
+        List<PartETag> partETags;
+        try {
+            partETags = futures.stream()
+                    .map(CompletableFuture::join)
+                    .sorted(Comparator.comparingInt(PartETag::getPartNumber))
+                    .collect(Collectors.toList());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        if (failed.get() || partETags.size() != totalParts) {
+            throw new IllegalStateException("分片复制未全部完成");
+        }
+        amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(
+                target.getBucketName(), target.getObjectKey(), uploadId, partETags));
+    }
+
+    private PartETag copyPart(CopyJob job, CopyPartRequest copyPartRequest) {
+        PartETag partETag = amazonS3.copyPart(copyPartRequest).getPartETag();
+        job.copiedBytes.addAndGet(copyPartRequest.getLastByte() - copyPartRequest.getFirstByte() + 1);
+        job.completedParts.incrementAndGet();
+        return partETag;
+    }
+
+    /**
+     * 中止任务上记录的未完成分片复制，失败只记录日志
+     */
+    private void abortQuietly(SysUploadTask sysUploadTask) {
+        if (sysUploadTask.getUploadId() == null) {
+            return;
+        }
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(
+                    sysUploadTask.getBucketName(), sysUploadTask.getObjectKey(), sysUploadTask.getUploadId()));
+        } catch (Exception e) {
+            log.warn("中止分片复制失败，uploadId: {}", sysUploadTask.getUploadId(), e);
+        }
+        sysUploadTask.setUploadId(null);
+    }
+
+    private void deleteCopyingTask(SysUploadTask sysUploadTask) {
+        sysUploadTaskMapper.delete(new LambdaQueryWrapper<SysUploadTask>()
+                .eq(SysUploadTask::getId, sysUploadTask.getId())
+                .eq(SysUploadTask::getStatus, STATUS_COPYING));
+        uploadSessionCache.invalidate(sysUploadTask);
+    }
+
+    /**
+     * 复制作业进度
+     */
+    private static class CopyJob {
+        private final String fileIdentifier;
+        private final String sourceBucket;
+        private final String targetBucket;
+        private final String objectKey;
+        private final long totalBytes;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong copiedBytes = new AtomicLong();
+        private final AtomicInteger totalParts = new AtomicInteger();
+        private final AtomicInteger completedParts = new AtomicInteger();
+        private volatile String status = "RUNNING";
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+
+        private CopyJob(SysUploadTask source, SysUploadTask target) {
+            this.fileIdentifier = target.getFileIdentifier();
+            this.sourceBucket = source.getBucketName();
+            this.targetBucket = target.getBucketName();
+            this.objectKey = target.getObjectKey();
+            this.totalBytes = source.getTotalSize();
+        }
+
+        private void finish(String status, String message) {
+            this.message = message;
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+
+        private CopyJobVO toVO() {
+            return CopyJobVO.builder()
+                    .fileIdentifier(fileIdentifier)
+                    .sourceBucket(sourceBucket)
+                    .targetBucket(targetBucket)
+                    .objectKey(objectKey)
+                    .status(status)
+                    .totalBytes(totalBytes)
+                    .copiedBytes(copiedBytes.get())
+                    .totalParts(totalParts.get())
+                    .completedParts(completedParts.get())
+                    .message(message)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
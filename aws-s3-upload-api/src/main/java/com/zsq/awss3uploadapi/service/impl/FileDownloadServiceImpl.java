@@ -0,0 +1,485 @@
+package com.zsq.awss3uploadapi.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.zsq.awss3uploadapi.component.UploadMetrics;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.service.IFileDownloadService;
+import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 代理下载
+ * <p>
+ * 文件内容按 file_identifier 唯一确定且上传后不再变化，直接用它作为强ETag，条件请求和Range判断都不需要先访问S3。
+ * 每段内容对应一次带Range的 GetObject，经固定大小的缓冲区从S3输入通道写到响应输出通道，
+ * 不在内存中缓存整个文件或整段内容，单个请求的内存占用与文件大小无关。
+ * 大范围下载时单个S3连接的吞吐是瓶颈，改为多个连接并发读取分段，再按顺序写出；
+ * 所有请求的分段缓冲区合计不超过 parallelBufferBudget，超出时退回顺序读取
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileDownloadServiceImpl implements IFileDownloadService {
+
+    private static final String CRLF = "\r\n";
+    /**
+     * 并发下载的最小分段（字节）
+     */
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    /**
+     * 分段读取的最大尝试次数
+     */
+    private static final int MAX_SEGMENT_ATTEMPTS = 2;
+
+    final AmazonS3 amazonS3;
+    final ISysUploadTaskService iSysUploadTaskService;
+    final UploadProperties uploadProperties;
+    final UploadMetrics uploadMetrics;
+    @Qualifier("s3DownloadExecutor")
+    final ThreadPoolTaskExecutor s3DownloadExecutor;
+    /**
+     * 并发分段读取已占用的缓冲区字节数，所有请求共享
+     */
+    private final AtomicLong reservedSegmentBytes = new AtomicLong();
+
+    @Timed(value = "upload.phase", extraTags = {"phase", "download"}, histogram = true)
+    @Override
+    public void download(Long fileId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        SysUploadTask sysUploadTask = iSysUploadTaskService.getById(fileId);
+        if (sysUploadTask == null || !Byte.valueOf((byte) 1).equals(sysUploadTask.getStatus())) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "文件不存在");
+            return;
+        }
+        long length = sysUploadTask.getTotalSize();
+        String etag = "\"" + sysUploadTask.getFileIdentifier() + "\"";
+        LocalDateTime modifiedAt = sysUploadTask.getUpdatedAt() != null ? sysUploadTask.getUpdatedAt() : sysUploadTask.getCreatedAt();
+        long lastModified = modifiedAt == null ? -1 : modifiedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        String contentType = MediaTypeFactory.getMediaType(sysUploadTask.getObjectKey())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (lastModified > 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename(sysUploadTask.getFileName(), StandardCharsets.UTF_8).build().toString());
+
+        if (etagMatches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        List<long[]> ranges = Collections.emptyList();
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            ranges = resolveRanges(rangeHeader, length);
+            if (ranges == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+        boolean headOnly = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        try {
+            if (ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType(contentType);
+                response.setContentLengthLong(length);
+                if (!headOnly && length > 0) {
+                    WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                    writeRange(sysUploadTask, 0, length - 1, out, null);
+                }
+            } else if (ranges.size() == 1) {
+                long[] range = ranges.get(0);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType(contentType);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(range, length));
+                response.setContentLengthLong(range[1] - range[0] + 1);
+                if (!headOnly) {
+                    WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                    writeRange(sysUploadTask, range[0], range[1], out, null);
+                }
+            } else {
+                writeMultipartRanges(sysUploadTask, ranges, length, contentType, headOnly, response);
+            }
+        } catch (IOException e) {
+            if (!response.isCommitted()) {
+                throw e;
+            }
+            // 响应已经开始写出，多数是客户端断开（拖动进度条、取消下载），无法再返回错误信息
+            log.debug("下载中断，fileId: {}, 原因: {}", fileId, e.getMessage());
+        }
+    }
+
+    /**
+     * 多段Range按 multipart/byteranges 返回，每段前写出分隔头，内容长度可以事先算出
+     */
+    private void writeMultipartRanges(SysUploadTask sysUploadTask, List<long[]> ranges, long length, String contentType,
+                                      boolean headOnly, HttpServletResponse response) throws IOException {
+        String boundary = IdUtil.simpleUUID();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(range, length) + CRLF + CRLF)
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range[1] - range[0] + 1;
+        }
+        byte[] closing = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        ByteBuffer buffer = newBuffer();
+        for (int i = 0; i < ranges.size(); i++) {
+            writeFully(out, ByteBuffer.wrap(partHeaders.get(i)));
+            writeRange(sysUploadTask, ranges.get(i)[0], ranges.get(i)[1], out, buffer);
+        }
+        writeFully(out, ByteBuffer.wrap(closing));
+    }
+
+    /**
+     * 写出 [start, end]：超过并发阈值的大范围并发分段读取，其余一个 GetObject 顺序读取；
+     * 分段缓冲区的全局预算不足时同样顺序读取
+     *
+     * @param buffer 顺序读取使用的缓冲区，为null时新建
+     */
+    private void writeRange(SysUploadTask sysUploadTask, long start, long end, WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        UploadProperties.Download properties = uploadProperties.getDownload();
+        if (properties.isParallelEnabled() && end - start + 1 > properties.getParallelThreshold()) {
+            int segmentSize = segmentSize(sysUploadTask);
+            long segments = Math.min(Math.max(1, properties.getParallelism()), (end - start) / segmentSize + 1);
+            long bytes = segments * segmentSize;
+            if (reserveSegmentBytes(bytes, properties.getParallelBufferBudget())) {
+                try {
+                    parallelCopyRange(sysUploadTask, start, end, out, segmentSize);
+                } finally {
+                    reservedSegmentBytes.addAndGet(-bytes);
+                }
+                return;
+            }
+            log.debug("并发分段读取的缓冲区预算已用尽，顺序读取，key: {}, 范围: {}-{}", sysUploadTask.getObjectKey(), start, end);
+        }
+        copyRange(sysUploadTask, start, end, out, buffer != null ? buffer : newBuffer());
+    }
+
+    private int segmentSize(SysUploadTask sysUploadTask) {
+        return (int) Math.max(MIN_SEGMENT_SIZE, Math.min(sysUploadTask.getChunkSize(), uploadProperties.getDownload().getMaxSegmentSize()));
+    }
+
+    /**
+     * 从全局预算中占用分段缓冲区，超出预算时不占用并返回false
+     */
+    private boolean reserveSegmentBytes(long bytes, long budget) {
+        while (true) {
+            long reserved = reservedSegmentBytes.get();
+            if (reserved + bytes > budget) {
+                return false;
+            }
+            if (reservedSegmentBytes.compareAndSet(reserved, reserved + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 并发分段读取 [start, end]
+     * <p>
+     * 范围按分段（默认取文件的分片大小）切开提交到下载线程池，最多 parallelism 个分段同时在途；
+     * 请求线程按顺序等待最早的分段读完后写出，并把它的缓冲区交给下一个分段复用。
+     * 后面的分段先读完也只能在窗口内等待，单个请求最多占用 parallelism 个分段缓冲区
+     */
+    private void parallelCopyRange(SysUploadTask sysUploadTask, long start, long end, WritableByteChannel out, int segmentSize) throws IOException {
+        UploadProperties.Download properties = uploadProperties.getDownload();
+        int parallelism = Math.max(1, properties.getParallelism());
+        Deque<byte[]> freeBuffers = new ArrayDeque<>(parallelism);
+        Deque<Segment> window = new ArrayDeque<>(parallelism);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        long next = start;
+        try {
+            while (next <= end || !window.isEmpty()) {
+                while (window.size() < parallelism && next <= end) {
+                    long segmentEnd = Math.min(next + segmentSize - 1, end);
+                    byte[] buffer = freeBuffers.isEmpty() ? new byte[segmentSize] : freeBuffers.poll();
+                    window.add(submitSegment(sysUploadTask, next, segmentEnd, buffer, cancelled));
+                    next = segmentEnd + 1;
+                }
+                Segment segment = window.poll();
+                int length = segment.await();
+                writeFully(out, ByteBuffer.wrap(segment.buffer, 0, length));
+                freeBuffers.add(segment.buffer);
+            }
+        } finally {
+            if (!window.isEmpty()) {
+                // 分段读取或写出失败（多为客户端断开），在途分段尽快放弃
+                cancelled.set(true);
+            }
+        }
+    }
+
+    /**
+     * 提交一个分段读取，下载线程池已满时由请求线程自己读取，自然降低该请求的并发
+     */
+    private Segment submitSegment(SysUploadTask sysUploadTask, long start, long end, byte[] buffer, AtomicBoolean cancelled) {
+        CompletableFuture<Integer> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> fetchSegment(sysUploadTask, start, end, buffer, cancelled), s3DownloadExecutor);
+        } catch (TaskRejectedException e) {
+            future = new CompletableFuture<>();
+            try {
+                future.complete(fetchSegment(sysUploadTask, start, end, buffer, cancelled));
+            } catch (RuntimeException ex) {
+                future.completeExceptionally(ex);
+            }
+        }
+        return new Segment(buffer, future);
+    }
+
+    /**
+     * 用一次带Range的 GetObject 把一个分段读入缓冲区，网络错误时重试；
+     * 请求已取消时中止S3连接，不把剩余内容读完
+     *
+     * @return 分段长度
+     */
+    private int fetchSegment(SysUploadTask sysUploadTask, long start, long end, byte[] buffer, AtomicBoolean cancelled) {
+        int length = (int) (end - start + 1);
+        for (int attempt = 1; ; attempt++) {
+            if (cancelled.get()) {
+                throw new CancellationException("下载已取消");
+            }
+            GetObjectRequest getObjectRequest = new GetObjectRequest(sysUploadTask.getBucketName(), sysUploadTask.getObjectKey())
+                    .withRange(start, end);
+            try (S3Object s3Object = amazonS3.getObject(getObjectRequest)) {
+                S3ObjectInputStream inputStream = s3Object.getObjectContent();
+                try {
+                    int offset = 0;
+                    while (offset < length) {
+                        if (cancelled.get()) {
+                            inputStream.abort();
+                            throw new CancellationException("下载已取消");
+                        }
+                        int read = inputStream.read(buffer, offset, length - offset);
+                        if (read < 0) {
+                            throw new EOFException("S3对象内容提前结束，分段: " + start + "-" + end);
+                        }
+                        offset += read;
+                    }
+                } catch (IOException e) {
+                    inputStream.abort();
+                    throw e;
+                }
+                return length;
+            } catch (IOException | SdkClientException e) {
+                if (e instanceof AmazonServiceException || attempt >= MAX_SEGMENT_ATTEMPTS || cancelled.get()) {
+                    throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (SdkClientException) e;
+                }
+                log.debug("分段读取失败，重试，key: {}, 分段: {}-{}, 原因: {}", sysUploadTask.getObjectKey(), start, end, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 用一次带Range的 GetObject 读取 [start, end] 并经缓冲区写到输出通道；
+     * 中途失败时中止S3连接，不把剩余内容读完
+     */
+    private void copyRange(SysUploadTask sysUploadTask, long start, long end, WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(sysUploadTask.getBucketName(), sysUploadTask.getObjectKey())
+                .withRange(start, end);
+        try (S3Object s3Object = amazonS3.getObject(getObjectRequest)) {
+            S3ObjectInputStream inputStream = s3Object.getObjectContent();
+            ReadableByteChannel in = Channels.newChannel(inputStream);
+            long remaining = end - start + 1;
+            try {
+                while (remaining > 0) {
+                    buffer.clear();
+                    if (remaining < buffer.capacity()) {
+                        buffer.limit((int) remaining);
+                    }
+                    int read = in.read(buffer);
+                    if (read < 0) {
+                        throw new EOFException("S3对象内容提前结束，剩余: " + remaining);
+                    }
+                    buffer.flip();
+                    writeFully(out, buffer);
+                    remaining -= read;
+                }
+            } catch (IOException e) {
+                inputStream.abort();
+                throw e;
+            }
+        }
+    }
+
+    private void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            uploadMetrics.bytesOut(out.write(buffer));
+        }
+    }
+
+    private ByteBuffer newBuffer() {
+        return ByteBuffer.allocate(Math.max(8192, uploadProperties.getDownload().getBufferSize()));
+    }
+
+    /**
+     * 解析Range头，返回按请求顺序排列的 [start, end]
+     * <p>
+     * 语法错误、段数超过上限或各段总长超过文件长度时忽略Range，返回空列表按整个文件返回；
+     * 所有段都无法满足时返回null，由调用方返回416
+     */
+    private List<long[]> resolveRanges(String rangeHeader, long length) {
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+        if (httpRanges.isEmpty() || httpRanges.size() > uploadProperties.getDownload().getMaxRanges()) {
+            return Collections.emptyList();
+        }
+        List<long[]> ranges = new ArrayList<>(httpRanges.size());
+        long total = 0;
+        for (HttpRange httpRange : httpRanges) {
+            try {
+                long start = httpRange.getRangeStart(length);
+                long end = httpRange.getRangeEnd(length);
+                if (start > end) {
+                    continue;
+                }
+                ranges.add(new long[]{start, end});
+                total += end - start + 1;
+            } catch (IllegalArgumentException e) {
+                // 起始位置超出文件长度，该段无法满足
+            }
+        }
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        return total > length ? Collections.emptyList() : ranges;
+    }
+
+    /**
+     * If-Range 携带的ETag或时间与当前文件一致时才按Range返回，否则返回整个文件
+     */
+    private static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"") || value.startsWith("W/")) {
+            // If-Range 要求强比较，弱ETag一律视为不匹配
+            return value.equals(etag);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.IF_RANGE, value);
+        try {
+            // HTTP日期只精确到秒
+            return lastModified > 0 && lastModified / 1000 == headers.getFirstDate(HttpHeaders.IF_RANGE) / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * If-None-Match 按弱比较，支持多个ETag与 *
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value)) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String contentRange(long[] range, long length) {
+        return "bytes " + range[0] + "-" + range[1] + "/" + length;
+    }
+
+    /**
+     * 在途分段：缓冲区与读取结果
+     */
+    private static class Segment {
+        private final byte[] buffer;
+        private final CompletableFuture<Integer> future;
+
+        private Segment(byte[] buffer, CompletableFuture<Integer> future) {
+            this.buffer = buffer;
+            this.future = future;
+        }
+
+        private int await() throws IOException {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
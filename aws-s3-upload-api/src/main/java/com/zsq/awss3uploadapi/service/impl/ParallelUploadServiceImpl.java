@@ -0,0 +1,176 @@
+package com.zsq.awss3uploadapi.service.impl;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.*;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import com.zsq.awss3uploadapi.service.IParallelUploadService;
+import com.zsq.winter.minio.service.AmazonS3Template;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class ParallelUploadServiceImpl implements IParallelUploadService {
+    /**
+     * S3 允许的最大分片数
+     */
+    private static final int MAX_PARTS = 10000;
+
+    final AmazonS3Template amazonS3Template;
+    final AmazonS3 amazonS3;
+    final UploadProperties uploadProperties;
+    final ThreadPoolTaskExecutor s3TransferExecutor;
+
+    public ParallelUploadServiceImpl(AmazonS3Template amazonS3Template, AmazonS3 amazonS3, UploadProperties uploadProperties,
+                                     @Qualifier("s3TransferExecutor") ThreadPoolTaskExecutor s3TransferExecutor) {
+        this.amazonS3Template = amazonS3Template;
+        this.amazonS3 = amazonS3;
+        this.uploadProperties = uploadProperties;
+        this.s3TransferExecutor = s3TransferExecutor;
+    }
+
+    @Timed(value = "upload.phase", extraTags = {"phase", "singleUpload"}, histogram = true)
+    @Override
+    public void putObject(String key, MultipartFile file) throws IOException {
+        UploadProperties.SingleUpload properties = uploadProperties.getSingleUpload();
+        if (file.getSize() < properties.getMultipartThreshold()) {
+            amazonS3Template.putObject(key, file, null);
+            return;
+        }
+        multipartPut(amazonS3Template.getBucketName(), key, file, properties);
+    }
+
+    /**
+     * 服务端分片并发上传：每个分片独立打开一次文件输入流并跳到自己的偏移量，
+     * 分片之间互不依赖，同一时间最多 concurrency 个分片在传，内存占用与文件大小无关
+     */
+    private void multipartPut(String bucketName, String key, MultipartFile file, UploadProperties.SingleUpload properties) {
+        long totalSize = file.getSize();
+        // 分片数不能超过S3上限，超大文件自动放大分片
+        long partSize = Math.max(properties.getPartSize(), (totalSize + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((totalSize + partSize - 1) / partSize);
+
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentType(resolveContentType(key, file));
+        String uploadId = amazonS3.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, key, objectMetadata)).getUploadId();
+        log.info("服务端分片上传开始，key: {}, 大小: {}, 分片数: {}, uploadId: {}", key, totalSize, partCount, uploadId);
+
+        Semaphore permits = new Semaphore(Math.max(1, properties.getConcurrency()));
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<CompletableFuture<PartETag>> futures = new ArrayList<>(partCount);
+        try {
+            for (int i = 0; i < partCount; i++) {
+                int partNumber = i + 1;
+                long offset = i * partSize;
+                long size = Math.min(partSize, totalSize - offset);
+                permits.acquire();
+                // 已有分片失败时不再提交后续分片
+                if (failed.get()) {
+                    permits.release();
+                    break;
+                }
+                CompletableFuture<PartETag> future;
+                try {
+                    future = CompletableFuture.supplyAsync(
+                            () -> uploadPart(bucketName, key, uploadId, file, partNumber, offset, size), s3TransferExecutor);
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                future.whenComplete((partETag, throwable) -> {
+                    if (throwable != null) {
+                        failed.set(true);
+                    }
+                    permits.release();
+                });
+                futures.add(future);
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            List<PartETag> partETags = futures.stream()
+                    .map(CompletableFuture::join)
+                    .sorted(Comparator.comparingInt(PartETag::getPartNumber))
+                    .collect(Collectors.toList());
+            if (partETags.size() != partCount) {
+                throw new IllegalStateException("分片数量不完整: " + partETags.size() + "/" + partCount);
+            }
+            amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+        } catch (Exception e) {
+            abortQuietly(bucketName, key, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("服务端分片上传失败，key: {}, uploadId: {}", key, uploadId, cause);
+            throw new SystemException(ResultCodeEnum.UPLOAD_FILE_FAILED.getCode(), "文件上传失败: " + cause.getMessage());
+        }
+    }
+
+    private PartETag uploadPart(String bucketName, String key, String uploadId, MultipartFile file,
+                                int partNumber, long offset, long size) {
+        try (InputStream inputStream = file.getInputStream()) {
+            skipFully(inputStream, offset);
+            UploadPartRequest uploadPartRequest = new UploadPartRequest()
+                    .withBucketName(bucketName)
+                    .withKey(key)
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withPartSize(size)
+                    .withInputStream(inputStream);
+            return amazonS3.uploadPart(uploadPartRequest).getPartETag();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * 跳过指定字节数，磁盘临时文件的输入流跳过时直接移动读指针，不会读取数据
+     */
+    private static void skipFully(InputStream inputStream, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                throw new EOFException("文件长度小于分片偏移量: " + bytes);
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static String resolveContentType(String key, MultipartFile file) {
+        if (StringUtils.hasText(file.getContentType())) {
+            return file.getContentType();
+        }
+        return MediaTypeFactory.getMediaType(key).orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    private void abortQuietly(String bucketName, String key, String uploadId) {
+        try {
+            amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (Exception e) {
+            log.warn("取消分片上传失败，key: {}, uploadId: {}", key, uploadId, e);
+        }
+    }
+}
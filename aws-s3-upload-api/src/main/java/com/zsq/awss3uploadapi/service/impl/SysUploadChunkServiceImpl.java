@@ -1,17 +1,127 @@
 package com.zsq.awss3uploadapi.service.impl;
 
 
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListPartsRequest;
+import com.amazonaws.services.s3.model.PartListing;
+import com.amazonaws.services.s3.model.PartSummary;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.ReusableChunkDTO;
 import com.zsq.awss3uploadapi.mapper.SysUploadChunkMapper;
 import com.zsq.awss3uploadapi.service.ISysUploadChunkService;
+import com.zsq.awss3uploadapi.utils.ChecksumUtil;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SysUploadChunkServiceImpl extends ServiceImpl<SysUploadChunkMapper, SysUploadChunk> implements ISysUploadChunkService {
+    /**
+     * ListParts 单页最多返回的分片数
+     */
+    private static final int LIST_PARTS_PAGE_SIZE = 1000;
+    /**
+     * 按MD5查询可复用分片时每批的MD5数量，避免IN列表过长
+     */
+    private static final int REUSABLE_CHUNK_QUERY_BATCH = 1000;
 
+    final AmazonS3 amazonS3;
+
+    @Override
+    public List<SysUploadChunk> listByUploadId(String uploadId) {
+        return list(new LambdaQueryWrapper<SysUploadChunk>()
+                .eq(SysUploadChunk::getUploadId, uploadId)
+                .orderByAsc(SysUploadChunk::getPartNumber));
+    }
+
+    @Override
+    public int removeByUploadIds(Collection<String> uploadIds) {
+        if (uploadIds.isEmpty()) {
+            return 0;
+        }
+        return baseMapper.delete(new LambdaQueryWrapper<SysUploadChunk>().in(SysUploadChunk::getUploadId, uploadIds));
+    }
+
+    @Override
+    public Map<String, ReusableChunkDTO> listReusableChunks(Collection<String> md5s, Long chunkSize) {
+        List<String> distinctMd5s = new ArrayList<>(new LinkedHashSet<>(md5s));
+        Map<String, ReusableChunkDTO> reusableChunks = new HashMap<>();
+        for (int from = 0; from < distinctMd5s.size(); from += REUSABLE_CHUNK_QUERY_BATCH) {
+            List<String> batch = distinctMd5s.subList(from, Math.min(from + REUSABLE_CHUNK_QUERY_BATCH, distinctMd5s.size()));
+            for (ReusableChunkDTO chunk : baseMapper.selectReusableChunks(batch, chunkSize, batch.size())) {
+                reusableChunks.putIfAbsent(chunk.getMd5(), chunk);
+            }
+        }
+        return reusableChunks;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<SysUploadChunk> reconcileWithS3(SysUploadTask sysUploadTask) {
+        String uploadId = sysUploadTask.getUploadId();
+        List<PartSummary> s3Parts = listAllParts(sysUploadTask);
+        Map<Integer, SysUploadChunk> localChunks = listByUploadId(uploadId).stream()
+                .collect(Collectors.toMap(SysUploadChunk::getPartNumber, Function.identity()));
+
+        List<SysUploadChunk> missing = new ArrayList<>();
+        Set<Integer> s3PartNumbers = new HashSet<>(s3Parts.size() * 2);
+        for (PartSummary part : s3Parts) {
+            s3PartNumbers.add(part.getPartNumber());
+            SysUploadChunk local = localChunks.get(part.getPartNumber());
+            String md5 = ChecksumUtil.md5FromEtag(part.getETag());
+            if (local == null || !Objects.equals(local.getEtag(), part.getETag()) || (local.getMd5() == null && md5 != null)) {
+                missing.add(SysUploadChunk.builder()
+                        .uploadId(uploadId)
+                        .partNumber(part.getPartNumber())
+                        .etag(part.getETag())
+                        .md5(md5)
+                        .createdAt(part.getLastModified())
+                        .build());
+            }
+        }
+        List<Integer> orphans = localChunks.keySet().stream()
+                .filter(partNumber -> !s3PartNumbers.contains(partNumber))
+                .collect(Collectors.toList());
+
+        if (!missing.isEmpty()) {
+            baseMapper.upsertBatch(missing);
+        }
+        if (!orphans.isEmpty()) {
+            remove(new LambdaQueryWrapper<SysUploadChunk>()
+                    .eq(SysUploadChunk::getUploadId, uploadId)
+                    .in(SysUploadChunk::getPartNumber, orphans));
+        }
+        if (!missing.isEmpty() || !orphans.isEmpty()) {
+            log.info("分片表与S3校正完成，uploadId: {}, 补齐: {}, 删除: {}", uploadId, missing.size(), orphans.size());
+        }
+        return listByUploadId(uploadId);
+    }
+
+    /**
+     * 分页列出分片上传的全部分片，ListParts 单页最多1000个
+     */
+    private List<PartSummary> listAllParts(SysUploadTask sysUploadTask) {
+        ListPartsRequest listPartsRequest = new ListPartsRequest(
+                sysUploadTask.getBucketName(), sysUploadTask.getObjectKey(), sysUploadTask.getUploadId())
+                .withMaxParts(LIST_PARTS_PAGE_SIZE);
+        List<PartSummary> parts = new ArrayList<>();
+        PartListing partListing;
+        do {
+            partListing = amazonS3.listParts(listPartsRequest);
+            parts.addAll(partListing.getParts());
+            listPartsRequest.setPartNumberMarker(partListing.getNextPartNumberMarker());
+        } while (partListing.isTruncated());
+        return parts;
+    }
 }
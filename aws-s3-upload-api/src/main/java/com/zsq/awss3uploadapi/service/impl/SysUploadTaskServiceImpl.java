@@ -1,34 +1,91 @@
 package com.zsq.awss3uploadapi.service.impl;
 
 
+import cn.hutool.core.codec.Base64;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestAlgorithm;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
+import com.zsq.awss3uploadapi.component.ChunkSizeAdvisor;
+import com.zsq.awss3uploadapi.component.ChunkWriteBehindBuffer;
+import com.zsq.awss3uploadapi.component.FileIdentifierBloomFilter;
+import com.zsq.awss3uploadapi.component.PartStagingArea;
+import com.zsq.awss3uploadapi.component.UploadMetrics;
+import com.zsq.awss3uploadapi.component.UploadSessionCache;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zsq.awss3uploadapi.entity.SysUploadChunk;
 import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.dto.DeltaInitParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.FileExportQueryDTO;
+import com.zsq.awss3uploadapi.entity.dto.FilePageQueryDTO;
 import com.zsq.awss3uploadapi.entity.dto.InitTaskParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.PresignPartParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.ReportPartParamDTO;
+import com.zsq.awss3uploadapi.entity.dto.ReusableChunkDTO;
+import com.zsq.awss3uploadapi.entity.vo.CopyJobVO;
+import com.zsq.awss3uploadapi.entity.vo.CursorPageVO;
+import com.zsq.awss3uploadapi.entity.vo.DeltaInitVO;
 import com.zsq.awss3uploadapi.entity.vo.FileListVO;
+import com.zsq.awss3uploadapi.entity.vo.PartUploadResultVO;
+import com.zsq.awss3uploadapi.entity.vo.PresignedPartVO;
 import com.zsq.awss3uploadapi.entity.vo.TaskInfoVO;
+import com.zsq.awss3uploadapi.entity.vo.UploadPlanVO;
 import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
 import com.zsq.awss3uploadapi.mapper.SysUploadTaskMapper;
+import com.zsq.awss3uploadapi.service.ICrossBucketCopyService;
 import com.zsq.awss3uploadapi.service.ISysUploadChunkService;
 import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
+import com.zsq.awss3uploadapi.utils.ChecksumUtil;
 import com.zsq.winter.minio.service.AmazonS3Template;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cursor.Cursor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.MediaType;
 import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.ObjectUtils;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,8 +93,25 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, SysUploadTask> implements ISysUploadTaskService {
     final AmazonS3Template amazonS3Template;
+    final AmazonS3 amazonS3;
     final ISysUploadChunkService iSysUploadChunkService;
+    final UploadProperties uploadProperties;
+    final UploadSessionCache uploadSessionCache;
+    final FileIdentifierBloomFilter fileIdentifierBloomFilter;
+    final ICrossBucketCopyService iCrossBucketCopyService;
+    final ChunkWriteBehindBuffer chunkWriteBehindBuffer;
+    final PartStagingArea partStagingArea;
+    final ChunkSizeAdvisor chunkSizeAdvisor;
+    final UploadMetrics uploadMetrics;
+    @Qualifier("s3TransferExecutor")
+    final ThreadPoolTaskExecutor s3TransferExecutor;
+    final MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter;
 
+    private static final DateTimeFormatter UPLOAD_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String CURSOR_MODE_TIME = "t";
+    private static final String CURSOR_MODE_NAME = "n";
+
+    @Timed(value = "upload.phase", extraTags = {"phase", "check"}, histogram = true)
     @Override
     public TaskInfoVO checkFileByMd5(String identifier) {
         TaskInfoVO taskInfoVO = new TaskInfoVO();
@@ -48,9 +122,14 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
             return taskInfoVO;
         }
 
-        // 根据MD5查找上传任务
-        SysUploadTask sysUploadTask = getOne(new LambdaQueryWrapper<SysUploadTask>()
-                .eq(SysUploadTask::getFileIdentifier, identifier));
+        // 布隆过滤器判定一定不存在时直接返回未上传，不查询数据库
+        if (!fileIdentifierBloomFilter.mightContain(identifier)) {
+            taskInfoVO.setCode(ResultCodeEnum.NOT_UPLOADED.getCode());
+            return taskInfoVO;
+        }
+
+        // 根据MD5查找上传任务；只查询状态，其它存储桶已有相同文件时由初始化接口开始服务端复制
+        SysUploadTask sysUploadTask = findByIdentifier(identifier);
 
         // 如果没有找到上传记录
         if (ObjectUtils.isEmpty(sysUploadTask)) {
@@ -70,6 +149,12 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
                 return handleCompletedUpload(sysUploadTask, taskInfoVO);
             case 0: // 上传中
                 return handleUploadingTask(sysUploadTask, taskInfoVO);
+            case 3: // 从其它存储桶复制中，中断的作业由初始化接口恢复
+                taskInfoVO.setCode(ResultCodeEnum.COPYING.getCode());
+                taskInfoVO.setExitPartList(Collections.emptyList());
+                taskInfoVO.setUploadId("");
+                taskInfoVO.setUrl("");
+                return taskInfoVO;
             default: // 未上传 需要对文件进行分片初始化
                 taskInfoVO.setCode(ResultCodeEnum.NOT_UPLOADED.getCode());
                 taskInfoVO.setExitPartList(Collections.emptyList());
@@ -82,95 +167,677 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
     /**
      * 上传分片并将上传后的文件存入分片信息表
      */
+    @Timed(value = "upload.phase", extraTags = {"phase", "part"}, histogram = true)
+    @Override
+    public boolean uploadPart(MultipartFile file, String uploadId, int partNumber, String md5) throws Exception {
+
+        // 根据uploadId查找上传任务（优先走会话缓存）
+        SysUploadTask sysUploadTask = getTaskForPart(uploadId, partNumber);
+        try (InputStream inputStream = file.getInputStream()) {
+            // 启用暂存时写入本地即返回，由后台写入S3；暂存区已满时照常直接上传
+            if (partStagingArea.isEnabled() && stagePart(sysUploadTask, partNumber, inputStream, file.getSize(), md5)) {
+                return true;
+            }
+            UploadedPart uploadedPart = uploadPartToS3(sysUploadTask, partNumber, inputStream, file.getSize(), md5);
+            // 2. 保存分片信息（etag + md5 + partNumber）
+            saveChunk(uploadId, partNumber, uploadedPart);
+        }
+        return true;
+    }
+
+    /**
+     * 以原始字节流上传分片，请求体直接作为 UploadPart 的输入流发送到S3，不经过multipart解析和临时文件
+     */
+    @Timed(value = "upload.phase", extraTags = {"phase", "partStream"}, histogram = true)
+    @Override
+    public boolean uploadPartStream(InputStream inputStream, long contentLength, String uploadId, int partNumber, String md5) {
+        SysUploadTask sysUploadTask = getTaskForPart(uploadId, partNumber);
+        if (partStagingArea.isEnabled()) {
+            try {
+                if (stagePart(sysUploadTask, partNumber, inputStream, contentLength, md5)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                throw new SystemException(ResultCodeEnum.UPLOAD_FILE_FAILED.getCode(), "分片写入暂存区失败: " + e.getMessage());
+            }
+        }
+        UploadedPart uploadedPart = uploadPartToS3(sysUploadTask, partNumber, inputStream, contentLength, md5);
+        saveChunk(uploadId, partNumber, uploadedPart);
+        return true;
+    }
+
+    /**
+     * 一次请求上传同一个uploadId的多个分片，分片之间并发上传到S3，单个分片失败不影响其它分片
+     */
+    @Timed(value = "upload.phase", extraTags = {"phase", "partBatch"}, histogram = true)
+    @Override
+    public List<PartUploadResultVO> uploadParts(String uploadId, List<MultipartFile> files, List<Integer> partNumbers, List<String> md5s) {
+        if (files.size() != partNumbers.size()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片文件与分片编号数量不一致");
+        }
+        if (md5s != null && !md5s.isEmpty() && md5s.size() != files.size()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片文件与分片MD5数量不一致");
+        }
+        int maxParts = uploadProperties.getBatchPart().getMaxPartsPerRequest();
+        if (files.size() > maxParts) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "单次最多上传" + maxParts + "个分片");
+        }
+        if (new HashSet<>(partNumbers).size() != partNumbers.size()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片编号重复");
+        }
+        // 整批只查一次任务
+        SysUploadTask sysUploadTask = getTaskByUploadId(uploadId);
+
+        List<CompletableFuture<PartUploadResultVO>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            int partNumber = partNumbers.get(i);
+            String md5 = md5s == null || md5s.isEmpty() ? null : md5s.get(i);
+            CompletableFuture<PartUploadResultVO> future;
+            if (partNumber < 1 || partNumber > sysUploadTask.getTotalChunks()) {
+                future = CompletableFuture.completedFuture(PartUploadResultVO.builder()
+                        .partNumber(partNumber).success(false).message("分片编号超出范围").build());
+            } else {
+                future = CompletableFuture.supplyAsync(() -> {
+                    try (InputStream inputStream = file.getInputStream()) {
+                        UploadedPart uploadedPart = uploadPartToS3(sysUploadTask, partNumber, inputStream, file.getSize(), md5);
+                        saveChunk(uploadId, partNumber, uploadedPart);
+                        return PartUploadResultVO.builder().partNumber(partNumber).success(true).etag(uploadedPart.etag).build();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, s3TransferExecutor).exceptionally(throwable -> {
+                    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                            ? throwable.getCause() : throwable;
+                    log.warn("批量上传分片失败，uploadId: {}, partNumber: {}", uploadId, partNumber, cause);
+                    return PartUploadResultVO.builder()
+                            .partNumber(partNumber).success(false).message(cause.getMessage()).build();
+                });
+            }
+            futures.add(future);
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    /**
+     * 把分片写入本地暂存区，暂存区已满时返回false
+     */
+    private boolean stagePart(SysUploadTask sysUploadTask, int partNumber, InputStream inputStream, long size, String md5) throws IOException {
+        uploadMetrics.partStarted();
+        try {
+            boolean staged = partStagingArea.stage(sysUploadTask, partNumber, inputStream, size, md5);
+            if (staged) {
+                uploadMetrics.bytesIn(sysUploadTask.getBucketName(), size);
+            }
+            return staged;
+        } finally {
+            uploadMetrics.partFinished();
+        }
+    }
+
+    /**
+     * 把输入流作为一个分片上传到S3，转发的同时计算MD5，不额外读取一遍分片
+     * <p>
+     * 客户端声明了MD5时作为 Content-MD5 发给S3，由S3拒绝内容不符的分片，上传完成后再与本地计算结果比对；
+     * S3返回的ETag是MD5格式时同样比对，不一致的分片不记录，客户端重传即可覆盖
+     *
+     * @param declaredMd5 客户端声明的分片MD5（十六进制），可为空
+     */
+    private UploadedPart uploadPartToS3(SysUploadTask sysUploadTask, int partNumber, InputStream inputStream, long size, String declaredMd5) {
+        if (StrUtil.isNotBlank(declaredMd5) && !ChecksumUtil.isMd5Hex(declaredMd5)) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片MD5格式错误: " + declaredMd5);
+        }
+        uploadMetrics.partStarted();
+        try {
+            UploadedPart uploadedPart = forwardPartToS3(sysUploadTask, partNumber, inputStream, size, declaredMd5);
+            uploadMetrics.bytesIn(sysUploadTask.getBucketName(), size);
+            return uploadedPart;
+        } finally {
+            uploadMetrics.partFinished();
+        }
+    }
+
+    private UploadedPart forwardPartToS3(SysUploadTask sysUploadTask, int partNumber, InputStream inputStream, long size, String declaredMd5) {
+        DigestInputStream digestInputStream = new DigestInputStream(inputStream, DigestUtil.digester(DigestAlgorithm.MD5).getDigest());
+        // 声明了partSize后SDK按长度直接转发输入流，不会为了计算Content-Length把整个分片读进内存
+        UploadPartRequest uploadPartRequest = new UploadPartRequest()
+                .withBucketName(sysUploadTask.getBucketName())
+                .withKey(sysUploadTask.getObjectKey())
+                .withUploadId(sysUploadTask.getUploadId())
+                .withPartNumber(partNumber)
+                .withPartSize(size)
+                .withInputStream(digestInputStream);
+        if (StrUtil.isNotBlank(declaredMd5)) {
+            uploadPartRequest.setMd5Digest(ChecksumUtil.md5HexToBase64(declaredMd5));
+        }
+        String etag = amazonS3.uploadPart(uploadPartRequest).getETag();
+        String md5 = HexUtil.encodeHexStr(digestInputStream.getMessageDigest().digest());
+
+        if (StrUtil.isNotBlank(declaredMd5) && !md5.equalsIgnoreCase(declaredMd5)) {
+            throw new SystemException(ResultCodeEnum.UPLOAD_CHECKSUM_MISMATCH.getCode(),
+                    "分片" + partNumber + "内容与声明的MD5不一致，声明: " + declaredMd5 + ", 实际: " + md5);
+        }
+        String etagMd5 = ChecksumUtil.md5FromEtag(etag);
+        if (etagMd5 != null && !etagMd5.equals(md5)) {
+            throw new SystemException(ResultCodeEnum.UPLOAD_CHECKSUM_MISMATCH.getCode(),
+                    "分片" + partNumber + "的ETag与内容MD5不一致，ETag: " + etag + ", 实际: " + md5);
+        }
+        return new UploadedPart(etag, md5);
+    }
+
+    /**
+     * 已上传到S3的分片
+     */
+    private static final class UploadedPart {
+        private final String etag;
+        private final String md5;
+
+        private UploadedPart(String etag, String md5) {
+            this.etag = etag;
+            this.md5 = md5;
+        }
+    }
+
+    /**
+     * 为一段分片编号签发 UploadPart 预签名地址，前端拿到地址后直接把分片PUT到S3，字节不再经过本服务
+     */
+    @Timed(value = "upload.phase", extraTags = {"phase", "presign"}, histogram = true)
+    @Override
+    public List<PresignedPartVO> presignUploadParts(PresignPartParamDTO presignPartParamDTO) {
+        int start = presignPartParamDTO.getStartPartNumber();
+        int end = presignPartParamDTO.getEndPartNumber();
+        if (end < start) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "结束分片编号不能小于起始分片编号");
+        }
+        if (end - start + 1 > uploadProperties.getPresign().getMaxPartsPerRequest()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                    "单次最多签发" + uploadProperties.getPresign().getMaxPartsPerRequest() + "个分片地址");
+        }
+        SysUploadTask sysUploadTask = getTaskByUploadId(presignPartParamDTO.getUploadId());
+        if (end > sysUploadTask.getTotalChunks()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                    "分片编号超出总分片数: " + sysUploadTask.getTotalChunks());
+        }
+
+        long expireAt = System.currentTimeMillis() + uploadProperties.getPresign().getExpireSeconds() * 1000;
+        Date expiration = new Date(expireAt);
+        List<PresignedPartVO> presignedParts = new ArrayList<>(end - start + 1);
+        for (int partNumber = start; partNumber <= end; partNumber++) {
+            GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(
+                    sysUploadTask.getBucketName(), sysUploadTask.getObjectKey(), HttpMethod.PUT)
+                    .withExpiration(expiration);
+            request.addRequestParameter("uploadId", sysUploadTask.getUploadId());
+            request.addRequestParameter("partNumber", String.valueOf(partNumber));
+            // 签名在本地计算，不产生S3请求
+            URL url = amazonS3.generatePresignedUrl(request);
+            presignedParts.add(PresignedPartVO.builder()
+                    .partNumber(partNumber)
+                    .url(url.toString())
+                    .expireAt(expireAt)
+                    .build());
+        }
+        return presignedParts;
+    }
+
+    /**
+     * 记录前端直传到S3的分片，前端只回传分片编号和S3响应的ETag
+     */
+    @Timed(value = "upload.phase", extraTags = {"phase", "reportPart"}, histogram = true)
     @Override
-    @Transactional(rollbackFor = Exception.class)
-    public boolean uploadPart(MultipartFile file, String uploadId, int partNumber) throws Exception {
-
-        // 根据MD5查找上传任务
-        SysUploadTask sysUploadTask = getOne(new LambdaQueryWrapper<SysUploadTask>()
-                .eq(SysUploadTask::getUploadId, uploadId));
-        UploadPartResult uploadPartResult = amazonS3Template.uploadPart(uploadId, sysUploadTask.getObjectKey(), partNumber, file);
-        // 2. 保存分片信息（etag + partNumber）
+    public boolean reportPart(ReportPartParamDTO reportPartParamDTO) {
+        SysUploadTask sysUploadTask = getTaskForPart(reportPartParamDTO.getUploadId(), reportPartParamDTO.getPartNumber());
+        // 直传的字节不经过本服务，客户端回传的ETag不能作为分片MD5，不记录MD5，合并时按S3的分片列表补上
+        saveChunk(sysUploadTask.getUploadId(), reportPartParamDTO.getPartNumber(),
+                new UploadedPart(reportPartParamDTO.getEtag(), null));
+        return true;
+    }
+
+    /**
+     * 根据uploadId获取上传中的任务，不存在或已完成时抛出异常
+     */
+    private SysUploadTask getTaskByUploadId(String uploadId) {
+        SysUploadTask sysUploadTask = findByUploadId(uploadId);
+        if (ObjectUtils.isEmpty(sysUploadTask)) {
+            throw new SystemException(ResultCodeEnum.UPLOAD_FILE_FAILED.getCode(), "上传任务不存在: " + uploadId);
+        }
+        if (!Byte.valueOf((byte) 0).equals(sysUploadTask.getStatus())) {
+            throw new SystemException(ResultCodeEnum.UPLOAD_FILE_FAILED.getCode(), "上传任务不在上传中状态: " + uploadId);
+        }
+        return sysUploadTask;
+    }
+
+    /**
+     * 根据uploadId获取上传中的任务，并校验分片编号在 [1, totalChunks] 内
+     */
+    private SysUploadTask getTaskForPart(String uploadId, int partNumber) {
+        SysUploadTask sysUploadTask = getTaskByUploadId(uploadId);
+        if (partNumber < 1 || partNumber > sysUploadTask.getTotalChunks()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(),
+                    "分片编号超出总分片数: " + sysUploadTask.getTotalChunks());
+        }
+        return sysUploadTask;
+    }
+
+    /**
+     * 按文件标识查找上传任务，优先命中会话缓存
+     */
+    private SysUploadTask findByIdentifier(String identifier) {
+        // 同一文件可以存在于多个存储桶，只取当前存储桶的任务
+        String bucketName = amazonS3Template.getBucketName();
+        return uploadSessionCache.getByIdentifier(bucketName, identifier, () -> getOne(new LambdaQueryWrapper<SysUploadTask>()
+                .eq(SysUploadTask::getFileIdentifier, identifier)
+                .eq(SysUploadTask::getBucketName, bucketName)));
+    }
+
+    /**
+     * 按uploadId查找上传任务，优先命中会话缓存
+     */
+    private SysUploadTask findByUploadId(String uploadId) {
+        return uploadSessionCache.getByUploadId(uploadId, () -> getOne(new LambdaQueryWrapper<SysUploadTask>()
+                .eq(SysUploadTask::getUploadId, uploadId)));
+    }
+
+    /**
+     * 保存分片信息（etag + md5 + partNumber），先进入写后缓冲，批量写入分片表
+     */
+    private void saveChunk(String uploadId, int partNumber, UploadedPart uploadedPart) {
         SysUploadChunk sysUploadChunk = SysUploadChunk.builder()
                 .uploadId(uploadId)
                 .partNumber(partNumber)
-                .etag(uploadPartResult.getETag())
+                .etag(uploadedPart.etag)
+                .md5(uploadedPart.md5)
                 .build();
-        iSysUploadChunkService.save(sysUploadChunk);
-        return true;
+        chunkWriteBehindBuffer.add(sysUploadChunk);
+    }
+
+    /**
+     * 已上传的分片：分片表记录加上写后缓冲中尚未落库的记录，按分片编号升序
+     */
+    private List<SysUploadChunk> listChunks(String uploadId) {
+        // 先取未落库的记录：期间提交的批次会出现在随后查询的分片表中
+        List<SysUploadChunk> pendingChunks = chunkWriteBehindBuffer.pendingChunks(uploadId);
+        List<SysUploadChunk> chunks = iSysUploadChunkService.listByUploadId(uploadId);
+        return mergeChunks(chunks, pendingChunks);
+    }
+
+    /**
+     * 合并两组分片，同一分片编号以后一组为准，按分片编号升序
+     */
+    private static List<SysUploadChunk> mergeChunks(List<SysUploadChunk> chunks, List<SysUploadChunk> pendingChunks) {
+        if (pendingChunks.isEmpty()) {
+            return chunks;
+        }
+        TreeMap<Integer, SysUploadChunk> merged = new TreeMap<>();
+        chunks.forEach(chunk -> merged.put(chunk.getPartNumber(), chunk));
+        pendingChunks.forEach(chunk -> merged.put(chunk.getPartNumber(), chunk));
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public UploadPlanVO planUpload(long totalSize, String client) {
+        return chunkSizeAdvisor.plan(totalSize, client);
     }
 
     /**
-     * 初始化分片上传任务,当数据库中不存在该文件的上传任务时，进行初始化，并返回初始化后的上传ID，前端根据上传ID进行分片上传
+     * 初始化分片上传任务,当数据库中不存在该文件的上传任务时，进行初始化，并返回初始化后的上传ID，前端根据上传ID进行分片上传；
+     * 已存在相同文件的任务时按其状态返回（上传中、已完成、复制中、失败）；当前存储桶没有、其它存储桶已有相同文件时开始服务端复制并返回复制中
      */
+    @Timed(value = "upload.phase", extraTags = {"phase", "init"}, histogram = true)
     @Override
-    public String initMultiPartFile(InitTaskParamDTO initTaskParamDTO) {
+    public TaskInfoVO initMultiPartFile(InitTaskParamDTO initTaskParamDTO) {
         // 检查是否已存在相同的上传任务，
-        SysUploadTask sysUploadTask = getOne(new LambdaQueryWrapper<SysUploadTask>()
-                .eq(SysUploadTask::getFileIdentifier, initTaskParamDTO.getFileIdentifier()));
+        SysUploadTask sysUploadTask = findByIdentifier(initTaskParamDTO.getFileIdentifier());
 
-        String uploadId;
+        // 当前存储桶没有上传记录时，其它存储桶已有相同文件则在服务端复制过来，客户端不需要上传
+        if (ObjectUtils.isEmpty(sysUploadTask)) {
+            sysUploadTask = iCrossBucketCopyService.copyFromOtherBucket(initTaskParamDTO.getFileIdentifier());
+        }
 
-        // 按道理来说，sysUploadTask肯定是空的，因为需要当checkFileByMd5返回NOT_UPLOADED时，才会调用初始化，但还是做一下判断，以防万一
+        // 一般只有checkFileByMd5返回NOT_UPLOADED时才会调用初始化，但多节点部署时其它节点创建的任务在本节点布隆过滤器重建前
+        // 会被检查接口判定为一定不存在，客户端因此直接初始化，这里按已有任务的状态返回并补上布隆过滤器
         if (!ObjectUtils.isEmpty(sysUploadTask)) {
-            // 如果任务已存在，直接使用已有的信息
-            uploadId = sysUploadTask.getUploadId();
-        } else {
-            // 如果是第一次上传，初始化分片上传
-            LocalDateTime localDateTime = LocalDateTime.now();
-            String format = localDateTime.format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-            // 原文件名称
-            String originFileName = initTaskParamDTO.getFileName();
-            // 获取文件后缀
-            String suffix = FileUtil.extName(originFileName);
-            // 获取文件名称
-            String fileName = FileUtil.mainName(originFileName);
-            // 对文件重新命名，并以年月日文件夹格式存储
-            String objectKey = StrUtil.format("{}/{}_{}.{}", format, fileName, initTaskParamDTO.getFileIdentifier(), suffix);
-            // 设置内容类型
-            String contentType = MediaTypeFactory.getMediaType(objectKey)
-                    .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
-
-            // 初始化分片上传
-            InitiateMultipartUploadResult initiateMultipartUploadResult =
-                    amazonS3Template.initiateMultipartUpload(objectKey, contentType);
-            // 获取初始化后的上传ID
-            uploadId = initiateMultipartUploadResult.getUploadId();
-            // 创建新的上传任务记录
-            sysUploadTask = SysUploadTask.builder()
-                    .fileIdentifier(initTaskParamDTO.getFileIdentifier())
-                    .chunkSize(initTaskParamDTO.getChunkSize())
-                    .totalChunks(initTaskParamDTO.getChunkNum())
-                    .objectKey(objectKey)
-                    .fileName(initTaskParamDTO.getFileName())
-                    .bucketName(amazonS3Template.getBucketName())
-                    .totalSize(initTaskParamDTO.getTotalSize())
-                    .uploadId(uploadId)
-                    .status((byte) 0)
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
+            fileIdentifierBloomFilter.put(sysUploadTask.getFileIdentifier());
+            TaskInfoVO existing = handleExistingTask(sysUploadTask);
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        // 第一次上传，先校验分片划分，超过S3分片数上限的任务到合并时才失败
+        chunkSizeAdvisor.validate(initTaskParamDTO.getTotalSize(), initTaskParamDTO.getChunkSize(), initTaskParamDTO.getChunkNum());
+        LocalDateTime localDateTime = LocalDateTime.now();
+        String format = localDateTime.format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+        // 原文件名称
+        String originFileName = initTaskParamDTO.getFileName();
+        // 获取文件后缀
+        String suffix = FileUtil.extName(originFileName);
+        // 获取文件名称
+        String fileName = FileUtil.mainName(originFileName);
+        // 对文件重新命名，并以年月日文件夹格式存储
+        String objectKey = StrUtil.format("{}/{}_{}.{}", format, fileName, initTaskParamDTO.getFileIdentifier(), suffix);
+        // 设置内容类型
+        String contentType = MediaTypeFactory.getMediaType(objectKey)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+
+        // 初始化分片上传
+        InitiateMultipartUploadResult initiateMultipartUploadResult =
+                amazonS3Template.initiateMultipartUpload(objectKey, contentType);
+        // 获取初始化后的上传ID
+        String uploadId = initiateMultipartUploadResult.getUploadId();
+        // 创建新的上传任务记录
+        sysUploadTask = SysUploadTask.builder()
+                .fileIdentifier(initTaskParamDTO.getFileIdentifier())
+                .chunkSize(initTaskParamDTO.getChunkSize())
+                .totalChunks(initTaskParamDTO.getChunkNum())
+                .objectKey(objectKey)
+                .fileName(initTaskParamDTO.getFileName())
+                .bucketName(amazonS3Template.getBucketName())
+                .totalSize(initTaskParamDTO.getTotalSize())
+                .uploadId(uploadId)
+                .status((byte) 0)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        // 保存到数据库
+        save(sysUploadTask);
+        // 后续分片上传直接从缓存取任务信息
+        uploadSessionCache.put(sysUploadTask);
+        fileIdentifierBloomFilter.put(sysUploadTask.getFileIdentifier());
+        return TaskInfoVO.builder()
+                .code(ResultCodeEnum.UPLOADING.getCode())
+                .uploadId(uploadId)
+                .exitPartList(Collections.emptyList())
+                .url("")
+                .build();
+    }
+
+    /**
+     * 初始化时相同文件已有任务：上传中返回其uploadId，已完成按秒传返回地址，复制中返回复制状态，失败返回上传失败；
+     * 跨存储桶复制已放弃（任务已删除）时返回null，由调用方重新初始化
+     */
+    private TaskInfoVO handleExistingTask(SysUploadTask sysUploadTask) {
+        TaskInfoVO taskInfoVO = new TaskInfoVO();
+        Byte status = sysUploadTask.getStatus();
+        if (Byte.valueOf((byte) 0).equals(status)) {
+            taskInfoVO.setCode(ResultCodeEnum.UPLOADING.getCode());
+            taskInfoVO.setUploadId(sysUploadTask.getUploadId());
+            taskInfoVO.setExitPartList(Collections.emptyList());
+            taskInfoVO.setUrl("");
+            return taskInfoVO;
+        }
+        if (Byte.valueOf((byte) 1).equals(status)) {
+            return handleCompletedUpload(sysUploadTask, taskInfoVO);
+        }
+        if (Byte.valueOf((byte) 3).equals(status)) {
+            taskInfoVO = handleCopyingTask(sysUploadTask, taskInfoVO);
+            return ResultCodeEnum.NOT_UPLOADED.getCode().equals(taskInfoVO.getCode()) ? null : taskInfoVO;
+        }
+        taskInfoVO.setCode(ResultCodeEnum.UPLOAD_FILE_FAILED.getCode());
+        taskInfoVO.setExitPartList(Collections.emptyList());
+        taskInfoVO.setUploadId("");
+        taskInfoVO.setUrl("");
+        return taskInfoVO;
+    }
+
+    /**
+     * 增量上传初始化：创建（或复用）上传任务后，按分片MD5在已完成的文件中查找内容相同的分片，
+     * 用 UploadPartCopy 在S3内部复制到新对象，只有变化的分片需要客户端上传
+     * <p>
+     * 只匹配分片大小相同的文件，并要求源分片与目标分片长度一致（最后一个分片可能较短）；
+     * 复制失败的分片不影响整体，留给客户端上传
+     */
+    @Timed(value = "upload.phase", extraTags = {"phase", "initDelta"}, histogram = true)
+    @Override
+    public DeltaInitVO initDeltaUpload(DeltaInitParamDTO deltaInitParamDTO) {
+        List<String> chunkHashes = deltaInitParamDTO.getChunkHashes();
+        if (chunkHashes.size() != deltaInitParamDTO.getChunkNum()) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片MD5数量与分片数量不一致");
+        }
+        for (String chunkHash : chunkHashes) {
+            if (!ChecksumUtil.isMd5Hex(chunkHash)) {
+                throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分片MD5格式错误: " + chunkHash);
+            }
+        }
+        TaskInfoVO taskInfoVO = initMultiPartFile(deltaInitParamDTO);
+        String uploadId = taskInfoVO.getUploadId();
+        // 不经过上传中状态校验：相同文件可能已完成、已失败或正在从其它存储桶复制（此时没有uploadId）
+        SysUploadTask sysUploadTask = findByIdentifier(deltaInitParamDTO.getFileIdentifier());
+        if (!ResultCodeEnum.UPLOADING.getCode().equals(taskInfoVO.getCode())
+                || ObjectUtils.isEmpty(sysUploadTask) || !Byte.valueOf((byte) 0).equals(sysUploadTask.getStatus())) {
+            // 相同文件已完成（秒传）、复制中或已失败，不再复制分片
+            return DeltaInitVO.builder()
+                    .code(taskInfoVO.getCode())
+                    .uploadId(StrUtil.nullToEmpty(uploadId))
+                    .url(taskInfoVO.getUrl())
+                    .reusedParts(Collections.emptyList())
+                    .reusedBytes(0L)
                     .build();
-            // 保存到数据库
-            save(sysUploadTask);
         }
-        return uploadId;
+
+        Set<Integer> readyParts = listChunks(uploadId).stream()
+                .map(SysUploadChunk::getPartNumber)
+                .collect(Collectors.toCollection(TreeSet::new));
+        List<String> normalizedHashes = chunkHashes.stream()
+                .map(hash -> hash.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toList());
+        Map<String, ReusableChunkDTO> sources = iSysUploadChunkService.listReusableChunks(normalizedHashes, sysUploadTask.getChunkSize());
+
+        int copyConcurrency = Math.max(1, uploadProperties.getDelta().getCopyConcurrency());
+        Semaphore permits = new Semaphore(copyConcurrency);
+        Map<Integer, CompletableFuture<Long>> copies = new TreeMap<>();
+        try {
+            for (int partNumber = 1; partNumber <= sysUploadTask.getTotalChunks(); partNumber++) {
+                if (readyParts.contains(partNumber)) {
+                    continue;
+                }
+                String chunkHash = normalizedHashes.get(partNumber - 1);
+                long partLength = partLength(sysUploadTask.getTotalSize(), sysUploadTask.getChunkSize(), sysUploadTask.getTotalChunks(), partNumber);
+                ReusableChunkDTO source = sources.get(chunkHash);
+                if (source == null
+                        || partLength(source.getTotalSize(), sysUploadTask.getChunkSize(), source.getTotalChunks(), source.getPartNumber()) != partLength) {
+                    continue;
+                }
+                int targetPartNumber = partNumber;
+                permits.acquire();
+                CompletableFuture<Long> future;
+                try {
+                    future = CompletableFuture.supplyAsync(
+                            () -> copyPart(sysUploadTask, targetPartNumber, chunkHash, partLength, source), s3TransferExecutor);
+                } catch (TaskRejectedException e) {
+                    // 传输线程池已满，剩余分片交给客户端上传
+                    permits.release();
+                    break;
+                }
+                future.whenComplete((bytes, throwable) -> permits.release());
+                copies.put(targetPartNumber, future);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long reusedBytes = 0;
+        for (Map.Entry<Integer, CompletableFuture<Long>> entry : copies.entrySet()) {
+            Long bytes = entry.getValue().exceptionally(throwable -> {
+                log.warn("复制已有分片失败，由客户端上传，uploadId: {}, partNumber: {}", uploadId, entry.getKey(), throwable);
+                return null;
+            }).join();
+            if (bytes != null) {
+                readyParts.add(entry.getKey());
+                reusedBytes += bytes;
+            }
+        }
+        log.info("增量上传初始化完成，uploadId: {}, 分片数: {}, 已就绪分片: {}, 复制字节: {}",
+                uploadId, sysUploadTask.getTotalChunks(), readyParts.size(), reusedBytes);
+        return DeltaInitVO.builder()
+                .code(ResultCodeEnum.UPLOADING.getCode())
+                .uploadId(uploadId)
+                .url("")
+                .reusedParts(new ArrayList<>(readyParts))
+                .reusedBytes(reusedBytes)
+                .build();
     }
 
+    /**
+     * 在S3内部把源对象的一段复制为目标上传的一个分片，返回复制的字节数
+     */
+    private long copyPart(SysUploadTask sysUploadTask, int partNumber, String chunkHash, long partLength, ReusableChunkDTO source) {
+        long firstByte = (long) (source.getPartNumber() - 1) * sysUploadTask.getChunkSize();
+        CopyPartRequest copyPartRequest = new CopyPartRequest()
+                .withSourceBucketName(source.getBucketName())
+                .withSourceKey(source.getObjectKey())
+                .withDestinationBucketName(sysUploadTask.getBucketName())
+                .withDestinationKey(sysUploadTask.getObjectKey())
+                .withUploadId(sysUploadTask.getUploadId())
+                .withPartNumber(partNumber)
+                .withFirstByte(firstByte)
+                .withLastByte(firstByte + partLength - 1);
+        String etag = amazonS3.copyPart(copyPartRequest).getETag();
+        String etagMd5 = ChecksumUtil.md5FromEtag(etag);
+        if (etagMd5 != null && !etagMd5.equals(chunkHash)) {
+            throw new IllegalStateException("复制的分片MD5不一致，期望: " + chunkHash + ", ETag: " + etag);
+        }
+        saveChunk(sysUploadTask.getUploadId(), partNumber, new UploadedPart(etag, chunkHash));
+        return partLength;
+    }
+
+    /**
+     * 第 partNumber 个分片的长度，只有最后一个分片可能小于分片大小
+     */
+    private static long partLength(long totalSize, long chunkSize, int totalChunks, int partNumber) {
+        return partNumber < totalChunks ? chunkSize : totalSize - (long) (totalChunks - 1) * chunkSize;
+    }
+
+    @Timed(value = "upload.phase", extraTags = {"phase", "merge"}, histogram = true)
     @Override
     public String mergeMultipartUpload(String md5) {
         String url = "";
-        SysUploadTask sysUploadTask = getOne(new LambdaQueryWrapper<SysUploadTask>()
-                .eq(SysUploadTask::getFileIdentifier, md5));
-        CompleteMultipartUploadResult completeMultipartUploadResult = amazonS3Template.completeMultipartUpload(sysUploadTask.getObjectKey(), sysUploadTask.getUploadId());
+        SysUploadTask sysUploadTask = findByIdentifier(md5);
+        if (ObjectUtils.isEmpty(sysUploadTask)) {
+            throw new SystemException(ResultCodeEnum.UPLOAD_FILE_FAILED.getCode(), "上传任务不存在: " + md5);
+        }
+        // 重复合并直接返回地址
+        if (Byte.valueOf((byte) 1).equals(sysUploadTask.getStatus())) {
+            return amazonS3Template.getGatewayUrl(sysUploadTask.getBucketName(), sysUploadTask.getObjectKey());
+        }
+
+        // 暂存区中的分片先全部写入S3，写后缓冲中的分片记录再落库，然后用分片表中保存的ETag组装合并请求，一次索引查询拿到全部分片
+        awaitStagedParts(sysUploadTask.getUploadId());
+        chunkWriteBehindBuffer.flush();
+        List<SysUploadChunk> chunks = iSysUploadChunkService.listByUploadId(sysUploadTask.getUploadId());
+        List<Integer> missingParts = findMissingParts(sysUploadTask, chunks);
+        if (!missingParts.isEmpty() || chunks.stream().anyMatch(chunk -> chunk.getMd5() == null)) {
+            // 分片表可能漏记了已上传到S3的分片，直传分片没有可信的MD5，以S3为准校正一次后再判断
+            chunks = iSysUploadChunkService.reconcileWithS3(sysUploadTask);
+            missingParts = findMissingParts(sysUploadTask, chunks);
+            if (!missingParts.isEmpty()) {
+                throw new SystemException(ResultCodeEnum.UPLOAD_PARTS_MISSING.getCode(),
+                        "分片不完整，缺失分片: " + formatPartNumbers(missingParts));
+            }
+        }
+        verifyMerkleRoot(sysUploadTask, chunks);
+        int totalChunks = sysUploadTask.getTotalChunks();
+        List<PartETag> partETags = chunks.stream()
+                .filter(chunk -> chunk.getPartNumber() <= totalChunks)
+                .map(chunk -> new PartETag(chunk.getPartNumber(), chunk.getEtag()))
+                .collect(Collectors.toList());
+        CompleteMultipartUploadResult completeMultipartUploadResult = amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(
+                sysUploadTask.getBucketName(), sysUploadTask.getObjectKey(), sysUploadTask.getUploadId(), partETags));
         if (!ObjectUtils.isEmpty(completeMultipartUploadResult)) {
-            url = amazonS3Template.getGatewayUrl(sysUploadTask.getObjectKey());
+            url = amazonS3Template.getGatewayUrl(sysUploadTask.getBucketName(), sysUploadTask.getObjectKey());
             sysUploadTask.setStatus((byte) 1);
             updateById(sysUploadTask);
+            uploadSessionCache.invalidate(sysUploadTask);
         }
         return url;
     }
 
 
+    private void awaitStagedParts(String uploadId) {
+        boolean drained;
+        try {
+            drained = partStagingArea.awaitDrained(uploadId, uploadProperties.getStaging().getMergeWaitSeconds(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        }
+        if (!drained) {
+            throw new SystemException(ResultCodeEnum.UPLOAD_FILE_FAILED.getCode(), "分片仍在写入S3，请稍后重试合并");
+        }
+    }
+
+    /**
+     * 用分片表中记录的分片MD5按前端相同的规则计算默克尔树根，与任务的文件标识比对，不需要再读取一遍对象。
+     * 以S3校正后仍有分片没有MD5（S3返回的ETag不是内容MD5，如SSE-KMS加密）时无法计算，跳过校验
+     */
+    private void verifyMerkleRoot(SysUploadTask sysUploadTask, List<SysUploadChunk> chunks) {
+        int totalChunks = sysUploadTask.getTotalChunks();
+        List<String> leafHashes = new ArrayList<>(totalChunks);
+        for (SysUploadChunk chunk : chunks) {
+            if (chunk.getPartNumber() > totalChunks) {
+                continue;
+            }
+            if (chunk.getMd5() == null) {
+                log.warn("存在未记录MD5的分片，跳过默克尔树校验，uploadId: {}, partNumber: {}",
+                        sysUploadTask.getUploadId(), chunk.getPartNumber());
+                return;
+            }
+            leafHashes.add(chunk.getMd5());
+        }
+        String merkleRoot = ChecksumUtil.merkleRoot(leafHashes);
+        if (!merkleRoot.equalsIgnoreCase(sysUploadTask.getFileIdentifier())) {
+            throw new SystemException(ResultCodeEnum.UPLOAD_CHECKSUM_MISMATCH.getCode(),
+                    "文件校验失败，分片计算的默克尔树根: " + merkleRoot + ", 文件标识: " + sysUploadTask.getFileIdentifier());
+        }
+    }
+
+    /**
+     * 找出 [1, totalChunks] 中分片表没有记录的分片编号，chunks需按分片编号升序
+     */
+    private List<Integer> findMissingParts(SysUploadTask sysUploadTask, List<SysUploadChunk> chunks) {
+        List<Integer> missingParts = new ArrayList<>();
+        int expected = 1;
+        for (SysUploadChunk chunk : chunks) {
+            int partNumber = chunk.getPartNumber();
+            if (partNumber > sysUploadTask.getTotalChunks()) {
+                break;
+            }
+            while (expected < partNumber) {
+                missingParts.add(expected++);
+            }
+            if (partNumber == expected) {
+                expected++;
+            }
+        }
+        while (expected <= sysUploadTask.getTotalChunks()) {
+            missingParts.add(expected++);
+        }
+        return missingParts;
+    }
+
+    /**
+     * 把升序的分片编号压缩成区间，例如 1-3,7,9-12
+     */
+    private static String formatPartNumbers(List<Integer> partNumbers) {
+        StringBuilder stringBuilder = new StringBuilder();
+        int i = 0;
+        while (i < partNumbers.size()) {
+            int start = partNumbers.get(i);
+            int end = start;
+            while (i + 1 < partNumbers.size() && partNumbers.get(i + 1) == end + 1) {
+                end = partNumbers.get(++i);
+            }
+            if (stringBuilder.length() > 0) {
+                stringBuilder.append(',');
+            }
+            stringBuilder.append(start);
+            if (end > start) {
+                stringBuilder.append('-').append(end);
+            }
+            i++;
+        }
+        return stringBuilder.toString();
+    }
+
     /**
      * 处理已完成的上传任务
      */
@@ -183,6 +850,29 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
         return taskInfoVO;
     }
 
+    /**
+     * 处理从其它存储桶复制中的任务：作业丢失（服务重启）时重新提交，复制已结束时按最新状态返回
+     */
+    private TaskInfoVO handleCopyingTask(SysUploadTask sysUploadTask, TaskInfoVO taskInfoVO) {
+        SysUploadTask current = iCrossBucketCopyService.resumeIfStalled(sysUploadTask);
+        taskInfoVO.setExitPartList(Collections.emptyList());
+        taskInfoVO.setUrl("");
+        taskInfoVO.setUploadId("");
+        if (current == null) {
+            taskInfoVO.setCode(ResultCodeEnum.NOT_UPLOADED.getCode());
+        } else if (Byte.valueOf((byte) 1).equals(current.getStatus())) {
+            return handleCompletedUpload(current, taskInfoVO);
+        } else {
+            taskInfoVO.setCode(ResultCodeEnum.COPYING.getCode());
+        }
+        return taskInfoVO;
+    }
+
+    @Override
+    public CopyJobVO getCopyProgress(String md5) {
+        return iCrossBucketCopyService.getProgress(md5);
+    }
+
     @Override
     public List<FileListVO> getFileList(String fileName) {
         // 查询所有已完成上传的文件（status = 1）
@@ -194,17 +884,173 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
         List<SysUploadTask> completedTasks = list(queryWrapper);
 
         // 转换为FileListVO
-        return completedTasks.stream().map(task -> {
-            String url = amazonS3Template.getGatewayUrl(task.getObjectKey());
-            return FileListVO.builder()
-                    .id(task.getId())
-                    .originFileName(task.getFileName())
-                    .size(task.getTotalSize())
-                    .url(url)
-                    .uploadTime(task.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")))
-                    .md5(task.getFileIdentifier())
-                    .build();
-        }).collect(Collectors.toList());
+        return completedTasks.stream().map(this::toFileListVO).collect(Collectors.toList());
+    }
+
+    /**
+     * 游标分页查询已完成的文件
+     * <p>
+     * 不传文件名时按 (created_at, id) 倒序，走 idx_status_created_id；传文件名时按前缀匹配并按 (file_name, id) 正序，
+     * 走 idx_status_file_name。两种模式都以上一页最后一行作为起点，只扫描 pageSize + 1 行，耗时与表大小无关
+     */
+    @Override
+    public CursorPageVO<FileListVO> getFilePage(FilePageQueryDTO query) {
+        int pageSize = query.getPageSize();
+        boolean prefixMode = StrUtil.isNotBlank(query.getFileName());
+        String[] cursor = decodeCursor(query.getCursor(), prefixMode);
+
+        LambdaQueryWrapper<SysUploadTask> queryWrapper = new LambdaQueryWrapper<SysUploadTask>()
+                .select(SysUploadTask::getId, SysUploadTask::getFileName, SysUploadTask::getTotalSize,
+                        SysUploadTask::getBucketName, SysUploadTask::getObjectKey, SysUploadTask::getCreatedAt, SysUploadTask::getFileIdentifier)
+                .eq(SysUploadTask::getStatus, (byte) 1);
+        if (prefixMode) {
+            queryWrapper.likeRight(SysUploadTask::getFileName, escapeLike(query.getFileName()));
+            if (cursor != null) {
+                String lastName = cursor[0];
+                long lastId = Long.parseLong(cursor[1]);
+                queryWrapper.and(w -> w.gt(SysUploadTask::getFileName, lastName)
+                        .or(o -> o.eq(SysUploadTask::getFileName, lastName).gt(SysUploadTask::getId, lastId)));
+            }
+            queryWrapper.orderByAsc(SysUploadTask::getFileName).orderByAsc(SysUploadTask::getId);
+        } else {
+            if (cursor != null) {
+                LocalDateTime lastCreatedAt = LocalDateTime.parse(cursor[0]);
+                long lastId = Long.parseLong(cursor[1]);
+                queryWrapper.and(w -> w.lt(SysUploadTask::getCreatedAt, lastCreatedAt)
+                        .or(o -> o.eq(SysUploadTask::getCreatedAt, lastCreatedAt).lt(SysUploadTask::getId, lastId)));
+            }
+            queryWrapper.orderByDesc(SysUploadTask::getCreatedAt).orderByDesc(SysUploadTask::getId);
+        }
+        // 多取一行用于判断是否还有下一页，不执行count
+        queryWrapper.last("LIMIT " + (pageSize + 1));
+
+        List<SysUploadTask> tasks = list(queryWrapper);
+        boolean hasMore = tasks.size() > pageSize;
+        String nextCursor = null;
+        if (hasMore) {
+            tasks = tasks.subList(0, pageSize);
+            SysUploadTask last = tasks.get(tasks.size() - 1);
+            nextCursor = encodeCursor(prefixMode, prefixMode ? last.getFileName() : last.getCreatedAt().toString(), last.getId());
+        }
+        return CursorPageVO.<FileListVO>builder()
+                .records(tasks.stream().map(this::toFileListVO).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * 通过MyBatis游标逐行读取并写出，内存中只保留当前行；游标依赖连接保持打开，因此整个导出在只读事务内完成
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportFiles(FileExportQueryDTO query, OutputStream outputStream) throws IOException {
+        boolean csv = "csv".equals(query.getFormat());
+        // 复用接口统一的ObjectMapper配置，逐行写出时不能关闭底层输出流
+        ObjectWriter objectWriter = mappingJackson2HttpMessageConverter.getObjectMapper()
+                .writerFor(FileListVO.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        long count = 0;
+        try (Cursor<SysUploadTask> cursor = baseMapper.streamTasks(query.getStatus(), query.getStartTime(), query.getEndTime())) {
+            if (csv) {
+                writer.write("id,originFileName,size,md5,url,uploadTime\n");
+            }
+            for (SysUploadTask task : cursor) {
+                FileListVO fileListVO = toFileListVO(task);
+                if (csv) {
+                    writeCsvRow(writer, fileListVO);
+                } else {
+                    objectWriter.writeValue(writer, fileListVO);
+                    writer.write('\n');
+                }
+                count++;
+            }
+        }
+        writer.flush();
+        log.info("导出文件目录完成，格式: {}, 行数: {}", query.getFormat(), count);
+        return count;
+    }
+
+    private static void writeCsvRow(Writer writer, FileListVO fileListVO) throws IOException {
+        writer.write(String.valueOf(fileListVO.getId()));
+        writer.write(',');
+        writer.write(escapeCsv(fileListVO.getOriginFileName()));
+        writer.write(',');
+        writer.write(String.valueOf(fileListVO.getSize()));
+        writer.write(',');
+        writer.write(escapeCsv(fileListVO.getMd5()));
+        writer.write(',');
+        writer.write(escapeCsv(fileListVO.getUrl()));
+        writer.write(',');
+        writer.write(escapeCsv(fileListVO.getUploadTime()));
+        writer.write('\n');
+    }
+
+    /**
+     * 按RFC 4180转义CSV字段，包含逗号、引号或换行时用引号包裹
+     */
+    private static String escapeCsv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private FileListVO toFileListVO(SysUploadTask task) {
+        return FileListVO.builder()
+                .id(task.getId())
+                .originFileName(task.getFileName())
+                .size(task.getTotalSize())
+                .url(amazonS3Template.getGatewayUrl(task.getBucketName(), task.getObjectKey()))
+                .uploadTime(task.getCreatedAt().format(UPLOAD_TIME_FORMATTER))
+                .md5(task.getFileIdentifier())
+                .build();
+    }
+
+    /**
+     * 游标格式为 模式|排序值|id 的URL安全Base64，模式不一致（换了查询条件）时视为非法游标
+     */
+    private static String encodeCursor(boolean prefixMode, String sortValue, Long id) {
+        return Base64.encodeUrlSafe((prefixMode ? CURSOR_MODE_NAME : CURSOR_MODE_TIME) + "|" + sortValue + "|" + id);
+    }
+
+    /**
+     * 解析游标，返回 [排序值, id]，未传游标时返回null
+     */
+    private static String[] decodeCursor(String cursor, boolean prefixMode) {
+        if (StrUtil.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            String raw = Base64.decodeStr(cursor);
+            // 文件名中可能包含分隔符，模式取第一个分隔符之前，id取最后一个分隔符之后
+            int first = raw.indexOf('|');
+            int last = raw.lastIndexOf('|');
+            String mode = raw.substring(0, first);
+            if (first == last || !mode.equals(prefixMode ? CURSOR_MODE_NAME : CURSOR_MODE_TIME)) {
+                throw new IllegalArgumentException(cursor);
+            }
+            String sortValue = raw.substring(first + 1, last);
+            String id = raw.substring(last + 1);
+            Long.parseLong(id);
+            if (!prefixMode) {
+                LocalDateTime.parse(sortValue);
+            }
+            return new String[]{sortValue, id};
+        } catch (RuntimeException e) {
+            throw new SystemException(ResultCodeEnum.REQUEST_PARAMETER_ERROR.getCode(), "分页游标无效");
+        }
+    }
+
+    /**
+     * 转义LIKE通配符，保证前缀查询只匹配字面量并能使用索引
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     @Override
@@ -217,17 +1063,25 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
                 return false;
             }
 
-            // 从S3删除文件
-            amazonS3Template.removeObject(uploadTask.getObjectKey());
+            // 从S3删除文件，文件可能在其它存储桶（切换存储桶前上传），按任务记录的存储桶删除
+            amazonS3.deleteObject(uploadTask.getBucketName(), uploadTask.getObjectKey());
 
             // 从数据库删除记录
             boolean removed = removeById(fileId);
+            uploadSessionCache.invalidate(uploadTask);
+            fileIdentifierBloomFilter.markDeleted(uploadTask.getFileIdentifier());
 
-            boolean remove = iSysUploadChunkService.remove(new LambdaQueryWrapper<SysUploadChunk>().eq(SysUploadChunk::getUploadId, uploadTask.getUploadId()));
-            if (removed && remove) {
+            // 从其它存储桶复制的文件没有uploadId，也没有分片记录；没有分片记录时remove返回false，不影响删除结果
+            String uploadId = uploadTask.getUploadId();
+            if (StrUtil.isNotEmpty(uploadId)) {
+                chunkWriteBehindBuffer.discard(uploadId);
+                partStagingArea.discard(uploadId);
+                iSysUploadChunkService.remove(new LambdaQueryWrapper<SysUploadChunk>().eq(SysUploadChunk::getUploadId, uploadId));
+            }
+            if (removed) {
                 log.info("文件删除成功，ID: {}, 文件名: {}", fileId, uploadTask.getFileName());
             }
-            return removed && remove;
+            return removed;
         } catch (Exception e) {
             log.error("删除文件失败，ID: {}", fileId, e);
             return false;
@@ -235,21 +1089,23 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
     }
 
     /**
-     * 处理正在上传中的任务
+     * 处理正在上传中的任务，已上传分片从分片表读取；分片表与任务信息对不上时才分页列出S3分片校正。
+     * 已暂存尚未写入S3的分片同样视为已上传，客户端不必重传
      */
     private TaskInfoVO handleUploadingTask(SysUploadTask sysUploadTask, TaskInfoVO taskInfoVO) {
         try {
-            // 列出一个正在进行的分片上传操作的所有已上传部分
-            PartListing partListing = amazonS3Template.listParts(
-                    sysUploadTask.getBucketName(),
-                    sysUploadTask.getObjectKey(),
-                    sysUploadTask.getUploadId());
+            List<SysUploadChunk> chunks = listChunks(sysUploadTask.getUploadId());
+            if (!isChunkListConsistent(sysUploadTask, chunks)) {
+                chunks = iSysUploadChunkService.reconcileWithS3(sysUploadTask);
+            }
+            chunks = mergeChunks(chunks, partStagingArea.pendingChunks(sysUploadTask.getUploadId()));
             taskInfoVO.setCode(ResultCodeEnum.UPLOADING.getCode());
             taskInfoVO.setUrl("");
-            taskInfoVO.setExitPartList(partListing.getParts());
+            taskInfoVO.setExitPartList(toPartSummaries(chunks));
             taskInfoVO.setUploadId(sysUploadTask.getUploadId());
         } catch (Exception e) {
             // 如果获取分片信息失败，返回未上传状态
+            log.warn("获取分片信息失败，uploadId: {}", sysUploadTask.getUploadId(), e);
             taskInfoVO.setCode(ResultCodeEnum.NOT_UPLOADED.getCode());
             taskInfoVO.setUrl("");
             taskInfoVO.setUploadId("");
@@ -258,4 +1114,32 @@ public class SysUploadTaskServiceImpl extends ServiceImpl<SysUploadTaskMapper, S
         return taskInfoVO;
     }
 
+    /**
+     * 分片编号必须落在 [1, totalChunks] 内且数量不超过总分片数
+     */
+    private boolean isChunkListConsistent(SysUploadTask sysUploadTask, List<SysUploadChunk> chunks) {
+        Integer totalChunks = sysUploadTask.getTotalChunks();
+        if (totalChunks == null || chunks.size() > totalChunks) {
+            return false;
+        }
+        for (SysUploadChunk chunk : chunks) {
+            if (chunk.getPartNumber() < 1 || chunk.getPartNumber() > totalChunks) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<PartSummary> toPartSummaries(List<SysUploadChunk> chunks) {
+        List<PartSummary> partSummaries = new ArrayList<>(chunks.size());
+        for (SysUploadChunk chunk : chunks) {
+            PartSummary partSummary = new PartSummary();
+            partSummary.setPartNumber(chunk.getPartNumber());
+            partSummary.setETag(chunk.getEtag());
+            partSummary.setLastModified(chunk.getCreatedAt());
+            partSummaries.add(partSummary);
+        }
+        return partSummaries;
+    }
+
 }
@@ -0,0 +1,73 @@
+package com.zsq.awss3uploadapi.utils;
+
+import cn.hutool.crypto.SecureUtil;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 分片校验相关的工具方法
+ */
+public final class ChecksumUtil {
+
+    private static final Pattern MD5_HEX = Pattern.compile("^[0-9a-fA-F]{32}$");
+
+    private ChecksumUtil() {
+    }
+
+    /**
+     * 是否为32位十六进制MD5
+     */
+    public static boolean isMd5Hex(String value) {
+        return value != null && MD5_HEX.matcher(value).matches();
+    }
+
+    /**
+     * 十六进制MD5转为 Content-MD5 请求头需要的Base64格式
+     */
+    public static String md5HexToBase64(String md5Hex) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            bytes[i] = (byte) Integer.parseInt(md5Hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * 从分片的ETag中取出MD5：普通上传（非SSE-KMS）的分片ETag就是分片内容的MD5，带引号时去掉引号；
+     * 不是MD5格式时返回null
+     */
+    public static String md5FromEtag(String etag) {
+        if (etag == null) {
+            return null;
+        }
+        String value = etag.startsWith("\"") && etag.endsWith("\"") && etag.length() > 1
+                ? etag.substring(1, etag.length() - 1) : etag;
+        return isMd5Hex(value) ? value.toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * 按前端 MerkleTree.ts 的规则计算默克尔树根：叶子为分片MD5的十六进制字符串，
+     * 父节点为左右子节点十六进制字符串拼接后的MD5，落单的节点原样提升到上一层
+     *
+     * @param leafHashes 按分片编号升序排列的分片MD5
+     * @return 树根
+     */
+    public static String merkleRoot(List<String> leafHashes) {
+        if (leafHashes.isEmpty()) {
+            throw new IllegalArgumentException("Empty Nodes");
+        }
+        List<String> level = leafHashes;
+        while (level.size() > 1) {
+            List<String> parents = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                parents.add(i + 1 < level.size() ? SecureUtil.md5(level.get(i) + level.get(i + 1)) : level.get(i));
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+}
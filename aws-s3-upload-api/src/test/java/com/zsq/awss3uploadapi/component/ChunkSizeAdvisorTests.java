@@ -0,0 +1,70 @@
+package com.zsq.awss3uploadapi.component;
+
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.vo.UploadPlanVO;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ChunkSizeAdvisorTests {
+
+    private static final long MB = 1024 * 1024;
+
+    private final ChunkSizeAdvisor advisor = new ChunkSizeAdvisor(new UploadProperties());
+
+    @Test
+    void defaultPlanWithoutSamples() {
+        UploadPlanVO plan = advisor.plan(100 * MB, "10.0.0.1");
+        assertEquals(20 * MB, plan.getChunkSize());
+        assertEquals(5, plan.getChunkNum());
+        assertEquals("default", plan.getBasis());
+        assertEquals(3, plan.getConcurrency());
+    }
+
+    @Test
+    void largeFileStaysWithinPartLimit() {
+        // 1TB按20MB切分需要52429个分片，超过上限后取不小于 1TB/10000 的候选大小
+        UploadPlanVO plan = advisor.plan(1024L * 1024 * MB, "10.0.0.1");
+        assertEquals("partLimit", plan.getBasis());
+        assertEquals(160 * MB, plan.getChunkSize());
+        assertEquals(6554, plan.getChunkNum());
+    }
+
+    @Test
+    void throughputAdjustsConcurrencyButNotChunkSize() {
+        // 约 16MB/s，20MB 分片约1.25秒，低于目标5秒，每有新样本并发数翻倍直到上限
+        for (int i = 0; i < 3; i++) {
+            advisor.record("10.0.0.2", 16 * MB, 1_000_000_000L);
+        }
+        UploadPlanVO plan = advisor.plan(1024 * MB, "10.0.0.2");
+        assertEquals("default", plan.getBasis());
+        assertEquals(20 * MB, plan.getChunkSize());
+        assertEquals(6, plan.getConcurrency());
+        // 没有新样本时重复推荐（如一次选择多个文件）不再调整并发数
+        assertEquals(6, advisor.plan(1024 * MB, "10.0.0.2").getConcurrency());
+        advisor.record("10.0.0.2", 16 * MB, 1_000_000_000L);
+        assertEquals(8, advisor.plan(1024 * MB, "10.0.0.2").getConcurrency());
+        assertEquals(8, advisor.plan(1024 * MB, "10.0.0.2").getConcurrency());
+
+        // 慢速连接降低并发但分片大小不变，同一文件在不同客户端上的分片划分一致
+        for (int i = 0; i < 3; i++) {
+            advisor.record("10.0.0.3", 2 * MB, 10_000_000_000L);
+        }
+        UploadPlanVO slow = advisor.plan(1024 * MB, "10.0.0.3");
+        assertEquals(20 * MB, slow.getChunkSize());
+        assertEquals(1, slow.getConcurrency());
+        assertEquals(3, advisor.plan(1024 * MB, "10.0.0.9").getConcurrency());
+    }
+
+    @Test
+    void validateRejectsTooManyOrTooSmallParts() {
+        assertDoesNotThrow(() -> advisor.validate(100 * MB, 20 * MB, 5));
+        assertDoesNotThrow(() -> advisor.validate(MB, MB, 1));
+        assertThrows(SystemException.class, () -> advisor.validate(100 * MB, 20 * MB, 4));
+        assertThrows(SystemException.class, () -> advisor.validate(100 * MB, MB, 100));
+        assertThrows(SystemException.class, () -> advisor.validate(300L * 1024 * MB, 20 * MB, 15360));
+    }
+}
@@ -0,0 +1,99 @@
+package com.zsq.awss3uploadapi.component;
+
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import com.zsq.awss3uploadapi.exception.SystemException;
+import com.zsq.awss3uploadapi.mapper.SysUploadChunkMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 写后缓冲的积压上限：数据库不可用时不无限积压，恢复后积压的记录写入并归还容量
+ */
+class ChunkWriteBehindBufferTests {
+
+    private final AtomicBoolean databaseDown = new AtomicBoolean();
+    private final List<SysUploadChunk> written = Collections.synchronizedList(new ArrayList<>());
+    private ChunkWriteBehindBuffer buffer;
+
+    @AfterEach
+    void shutdown() {
+        databaseDown.set(false);
+        buffer.shutdown();
+    }
+
+    @Test
+    void fullBacklogFailsAfterWaitWithoutGrowing() {
+        buffer = newBuffer(3, 100);
+        databaseDown.set(true);
+        for (int partNumber = 1; partNumber <= 3; partNumber++) {
+            buffer.add(chunk(partNumber));
+        }
+
+        SystemException e = assertThrows(SystemException.class, () -> buffer.add(chunk(4)));
+        assertEquals(ResultCodeEnum.SERVER_BUSY.getCode(), e.getCode());
+        assertEquals(3, buffer.stats().getPending());
+        assertEquals(1, buffer.stats().getRejectedRows());
+
+        // 数据库恢复后积压写入，容量归还，新的记录可以进入缓冲
+        databaseDown.set(false);
+        buffer.flush();
+        assertEquals(0, buffer.stats().getPending());
+        buffer.add(chunk(4));
+        buffer.flush();
+        assertEquals(4, written.size());
+    }
+
+    @Test
+    void discardReleasesCapacity() {
+        buffer = newBuffer(2, 0);
+        databaseDown.set(true);
+        buffer.add(chunk(1));
+        buffer.add(chunk(2));
+
+        buffer.discard("upload-1");
+        buffer.add(chunk(3));
+        buffer.add(chunk(4));
+        assertEquals(2, buffer.pendingChunks("upload-1").size());
+    }
+
+    private ChunkWriteBehindBuffer newBuffer(int maxPending, long pendingWaitMillis) {
+        SysUploadChunkMapper mapper = (SysUploadChunkMapper) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{SysUploadChunkMapper.class}, (proxy, method, args) -> {
+                    if (!"upsertBatch".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (databaseDown.get()) {
+                        throw new IllegalStateException("database down");
+                    }
+                    @SuppressWarnings("unchecked")
+                    Collection<SysUploadChunk> chunks = (Collection<SysUploadChunk>) args[0];
+                    written.addAll(chunks);
+                    return chunks.size();
+                });
+        UploadProperties uploadProperties = new UploadProperties();
+        uploadProperties.getChunkWriteBehind().setMaxPending(maxPending);
+        uploadProperties.getChunkWriteBehind().setPendingWaitMillis(pendingWaitMillis);
+        // 不启动定时刷盘，只由测试显式刷盘
+        return new ChunkWriteBehindBuffer(mapper, uploadProperties);
+    }
+
+    private static SysUploadChunk chunk(int partNumber) {
+        return SysUploadChunk.builder()
+                .uploadId("upload-1")
+                .partNumber(partNumber)
+                .etag("\"etag-" + partNumber + "\"")
+                .build();
+    }
+}
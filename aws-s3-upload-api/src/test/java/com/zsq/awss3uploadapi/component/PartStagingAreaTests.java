@@ -0,0 +1,207 @@
+package com.zsq.awss3uploadapi.component;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.zsq.awss3uploadapi.config.UploadProperties;
+import com.zsq.awss3uploadapi.entity.SysUploadChunk;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 暂存日志回放与压缩：不连接S3，写入S3的尝试全部失败并退避重试
+ */
+class PartStagingAreaTests {
+
+    private static final String UPLOAD_ID = "upload-1";
+    private static final String MD5_A = "0cc175b9c0f1b6a831c399e269772661";
+    private static final String MD5_B = "92eb5ffee6ae2fec3ad71c777531578f";
+
+    @TempDir
+    Path directory;
+
+    private final List<PartStagingArea> areas = new ArrayList<>();
+
+    @AfterEach
+    void closeJournals() throws IOException {
+        for (PartStagingArea area : areas) {
+            area.shutdown();
+        }
+    }
+
+    @Test
+    void drainedLineRemovesStagedPart() throws IOException {
+        Path drainedFile = writePart(1, 1, 10);
+        writePart(2, 2, 10);
+        writeJournal(staged(1, 1, MD5_A, 10), drained(1, 1), staged(2, 2, MD5_B, 10));
+
+        PartStagingArea area = recover();
+
+        assertEquals(Collections.singletonList(2), partNumbers(area));
+        assertEquals(1, area.stats().getRecoveredParts());
+        assertEquals(10, area.stats().getPendingBytes());
+        // 写入S3后、删除文件前崩溃留下的暂存文件在恢复时清理
+        assertFalse(Files.exists(drainedFile));
+    }
+
+    @Test
+    void restagedPartSupersedesOlderSequence() throws IOException {
+        Path oldFile = writePart(1, 1, 10);
+        Path newFile = writePart(1, 2, 12);
+        // 旧的一次暂存在重传之后才写完，它的完成行不能移除较新的暂存
+        writeJournal(staged(1, 1, MD5_A, 10), staged(1, 2, MD5_B, 12), drained(1, 1));
+
+        PartStagingArea area = recover();
+
+        List<SysUploadChunk> chunks = area.pendingChunks(UPLOAD_ID);
+        assertEquals(1, chunks.size());
+        assertEquals(MD5_B, chunks.get(0).getMd5());
+        assertEquals(12, area.stats().getPendingBytes());
+        assertFalse(Files.exists(oldFile));
+        assertTrue(Files.exists(newFile));
+    }
+
+    @Test
+    void truncatedFinalLineIsIgnored() throws IOException {
+        writePart(1, 1, 10);
+        String truncated = staged(2, 2, MD5_B, 10).substring(0, 20);
+        writeJournal(staged(1, 1, MD5_A, 10), truncated);
+
+        PartStagingArea area = recover();
+
+        assertEquals(Collections.singletonList(1), partNumbers(area));
+        assertEquals(Collections.singletonList(staged(1, 1, MD5_A, 10)), readJournal());
+    }
+
+    @Test
+    void missingOrShortPartFileIsDropped() throws IOException {
+        Path shortFile = writePart(2, 2, 4);
+        writeJournal(staged(1, 1, MD5_A, 10), staged(2, 2, MD5_B, 10));
+
+        PartStagingArea area = recover();
+
+        assertTrue(area.pendingChunks(UPLOAD_ID).isEmpty());
+        assertFalse(area.hasPending(UPLOAD_ID));
+        assertEquals(0, area.stats().getRecoveredParts());
+        assertEquals(0, area.stats().getPendingBytes());
+        assertFalse(Files.exists(shortFile));
+        assertTrue(readJournal().isEmpty());
+    }
+
+    @Test
+    void compactionKeepsOnlySurvivingParts() throws IOException {
+        writePart(1, 1, 10);
+        writePart(2, 3, 10);
+        writePart(3, 4, 10);
+        writeJournal(staged(1, 1, MD5_A, 10), staged(2, 2, MD5_A, 10), drained(1, 1),
+                staged(2, 3, MD5_B, 10), drained(2, 2), staged(3, 4, MD5_A, 10), drained(3, 4));
+
+        recover();
+
+        List<String> compacted = readJournal();
+        assertEquals(Collections.singletonList(staged(2, 3, MD5_B, 10)), compacted);
+        assertFalse(Files.exists(directory.resolve("journal.log.tmp")));
+
+        // 压缩后的日志再次回放得到相同结果
+        PartStagingArea again = recover();
+        assertEquals(Collections.singletonList(2), partNumbers(again));
+        assertEquals(compacted, readJournal());
+    }
+
+    @Test
+    void runtimeCompactionDropsDrainedParts() throws Exception {
+        UploadProperties uploadProperties = properties();
+        uploadProperties.getStaging().setJournalCompactLines(4);
+        uploadProperties.getStaging().setRetryBackoffMillis(10);
+        uploadProperties.getStaging().setMaxAttempts(Integer.MAX_VALUE);
+        PartStagingArea area = recover(uploadProperties);
+        SysUploadTask kept = task(UPLOAD_ID);
+        SysUploadTask discarded = task("upload-2");
+        for (int partNumber = 1; partNumber <= 2; partNumber++) {
+            assertTrue(area.stage(kept, partNumber, new ByteArrayInputStream(new byte[10]), 10, null));
+        }
+        for (int partNumber = 1; partNumber <= 8; partNumber++) {
+            assertTrue(area.stage(discarded, partNumber, new ByteArrayInputStream(new byte[10]), 10, null));
+        }
+
+        // 被丢弃的8个分片各记一行完成日志，每4行压缩一次，运行中的日志只剩仍在重试的分片
+        area.discard("upload-2");
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (area.stats().getPendingBytes() > 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(20, area.stats().getPendingBytes());
+        String md5 = DigestUtil.md5Hex(new byte[10]);
+        assertEquals(Arrays.asList(staged(1, 1, md5, 10), staged(2, 2, md5, 10)), readJournal());
+        assertFalse(Files.exists(directory.resolve("journal.log.tmp")));
+    }
+
+    private PartStagingArea recover() throws IOException {
+        return recover(properties());
+    }
+
+    private PartStagingArea recover(UploadProperties uploadProperties) throws IOException {
+        PartStagingArea area = new PartStagingArea(null, null, uploadProperties);
+        areas.add(area);
+        area.recover();
+        return area;
+    }
+
+    private UploadProperties properties() {
+        UploadProperties uploadProperties = new UploadProperties();
+        uploadProperties.getStaging().setEnabled(true);
+        uploadProperties.getStaging().setDirectory(directory.toString());
+        return uploadProperties;
+    }
+
+    private static SysUploadTask task(String uploadId) {
+        return SysUploadTask.builder()
+                .uploadId(uploadId)
+                .bucketName("bucket")
+                .objectKey("objects/file.bin")
+                .totalChunks(8)
+                .build();
+    }
+
+    private Path writePart(int partNumber, long sequence, int size) throws IOException {
+        Path dir = directory.resolve("data").resolve(DigestUtil.md5Hex(UPLOAD_ID));
+        Files.createDirectories(dir);
+        return Files.write(dir.resolve(partNumber + "-" + sequence + ".part"), new byte[size]);
+    }
+
+    private void writeJournal(String... lines) throws IOException {
+        Files.write(directory.resolve("journal.log"), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private List<String> readJournal() throws IOException {
+        return Files.readAllLines(directory.resolve("journal.log"), StandardCharsets.UTF_8);
+    }
+
+    private static List<Integer> partNumbers(PartStagingArea area) {
+        return area.pendingChunks(UPLOAD_ID).stream().map(SysUploadChunk::getPartNumber).collect(Collectors.toList());
+    }
+
+    private static String staged(int partNumber, long sequence, String md5, long size) {
+        return String.join("\t", "S", UPLOAD_ID, String.valueOf(partNumber), String.valueOf(sequence), md5,
+                String.valueOf(size), "bucket", "objects%2Ffile.bin");
+    }
+
+    private static String drained(int partNumber, long sequence) {
+        return String.join("\t", "D", UPLOAD_ID, String.valueOf(partNumber), String.valueOf(sequence));
+    }
+}
@@ -0,0 +1,31 @@
+package com.zsq.awss3uploadapi.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChecksumUtilTests {
+
+    private static final String MD5_A = "0cc175b9c0f1b6a831c399e269772661";
+    private static final String MD5_B = "92eb5ffee6ae2fec3ad71c777531578f";
+    private static final String MD5_C = "4a8a08f09d37b73795649038408b5f33";
+
+    @Test
+    void merkleRootMatchesWebClient() {
+        // 单个分片时树根就是分片MD5
+        assertEquals(MD5_A, ChecksumUtil.merkleRoot(Collections.singletonList(MD5_A)));
+        // 奇数个节点时最后一个节点原样提升，与 MerkleTree.ts 一致
+        assertEquals("869cd2ea7f25c1128d384c23783c75b0", ChecksumUtil.merkleRoot(Arrays.asList(MD5_A, MD5_B, MD5_C)));
+    }
+
+    @Test
+    void md5FromEtag() {
+        assertEquals(MD5_A, ChecksumUtil.md5FromEtag("\"0CC175B9C0F1B6A831C399E269772661\""));
+        assertNull(ChecksumUtil.md5FromEtag("\"" + MD5_A + "-3\""));
+        assertEquals("DMF1ucDxtqgxw5niaXcmYQ==", ChecksumUtil.md5HexToBase64(MD5_A));
+    }
+}
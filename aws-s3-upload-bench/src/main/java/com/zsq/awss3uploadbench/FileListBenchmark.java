@@ -0,0 +1,90 @@
+package com.zsq.awss3uploadbench;
+
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.FilePageQueryDTO;
+import com.zsq.awss3uploadapi.entity.vo.CursorPageVO;
+import com.zsq.awss3uploadapi.entity.vo.FileListVO;
+import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
+import com.zsq.awss3uploadbench.support.BenchEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 文件列表：游标分页（按时间、按文件名前缀）与一次性全量列表，对比表规模增长时的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class FileListBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private BenchEnvironment env;
+    private ISysUploadTaskService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        env = BenchEnvironment.start(false);
+        service = env.bean(ISysUploadTaskService.class);
+        LocalDateTime now = LocalDateTime.now();
+        List<SysUploadTask> tasks = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String identifier = String.format("%032x", i);
+            tasks.add(SysUploadTask.builder()
+                    .fileIdentifier(identifier)
+                    .fileName("report-" + i + ".pdf")
+                    .bucketName(BenchEnvironment.BUCKET)
+                    .objectKey("2025/01/01/report-" + i + "_" + identifier + ".pdf")
+                    .uploadId("upload-" + i)
+                    .totalSize(1024L * 1024)
+                    .chunkSize(5L * 1024 * 1024)
+                    .totalChunks(1)
+                    .status((byte) 1)
+                    .createdAt(now.minusSeconds(i))
+                    .updatedAt(now.minusSeconds(i))
+                    .build());
+        }
+        service.saveBatch(tasks, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.close();
+    }
+
+    @Benchmark
+    public CursorPageVO<FileListVO> firstPage() {
+        return service.getFilePage(new FilePageQueryDTO());
+    }
+
+    @Benchmark
+    public CursorPageVO<FileListVO> prefixPage() {
+        return service.getFilePage(new FilePageQueryDTO().setFileName("report-1"));
+    }
+
+    @Benchmark
+    public List<FileListVO> fullList() {
+        return service.getFileList(null);
+    }
+}
@@ -0,0 +1,70 @@
+package com.zsq.awss3uploadbench;
+
+import com.zsq.awss3uploadapi.component.UploadSessionCache;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
+import com.zsq.awss3uploadbench.support.BenchData;
+import com.zsq.awss3uploadbench.support.BenchEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 合并：分片表查询、缺失分片检查、默克尔树校验与 CompleteMultipartUpload 请求的组装和解析
+ * <p>
+ * 每次调用前把任务恢复为上传中并让S3替身重新接受同一个上传，重复测量同一次合并
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class MergeBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int parts;
+
+    private BenchEnvironment env;
+    private ISysUploadTaskService service;
+    private UploadSessionCache uploadSessionCache;
+    private SysUploadTask task;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        env = BenchEnvironment.start(false);
+        service = env.bean(ISysUploadTaskService.class);
+        uploadSessionCache = env.bean(UploadSessionCache.class);
+        task = BenchData.uploadingTask(env, "merge-" + parts, parts, parts);
+    }
+
+    @Setup(Level.Invocation)
+    public void reopen() {
+        service.lambdaUpdate().set(SysUploadTask::getStatus, (byte) 0).eq(SysUploadTask::getId, task.getId()).update();
+        uploadSessionCache.invalidate(task);
+        env.s3().reopen(task.getUploadId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.close();
+    }
+
+    @Benchmark
+    public String merge() {
+        return service.mergeMultipartUpload(task.getFileIdentifier());
+    }
+}
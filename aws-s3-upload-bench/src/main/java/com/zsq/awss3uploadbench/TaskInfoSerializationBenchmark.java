@@ -0,0 +1,69 @@
+package com.zsq.awss3uploadbench;
+
+import com.amazonaws.services.s3.model.PartSummary;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zsq.awss3uploadapi.config.Config;
+import com.zsq.awss3uploadapi.entity.Result;
+import com.zsq.awss3uploadapi.entity.vo.TaskInfoVO;
+import com.zsq.awss3uploadapi.enums.ResultCodeEnum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 断点检查响应的JSON序列化，使用应用实际注册的 ObjectMapper，分片列表长度即已上传的分片数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskInfoSerializationBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int parts;
+
+    private ObjectMapper objectMapper;
+    private Result<TaskInfoVO> result;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new Config().mappingJackson2HttpMessageConverter().getObjectMapper();
+        List<PartSummary> partSummaries = new ArrayList<>(parts);
+        Date now = new Date();
+        for (int partNumber = 1; partNumber <= parts; partNumber++) {
+            PartSummary partSummary = new PartSummary();
+            partSummary.setPartNumber(partNumber);
+            partSummary.setETag(String.format("\"%032x\"", partNumber));
+            partSummary.setSize(5L * 1024 * 1024);
+            partSummary.setLastModified(now);
+            partSummaries.add(partSummary);
+        }
+        result = Result.ok(TaskInfoVO.builder()
+                .code(ResultCodeEnum.UPLOADING.getCode())
+                .uploadId("bench-upload-id")
+                .exitPartList(partSummaries)
+                .url("")
+                .build());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(result);
+    }
+}
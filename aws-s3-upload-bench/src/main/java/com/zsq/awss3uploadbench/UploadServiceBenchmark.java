@@ -0,0 +1,115 @@
+package com.zsq.awss3uploadbench;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.ReportPartParamDTO;
+import com.zsq.awss3uploadapi.entity.vo.TaskInfoVO;
+import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
+import com.zsq.awss3uploadbench.support.BenchData;
+import com.zsq.awss3uploadbench.support.BenchEnvironment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传热路径：秒传/断点检查、直传分片登记、经服务转发的分片上传
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class UploadServiceBenchmark {
+
+    /**
+     * 上传中任务的已上传分片数，断点检查返回的分片列表长度
+     */
+    @Param({"1000"})
+    public int uploadedParts;
+
+    private BenchEnvironment env;
+    private ISysUploadTaskService service;
+    private String completedIdentifier;
+    private String uploadingIdentifier;
+    private String unknownIdentifier;
+    private SysUploadTask reportTask;
+    private List<String> reportMd5s;
+    private SysUploadTask streamTask;
+    private byte[] streamBody;
+    private String streamBodyMd5;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        env = BenchEnvironment.start(false);
+        service = env.bean(ISysUploadTaskService.class);
+        completedIdentifier = BenchData.completedFile(env, "completed", 4);
+        uploadingIdentifier = BenchData.uploadingTask(env, "uploading", uploadedParts, uploadedParts).getFileIdentifier();
+        unknownIdentifier = DigestUtil.md5Hex(IdUtil.fastSimpleUUID());
+        reportTask = BenchData.uploadingTask(env, "report", uploadedParts, 0);
+        reportMd5s = BenchData.partMd5s("report", uploadedParts);
+        streamTask = BenchData.uploadingTask(env, "stream", 10000, 0);
+        streamBody = new byte[64 * 1024];
+        ThreadLocalRandom.current().nextBytes(streamBody);
+        streamBodyMd5 = DigestUtil.md5Hex(streamBody);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        env.close();
+    }
+
+    @Benchmark
+    public TaskInfoVO checkCompleted() {
+        return service.checkFileByMd5(completedIdentifier);
+    }
+
+    @Benchmark
+    public TaskInfoVO checkUploading() {
+        return service.checkFileByMd5(uploadingIdentifier);
+    }
+
+    @Benchmark
+    public TaskInfoVO checkUnknown() {
+        return service.checkFileByMd5(unknownIdentifier);
+    }
+
+    /**
+     * 前端直传完成后登记分片，分片编号轮换，写入走写后缓冲
+     */
+    @Benchmark
+    public boolean reportPart() {
+        int partNumber = ThreadLocalRandom.current().nextInt(uploadedParts) + 1;
+        return service.reportPart(new ReportPartParamDTO()
+                .setUploadId(reportTask.getUploadId())
+                .setPartNumber(partNumber)
+                .setEtag("\"" + reportMd5s.get(partNumber - 1) + "\""));
+    }
+
+    /**
+     * 64KB分片经服务转发到S3替身，包含MD5计算与分片登记
+     */
+    @Benchmark
+    public boolean uploadPartStream() {
+        int partNumber = ThreadLocalRandom.current().nextInt(streamTask.getTotalChunks()) + 1;
+        return service.uploadPartStream(new ByteArrayInputStream(streamBody), streamBody.length,
+                streamTask.getUploadId(), partNumber, streamBodyMd5);
+    }
+}
@@ -0,0 +1,566 @@
+package com.zsq.awss3uploadbench.loadtest;
+
+import cn.hutool.core.io.unit.DataSizeUtil;
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zsq.awss3uploadapi.utils.ChecksumUtil;
+import com.zsq.awss3uploadbench.support.BenchEnvironment;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 端到端并发上传压测
+ * <p>
+ * 在同一进程内启动S3替身、内存H2数据库和带内嵌Tomcat的完整应用，通过HTTP按前端的流程
+ * 检查 → 初始化 → 并发上传分片 → 合并 上传文件，依次在每个并发度下测量吞吐、各阶段延迟分位数（HdrHistogram）
+ * 以及堆内存和GC情况，用于找出单节点的并发上限。
+ * <p>
+ * 分片内容由一块共享的随机数据加上 (文件序号, 分片编号) 前缀生成，发送时边生成边写出，客户端不为每个分片分配内存。
+ * 客户端与服务端在同一个JVM中，堆内存与GC数据包含客户端的开销。
+ * <p>
+ * 参数为 key=value 形式：
+ * <pre>
+ * concurrency=1,8,32    并发上传的文件数，每个值运行一轮
+ * files=64              每轮上传的文件数
+ * warmupFiles=16        正式测量前预热上传的文件数
+ * fileSize=64MB         文件大小
+ * chunkSize=5MB         分片大小
+ * partConcurrency=4     单个文件同时上传的分片数（前端默认值）
+ * partEndpoint=multipart  分片上传接口：multipart（/multipart/uploadPart）、stream（/multipart/uploadPart/stream）或 nio（/multipart/uploadPart/nio）
+ * s3LatencyMillis=0     S3替身每个请求附加的延迟
+ * s3Threads=256         S3替身的处理线程数
+ * </pre>
+ * 其余包含 "." 的参数作为应用配置传入，例如 upload.staging.enabled=true、server.tomcat.threads.max=400
+ */
+public class UploadLoadTest {
+
+    private static final int SUCCESS = 200;
+    private static final int NOT_UPLOADED = 2003;
+    private static final int PREFIX_BYTES = 16;
+    private static final long HISTOGRAM_MAX_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final String[] PHASES = {"check", "init", "part", "merge", "file"};
+
+    private final Options options;
+    private final String baseUrl;
+    private final CloseableHttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * 所有分片共用的内容，前 {@link #PREFIX_BYTES} 字节按文件和分片替换
+     */
+    private final byte[] block;
+    private final AtomicInteger fileSequence = new AtomicInteger();
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesUploaded = new AtomicLong();
+
+    public UploadLoadTest(Options options, String baseUrl) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        int maxConnections = options.maxConcurrency() * (options.partConcurrency + 1);
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients.custom().setConnectionManager(connectionManager).disableAutomaticRetries().build();
+        this.block = new byte[(int) Math.min(options.chunkSize, options.fileSize)];
+        new Random(42).nextBytes(block);
+        for (String phase : PHASES) {
+            recorders.put(phase, new Recorder(HISTOGRAM_MAX_MICROS, 3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        List<String> props = new ArrayList<>(options.appProperties);
+        try (BenchEnvironment env = BenchEnvironment.start(true, options.s3Threads, props.toArray(new String[0]))) {
+            env.s3().setLatencyMillis(options.s3LatencyMillis);
+            UploadLoadTest loadTest = new UploadLoadTest(options, env.baseUrl());
+            try {
+                System.out.println(options);
+                if (options.warmupFiles > 0) {
+                    loadTest.runLevel(options.concurrency.get(0), options.warmupFiles);
+                }
+                System.out.println();
+                System.out.println(String.format("%-6s %-8s %-10s %-10s %-8s %-34s %-34s %-34s %-10s %-10s %-8s",
+                        "并发", "文件/s", "MB/s", "总耗时s", "失败", "分片 p50/p99/p999/max ms", "合并 p50/p99/p999/max ms",
+                        "文件 p50/p99/p999/max ms", "堆峰值MB", "GC次数", "GC ms"));
+                for (int concurrency : options.concurrency) {
+                    System.out.println(loadTest.runLevel(concurrency, options.files).format());
+                }
+                System.out.println();
+                System.out.println("S3替身请求数: " + env.s3().requests() + ", 未合并的上传: " + env.s3().activeUploads());
+            } finally {
+                loadTest.httpClient.close();
+            }
+        }
+    }
+
+    /**
+     * 以给定并发度上传 files 个文件，返回本轮的统计
+     */
+    LevelResult runLevel(int concurrency, int files) throws InterruptedException {
+        for (Recorder recorder : recorders.values()) {
+            recorder.reset();
+        }
+        failures.set(0);
+        bytesUploaded.set(0);
+        GcSnapshot gcBefore = GcSnapshot.take();
+        resetHeapPeak();
+
+        ExecutorService fileExecutor = Executors.newFixedThreadPool(concurrency);
+        ExecutorService partExecutor = Executors.newFixedThreadPool(concurrency * options.partConcurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(files);
+            for (int i = 0; i < files; i++) {
+                futures.add(fileExecutor.submit(() -> {
+                    uploadFile(partExecutor);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failures.incrementAndGet() == 1) {
+                        // 只打印每轮第一个失败原因，避免刷屏
+                        System.err.println("上传失败: " + e.getCause());
+                    }
+                }
+            }
+        } finally {
+            fileExecutor.shutdownNow();
+            partExecutor.shutdownNow();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        Map<String, Histogram> histograms = new LinkedHashMap<>();
+        recorders.forEach((phase, recorder) -> histograms.put(phase, recorder.getIntervalHistogram()));
+        return new LevelResult(concurrency, files, elapsedNanos, failures.get(), bytesUploaded.get(), histograms,
+                heapPeak(), GcSnapshot.take().minus(gcBefore));
+    }
+
+    private void uploadFile(ExecutorService partExecutor) throws Exception {
+        long fileStart = System.nanoTime();
+        int fileId = fileSequence.incrementAndGet();
+        int chunkNum = (int) ((options.fileSize + options.chunkSize - 1) / options.chunkSize);
+        List<String> partMd5s = new ArrayList<>(chunkNum);
+        for (int partNumber = 1; partNumber <= chunkNum; partNumber++) {
+            partMd5s.add(partMd5(fileId, partNumber));
+        }
+        String identifier = ChecksumUtil.merkleRoot(partMd5s);
+
+        JsonNode check = timed("check", new HttpGet(baseUrl + "/bunUpload/multipart/check/" + identifier));
+        if (check.path("code").asInt() != NOT_UPLOADED) {
+            throw new IllegalStateException("文件已存在: " + identifier);
+        }
+        Map<String, Object> initParam = new LinkedHashMap<>();
+        initParam.put("fileIdentifier", identifier);
+        initParam.put("fileName", "load-" + fileId + ".bin");
+        initParam.put("totalSize", options.fileSize);
+        initParam.put("chunkSize", options.chunkSize);
+        initParam.put("chunkNum", chunkNum);
+        HttpPost init = new HttpPost(baseUrl + "/bunUpload/multipart/init");
+        init.setEntity(new StringEntity(objectMapper.writeValueAsString(initParam), ContentType.APPLICATION_JSON));
+        String uploadId = timed("init", init).asText();
+
+        // 与前端一致：同一文件最多 partConcurrency 个分片同时上传
+        List<Future<?>> parts = new ArrayList<>(chunkNum);
+        AtomicInteger nextPart = new AtomicInteger();
+        for (int worker = 0; worker < Math.min(options.partConcurrency, chunkNum); worker++) {
+            parts.add(partExecutor.submit(() -> {
+                int partNumber;
+                while ((partNumber = nextPart.incrementAndGet()) <= chunkNum) {
+                    timed("part", partRequest(fileId, uploadId, partNumber, partMd5s.get(partNumber - 1)));
+                    bytesUploaded.addAndGet(partLength(partNumber));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> part : parts) {
+            part.get();
+        }
+        timed("merge", new HttpPost(baseUrl + "/bunUpload/multipart/merge/" + identifier));
+        recorders.get("file").recordValue(elapsedMicros(fileStart));
+    }
+
+    private HttpUriRequest partRequest(int fileId, String uploadId, int partNumber, String md5) {
+        long length = partLength(partNumber);
+        String query = "uploadId=" + uploadId + "&partNumber=" + partNumber + "&md5=" + md5;
+        if ("stream".equals(options.partEndpoint) || "nio".equals(options.partEndpoint)) {
+            HttpPost post = new HttpPost(baseUrl + "/bunUpload/multipart/uploadPart/" + options.partEndpoint + "?" + query);
+            post.setEntity(new PartEntity(fileId, partNumber, length));
+            return post;
+        }
+        HttpPost post = new HttpPost(baseUrl + "/bunUpload/multipart/uploadPart?" + query);
+        post.setEntity(MultipartEntityBuilder.create()
+                .addPart("file", new PartContentBody(fileId, partNumber, length))
+                .build());
+        return post;
+    }
+
+    /**
+     * 发送请求并记录耗时，响应不是成功时抛出异常，返回 data 字段
+     */
+    private JsonNode timed(String phase, HttpUriRequest request) throws IOException {
+        long start = System.nanoTime();
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity());
+            if (response.getStatusLine().getStatusCode() != 200) {
+                throw new IllegalStateException(phase + " HTTP " + response.getStatusLine().getStatusCode() + ": " + body);
+            }
+            JsonNode result = objectMapper.readTree(body);
+            if (result.path("code").asInt() != SUCCESS) {
+                throw new IllegalStateException(phase + " 失败: " + body);
+            }
+            return result.path("data");
+        } finally {
+            recorders.get(phase).recordValue(elapsedMicros(start));
+        }
+    }
+
+    private long partLength(int partNumber) {
+        return Math.min(options.chunkSize, options.fileSize - (partNumber - 1) * options.chunkSize);
+    }
+
+    private String partMd5(int fileId, int partNumber) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (OutputStream out = new DigestOutputStream(digest)) {
+            writePart(out, fileId, partNumber, partLength(partNumber));
+        }
+        StringBuilder hex = new StringBuilder(32);
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private void writePart(OutputStream out, int fileId, int partNumber, long length) throws IOException {
+        byte[] prefix = StrUtil.fillAfter(partPrefix(fileId, partNumber), ' ', PREFIX_BYTES).getBytes(StandardCharsets.US_ASCII);
+        int prefixLength = (int) Math.min(PREFIX_BYTES, length);
+        out.write(prefix, 0, prefixLength);
+        out.write(block, prefixLength, (int) length - prefixLength);
+    }
+
+    private static String partPrefix(int fileId, int partNumber) {
+        return Integer.toHexString(fileId) + ":" + Integer.toHexString(partNumber);
+    }
+
+    private static long elapsedMicros(long startNanos) {
+        return Math.min(HISTOGRAM_MAX_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    private static void resetHeapPeak() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * 各堆内存池峰值之和，各池峰值出现的时刻不同，结果是上限估计
+     */
+    private static long heapPeak() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * 流式上传的请求体
+     */
+    private final class PartEntity extends AbstractHttpEntity {
+        private final int fileId;
+        private final int partNumber;
+        private final long length;
+
+        private PartEntity(int fileId, int partNumber, long length) {
+            this.fileId = fileId;
+            this.partNumber = partNumber;
+            this.length = length;
+            setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) length);
+            writeTo(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            writePart(out, fileId, partNumber, length);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+
+    /**
+     * multipart/form-data 上传中的分片文件
+     */
+    private final class PartContentBody extends AbstractContentBody {
+        private final int fileId;
+        private final int partNumber;
+        private final long length;
+
+        private PartContentBody(int fileId, int partNumber, long length) {
+            super(ContentType.APPLICATION_OCTET_STREAM);
+            this.fileId = fileId;
+            this.partNumber = partNumber;
+            this.length = length;
+        }
+
+        @Override
+        public String getFilename() {
+            return "blob";
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            writePart(out, fileId, partNumber, length);
+        }
+
+        @Override
+        public String getTransferEncoding() {
+            return "binary";
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+    }
+
+    private static final class DigestOutputStream extends OutputStream {
+        private final MessageDigest digest;
+
+        private DigestOutputStream(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) {
+            digest.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            digest.update(b, off, len);
+        }
+    }
+
+    /**
+     * 垃圾回收次数与耗时
+     */
+    private static final class GcSnapshot {
+        private final long count;
+        private final long millis;
+
+        private GcSnapshot(long count, long millis) {
+            this.count = count;
+            this.millis = millis;
+        }
+
+        private static GcSnapshot take() {
+            long count = 0;
+            long millis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, gc.getCollectionCount());
+                millis += Math.max(0, gc.getCollectionTime());
+            }
+            return new GcSnapshot(count, millis);
+        }
+
+        private GcSnapshot minus(GcSnapshot other) {
+            return new GcSnapshot(count - other.count, millis - other.millis);
+        }
+    }
+
+    /**
+     * 一轮压测的结果
+     */
+    static final class LevelResult {
+        private final int concurrency;
+        private final int files;
+        private final long elapsedNanos;
+        private final long failures;
+        private final long bytes;
+        private final Map<String, Histogram> histograms;
+        private final long heapPeakBytes;
+        private final GcSnapshot gc;
+
+        private LevelResult(int concurrency, int files, long elapsedNanos, long failures, long bytes,
+                            Map<String, Histogram> histograms, long heapPeakBytes, GcSnapshot gc) {
+            this.concurrency = concurrency;
+            this.files = files;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+            this.bytes = bytes;
+            this.histograms = histograms;
+            this.heapPeakBytes = heapPeakBytes;
+            this.gc = gc;
+        }
+
+        String format() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%-6d %-8.2f %-10.1f %-10.1f %-8d %-34s %-34s %-34s %-10d %-10d %-8d",
+                    concurrency, (files - failures) / seconds, bytes / seconds / (1024 * 1024), seconds, failures,
+                    percentiles(histograms.get("part")), percentiles(histograms.get("merge")), percentiles(histograms.get("file")),
+                    heapPeakBytes / (1024 * 1024), gc.count, gc.millis);
+        }
+
+        private static String percentiles(Histogram histogram) {
+            if (histogram.getTotalCount() == 0) {
+                return "-";
+            }
+            return String.format("%.1f/%.1f/%.1f/%.1f",
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * 命令行参数
+     */
+    static final class Options {
+        private List<Integer> concurrency = Arrays.asList(1, 8, 32);
+        private int files = 64;
+        private int warmupFiles = 16;
+        private long fileSize = 64L * 1024 * 1024;
+        private long chunkSize = 5L * 1024 * 1024;
+        private int partConcurrency = 4;
+        private String partEndpoint = "multipart";
+        private long s3LatencyMillis;
+        private int s3Threads = 256;
+        private final List<String> appProperties = new ArrayList<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("参数格式应为 key=value: " + arg);
+                }
+                String key = arg.substring(0, eq);
+                String value = arg.substring(eq + 1);
+                switch (key) {
+                    case "concurrency":
+                        options.concurrency = Arrays.stream(value.split(","))
+                                .map(String::trim).map(Integer::parseInt).collect(Collectors.toList());
+                        break;
+                    case "files":
+                        options.files = Integer.parseInt(value);
+                        break;
+                    case "warmupFiles":
+                        options.warmupFiles = Integer.parseInt(value);
+                        break;
+                    case "fileSize":
+                        options.fileSize = DataSizeUtil.parse(value);
+                        break;
+                    case "chunkSize":
+                        options.chunkSize = DataSizeUtil.parse(value);
+                        break;
+                    case "partConcurrency":
+                        options.partConcurrency = Integer.parseInt(value);
+                        break;
+                    case "partEndpoint":
+                        options.partEndpoint = value;
+                        break;
+                    case "s3LatencyMillis":
+                        options.s3LatencyMillis = Long.parseLong(value);
+                        break;
+                    case "s3Threads":
+                        options.s3Threads = Integer.parseInt(value);
+                        break;
+                    default:
+                        if (!key.contains(".")) {
+                            throw new IllegalArgumentException("未知参数: " + key);
+                        }
+                        options.appProperties.add(arg);
+                }
+            }
+            if (options.chunkSize <= 0 || options.fileSize <= 0 || options.chunkSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("文件大小或分片大小不合法");
+            }
+            return options;
+        }
+
+        int maxConcurrency() {
+            return concurrency.stream().mapToInt(Integer::intValue).max().orElse(1);
+        }
+
+        @Override
+        public String toString() {
+            return "并发: " + concurrency + ", 每轮文件数: " + files + ", 预热文件数: " + warmupFiles
+                    + ", 文件大小: " + DataSizeUtil.format(fileSize) + ", 分片大小: " + DataSizeUtil.format(chunkSize)
+                    + ", 单文件分片并发: " + partConcurrency + ", 分片接口: " + partEndpoint
+                    + ", S3延迟: " + s3LatencyMillis + "ms, 应用配置: " + appProperties;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.zsq.awss3uploadbench.support;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.zsq.awss3uploadapi.component.ChunkWriteBehindBuffer;
+import com.zsq.awss3uploadapi.entity.SysUploadTask;
+import com.zsq.awss3uploadapi.entity.dto.InitTaskParamDTO;
+import com.zsq.awss3uploadapi.service.ISysUploadTaskService;
+import com.zsq.awss3uploadapi.utils.ChecksumUtil;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 准备基准测试数据：按与前端相同的规则生成文件标识（分片MD5的默克尔树根），走服务接口初始化并上传分片
+ * <p>
+ * 分片内容只有几十个字节，任务上记录的分片大小取S3允许的最小值，合并与分片校验按生产逻辑执行
+ */
+public final class BenchData {
+
+    public static final long CHUNK_SIZE = 5L * 1024 * 1024;
+
+    private BenchData() {
+    }
+
+    /**
+     * 第 partNumber 个分片的内容，同一个 salt 下内容固定
+     */
+    public static byte[] partBody(String salt, int partNumber) {
+        return ("bench-part-" + salt + "-" + partNumber).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static List<String> partMd5s(String salt, int parts) {
+        List<String> md5s = new ArrayList<>(parts);
+        for (int partNumber = 1; partNumber <= parts; partNumber++) {
+            md5s.add(DigestUtil.md5Hex(partBody(salt, partNumber)));
+        }
+        return md5s;
+    }
+
+    public static String identifier(String salt, int parts) {
+        return ChecksumUtil.merkleRoot(partMd5s(salt, parts));
+    }
+
+    /**
+     * 初始化上传任务并上传 [1, uploadedParts] 的分片，写后缓冲落库后返回任务
+     */
+    public static SysUploadTask uploadingTask(BenchEnvironment env, String salt, int parts, int uploadedParts) {
+        ISysUploadTaskService service = env.bean(ISysUploadTaskService.class);
+        String identifier = identifier(salt, parts);
+        String uploadId = service.initMultiPartFile(new InitTaskParamDTO()
+                .setFileIdentifier(identifier)
+                .setFileName(salt + ".bin")
+                .setChunkSize(CHUNK_SIZE)
+                .setChunkNum(parts)
+                .setTotalSize(CHUNK_SIZE * parts)).getUploadId();
+        for (int partNumber = 1; partNumber <= uploadedParts; partNumber++) {
+            byte[] body = partBody(salt, partNumber);
+            service.uploadPartStream(new ByteArrayInputStream(body), body.length, uploadId, partNumber, DigestUtil.md5Hex(body));
+        }
+        env.bean(ChunkWriteBehindBuffer.class).flush();
+        return service.lambdaQuery().eq(SysUploadTask::getUploadId, uploadId).one();
+    }
+
+    /**
+     * 上传全部分片并合并，返回文件标识
+     */
+    public static String completedFile(BenchEnvironment env, String salt, int parts) {
+        SysUploadTask task = uploadingTask(env, salt, parts, parts);
+        env.bean(ISysUploadTaskService.class).mergeMultipartUpload(task.getFileIdentifier());
+        return task.getFileIdentifier();
+    }
+}
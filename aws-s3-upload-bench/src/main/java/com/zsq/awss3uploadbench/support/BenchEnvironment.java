@@ -0,0 +1,116 @@
+package com.zsq.awss3uploadbench.support;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.zsq.awss3uploadapi.AwsS3UploadApiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 基准测试运行环境：进程内S3替身 + 内存H2数据库（MySQL模式）+ 完整的应用上下文
+ * <p>
+ * 服务实现、缓存、写后缓冲、MyBatis映射都是生产代码，只有数据库和S3被替换，测得的是本服务自身的开销
+ */
+public class BenchEnvironment implements AutoCloseable {
+
+    public static final String BUCKET = "bench-bucket";
+
+    private final FakeS3Server fakeS3;
+    private final File stagingDirectory;
+    private final ConfigurableApplicationContext context;
+
+    private BenchEnvironment(FakeS3Server fakeS3, File stagingDirectory, ConfigurableApplicationContext context) {
+        this.fakeS3 = fakeS3;
+        this.stagingDirectory = stagingDirectory;
+        this.context = context;
+    }
+
+    /**
+     * 启动环境
+     * @param web         是否启动内嵌Web服务器（随机端口）
+     * @param extraProps  额外的配置，格式 key=value，优先级高于默认配置
+     */
+    public static BenchEnvironment start(boolean web, String... extraProps) throws IOException {
+        return start(web, 64, extraProps);
+    }
+
+    /**
+     * 启动环境
+     * @param web         是否启动内嵌Web服务器（随机端口）
+     * @param s3Threads   S3替身的处理线程数
+     * @param extraProps  额外的配置，格式 key=value，优先级高于默认配置
+     */
+    public static BenchEnvironment start(boolean web, int s3Threads, String... extraProps) throws IOException {
+        FakeS3Server fakeS3 = new FakeS3Server(false, s3Threads);
+        File stagingDirectory = FileUtil.mkdir(new File(FileUtil.getTmpDir(), "aws-s3-upload-bench-" + IdUtil.fastSimpleUUID()));
+        List<String> props = new ArrayList<>(Arrays.asList(
+                "spring.datasource.druid.driver-class-name=org.h2.Driver",
+                "spring.datasource.druid.url=jdbc:h2:mem:bench-" + IdUtil.fastSimpleUUID()
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "spring.datasource.druid.username=sa",
+                "spring.datasource.druid.password=",
+                "spring.sql.init.mode=always",
+                "spring.sql.init.schema-locations=classpath:bench-schema.sql",
+                "mybatis-plus.configuration.log-impl=org.apache.ibatis.logging.nologging.NoLoggingImpl",
+                "winter-aws.endpoint=" + fakeS3.endpoint(),
+                "winter-aws.access-key=bench",
+                "winter-aws.secret-key=bench-secret",
+                "winter-aws.bucket=" + BUCKET,
+                "winter-aws.region=us-east-1",
+                "winter-aws.path-style-access=true",
+                "upload.reaper.enabled=false",
+                "upload.staging.directory=" + stagingDirectory.getAbsolutePath(),
+                "logging.level.root=WARN"));
+        if (web) {
+            props.add("server.port=0");
+        } else {
+            props.add("spring.main.web-application-type=none");
+        }
+        props.addAll(Arrays.asList(extraProps));
+        // 以命令行参数传入，优先级高于 application.yaml（builder 的 properties 是默认值，会被配置文件覆盖）
+        String[] args = props.stream().map(prop -> "--" + prop).toArray(String[]::new);
+        try {
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(AwsS3UploadApiApplication.class)
+                    .logStartupInfo(false)
+                    .run(args);
+            return new BenchEnvironment(fakeS3, stagingDirectory, context);
+        } catch (RuntimeException e) {
+            fakeS3.close();
+            FileUtil.del(stagingDirectory);
+            throw e;
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public FakeS3Server s3() {
+        return fakeS3;
+    }
+
+    /**
+     * 内嵌Web服务器的地址，仅 web 模式可用
+     */
+    public String baseUrl() {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        return "http://127.0.0.1:" + port;
+    }
+
+    @Override
+    public void close() {
+        try {
+            context.close();
+        } finally {
+            fakeS3.close();
+            FileUtil.del(stagingDirectory);
+        }
+    }
+}
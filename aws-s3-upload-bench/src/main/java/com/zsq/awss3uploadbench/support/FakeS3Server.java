@@ -0,0 +1,576 @@
+package com.zsq.awss3uploadbench.support;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的S3替身，基于JDK自带的 HttpServer，只实现本服务用到的路径风格请求：
+ * 分片上传（创建、上传分片、服务端复制分片、列出分片、合并、中止）、PutObject、CopyObject、GetObject（含Range）、
+ * HeadObject、DeleteObject、DeleteObjects，存储桶相关请求一律成功。
+ * <p>
+ * 分片上传按S3的语义校验 Content-MD5 和合并时的分片ETag，并能解码SDK签名的 aws-chunked 请求体。
+ * retainData 为false时只记录分片的大小和MD5，不保留内容，压测时内存占用与上传量无关，读取对象时返回全零内容
+ */
+public class FakeS3Server implements AutoCloseable {
+
+    private static final Pattern PART_PATTERN = Pattern.compile(
+            "<Part>\\s*<PartNumber>(\\d+)</PartNumber>\\s*<ETag>(.*?)</ETag>\\s*</Part>", Pattern.DOTALL);
+    private static final Pattern KEY_PATTERN = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean retainData;
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+    /**
+     * 已合并的分片上传，供基准测试通过 {@link #reopen(String)} 重复合并同一个上传
+     */
+    private final Map<String, MultipartUpload> completedUploads = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    /**
+     * 每个请求额外等待的时间，模拟真实对象存储的网络与处理延迟
+     */
+    private volatile long latencyMillis;
+
+    public FakeS3Server(boolean retainData, int threads) throws IOException {
+        this.retainData = retainData;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-s3-" + IdUtil.fastSimpleUUID().substring(0, 6));
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * 进行中的上传数量，压测结束后应为0
+     */
+    public int activeUploads() {
+        return uploads.size();
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * 把已合并的上传恢复为进行中，基准测试重复合并同一个上传时使用
+     */
+    public void reopen(String uploadId) {
+        MultipartUpload upload = completedUploads.remove(uploadId);
+        if (upload != null) {
+            uploads.put(uploadId, upload);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            String path = exchange.getRequestURI().getRawPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String trimmed = path.startsWith("/") ? path.substring(1) : path;
+            int slash = trimmed.indexOf('/');
+            String bucket = decode(slash < 0 ? trimmed : trimmed.substring(0, slash));
+            String key = slash < 0 || slash == trimmed.length() - 1 ? null : decode(trimmed.substring(slash + 1));
+            String method = exchange.getRequestMethod();
+
+            if (key == null) {
+                handleBucket(exchange, method, bucket, query);
+            } else if ("POST".equals(method) && query.containsKey("uploads")) {
+                initiate(exchange, bucket, key);
+            } else if ("PUT".equals(method) && query.containsKey("uploadId")) {
+                uploadPart(exchange, query.get("uploadId"), Integer.parseInt(query.get("partNumber")));
+            } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+                complete(exchange, bucket, key, query.get("uploadId"));
+            } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+                abort(exchange, query.get("uploadId"));
+            } else if ("GET".equals(method) && query.containsKey("uploadId")) {
+                listParts(exchange, bucket, key, query);
+            } else if ("PUT".equals(method)) {
+                putObject(exchange, bucket, key);
+            } else if ("GET".equals(method) || "HEAD".equals(method)) {
+                getObject(exchange, bucket, key, "HEAD".equals(method));
+            } else if ("DELETE".equals(method)) {
+                drain(exchange);
+                objects.remove(bucket + "/" + key);
+                send(exchange, 204, null);
+            } else {
+                error(exchange, 405, "MethodNotAllowed", method);
+            }
+        } catch (Exception e) {
+            error(exchange, 500, "InternalError", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String method, String bucket, Map<String, String> query) throws IOException {
+        if ("POST".equals(method) && query.containsKey("delete")) {
+            String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+            StringBuilder xml = new StringBuilder("<DeleteResult>");
+            Matcher matcher = KEY_PATTERN.matcher(body);
+            while (matcher.find()) {
+                String key = unescapeXml(matcher.group(1));
+                objects.remove(bucket + "/" + key);
+                xml.append("<Deleted><Key>").append(escapeXml(key)).append("</Key></Deleted>");
+            }
+            sendXml(exchange, 200, xml.append("</DeleteResult>").toString());
+            return;
+        }
+        drain(exchange);
+        if ("GET".equals(method) && query.containsKey("uploads")) {
+            sendXml(exchange, 200, "<ListMultipartUploadsResult><Bucket>" + escapeXml(bucket)
+                    + "</Bucket><IsTruncated>false</IsTruncated></ListMultipartUploadsResult>");
+        } else if ("GET".equals(method)) {
+            sendXml(exchange, 200, "<ListBucketResult><Name>" + escapeXml(bucket)
+                    + "</Name><IsTruncated>false</IsTruncated></ListBucketResult>");
+        } else {
+            // HeadBucket、CreateBucket 等
+            send(exchange, 200, null);
+        }
+    }
+
+    private void initiate(HttpExchange exchange, String bucket, String key) throws IOException {
+        drain(exchange);
+        String uploadId = IdUtil.fastSimpleUUID();
+        uploads.put(uploadId, new MultipartUpload(bucket, key));
+        sendXml(exchange, 200, "<InitiateMultipartUploadResult><Bucket>" + escapeXml(bucket) + "</Bucket><Key>"
+                + escapeXml(key) + "</Key><UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber) throws IOException {
+        MultipartUpload upload = uploads.get(uploadId);
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource != null) {
+            drain(exchange);
+            if (upload == null) {
+                error(exchange, 404, "NoSuchUpload", uploadId);
+                return;
+            }
+            StoredObject source = objects.get(decode(copySource.startsWith("/") ? copySource.substring(1) : copySource));
+            if (source == null) {
+                error(exchange, 404, "NoSuchKey", copySource);
+                return;
+            }
+            byte[] data = slice(source, exchange.getRequestHeaders().getFirst("x-amz-copy-source-range"));
+            StoredObject part = new StoredObject(data.length, DigestUtil.md5Hex(data), retainData ? data : null);
+            upload.parts.put(partNumber, part);
+            sendXml(exchange, 200, "<CopyPartResult><ETag>&quot;" + part.md5 + "&quot;</ETag><LastModified>"
+                    + isoDate(new Date()) + "</LastModified></CopyPartResult>");
+            return;
+        }
+        Received received = receive(exchange);
+        if (upload == null) {
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        if (!digestMatches(exchange, received)) {
+            error(exchange, 400, "BadDigest", "Content-MD5 不一致");
+            return;
+        }
+        upload.parts.put(partNumber, new StoredObject(received.size, received.md5, received.data));
+        exchange.getResponseHeaders().set("ETag", "\"" + received.md5 + "\"");
+        send(exchange, 200, null);
+    }
+
+    private void complete(HttpExchange exchange, String bucket, String key, String uploadId) throws IOException {
+        String body = new String(readBody(exchange), StandardCharsets.UTF_8);
+        MultipartUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        Matcher matcher = PART_PATTERN.matcher(body);
+        MessageDigest etagDigest = DigestUtil.digester("MD5").getDigest();
+        ByteArrayOutputStream content = retainData ? new ByteArrayOutputStream() : null;
+        long size = 0;
+        int count = 0;
+        while (matcher.find()) {
+            int partNumber = Integer.parseInt(matcher.group(1));
+            String etag = unescapeXml(matcher.group(2)).replace("\"", "");
+            StoredObject part = upload.parts.get(partNumber);
+            if (part == null || !part.md5.equalsIgnoreCase(etag)) {
+                error(exchange, 400, "InvalidPart", "分片 " + partNumber + " 不存在或ETag不一致");
+                return;
+            }
+            etagDigest.update(HexUtil.decodeHex(part.md5));
+            size += part.size;
+            count++;
+            if (content != null && part.data != null) {
+                content.write(part.data);
+            }
+        }
+        String etag = HexUtil.encodeHexStr(etagDigest.digest()) + "-" + count;
+        objects.put(bucket + "/" + key, new StoredObject(size, etag, content == null ? null : content.toByteArray()));
+        uploads.remove(uploadId);
+        completedUploads.put(uploadId, upload);
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult><Location>" + endpoint() + "/" + escapeXml(bucket) + "/"
+                + escapeXml(key) + "</Location><Bucket>" + escapeXml(bucket) + "</Bucket><Key>" + escapeXml(key)
+                + "</Key><ETag>&quot;" + etag + "&quot;</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void abort(HttpExchange exchange, String uploadId) throws IOException {
+        drain(exchange);
+        if (uploads.remove(uploadId) == null) {
+            error(exchange, 404, "NoSuchUpload", uploadId);
+            return;
+        }
+        send(exchange, 204, null);
+    }
+
+    private void listParts(HttpExchange exchange, String bucket, String key, Map<String, String> query) throws IOException {
+        drain(exchange);
+        MultipartUpload upload = uploads.get(query.get("uploadId"));
+        if (upload == null) {
+            error(exchange, 404, "NoSuchUpload", query.get("uploadId"));
+            return;
+        }
+        int marker = query.containsKey("part-number-marker") ? Integer.parseInt(query.get("part-number-marker")) : 0;
+        int maxParts = query.containsKey("max-parts") ? Integer.parseInt(query.get("max-parts")) : 1000;
+        StringBuilder xml = new StringBuilder("<ListPartsResult><Bucket>").append(escapeXml(bucket)).append("</Bucket><Key>")
+                .append(escapeXml(key)).append("</Key><UploadId>").append(query.get("uploadId")).append("</UploadId>")
+                .append("<PartNumberMarker>").append(marker).append("</PartNumberMarker><MaxParts>").append(maxParts).append("</MaxParts>");
+        int listed = 0;
+        int last = marker;
+        boolean truncated = false;
+        for (Map.Entry<Integer, StoredObject> entry : upload.parts.tailMap(marker, false).entrySet()) {
+            if (listed == maxParts) {
+                truncated = true;
+                break;
+            }
+            xml.append("<Part><PartNumber>").append(entry.getKey()).append("</PartNumber><LastModified>")
+                    .append(isoDate(new Date(entry.getValue().createdAt))).append("</LastModified><ETag>&quot;")
+                    .append(entry.getValue().md5).append("&quot;</ETag><Size>").append(entry.getValue().size).append("</Size></Part>");
+            last = entry.getKey();
+            listed++;
+        }
+        xml.append("<NextPartNumberMarker>").append(last).append("</NextPartNumberMarker><IsTruncated>")
+                .append(truncated).append("</IsTruncated></ListPartsResult>");
+        sendXml(exchange, 200, xml.toString());
+    }
+
+    private void putObject(HttpExchange exchange, String bucket, String key) throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource != null) {
+            drain(exchange);
+            StoredObject source = objects.get(decode(copySource.startsWith("/") ? copySource.substring(1) : copySource));
+            if (source == null) {
+                error(exchange, 404, "NoSuchKey", copySource);
+                return;
+            }
+            objects.put(bucket + "/" + key, source);
+            sendXml(exchange, 200, "<CopyObjectResult><ETag>&quot;" + source.md5 + "&quot;</ETag><LastModified>"
+                    + isoDate(new Date()) + "</LastModified></CopyObjectResult>");
+            return;
+        }
+        Received received = receive(exchange);
+        if (!digestMatches(exchange, received)) {
+            error(exchange, 400, "BadDigest", "Content-MD5 不一致");
+            return;
+        }
+        objects.put(bucket + "/" + key, new StoredObject(received.size, received.md5, received.data));
+        exchange.getResponseHeaders().set("ETag", "\"" + received.md5 + "\"");
+        send(exchange, 200, null);
+    }
+
+    private void getObject(HttpExchange exchange, String bucket, String key, boolean headOnly) throws IOException {
+        drain(exchange);
+        StoredObject object = objects.get(bucket + "/" + key);
+        if (object == null) {
+            if (headOnly) {
+                send(exchange, 404, null);
+            } else {
+                error(exchange, 404, "NoSuchKey", key);
+            }
+            return;
+        }
+        long start = 0;
+        long end = object.size - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            Matcher matcher = RANGE_PATTERN.matcher(range);
+            if (matcher.matches()) {
+                start = matcher.group(1).isEmpty() ? Math.max(0, object.size - Long.parseLong(matcher.group(2))) : Long.parseLong(matcher.group(1));
+                end = matcher.group(1).isEmpty() || matcher.group(2).isEmpty() ? object.size - 1 : Math.min(object.size - 1, Long.parseLong(matcher.group(2)));
+                status = 206;
+                exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + object.size);
+            }
+        }
+        long length = Math.max(0, end - start + 1);
+        exchange.getResponseHeaders().set("ETag", "\"" + object.md5 + "\"");
+        exchange.getResponseHeaders().set("Last-Modified", httpDate(new Date(object.createdAt)));
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+        if (headOnly) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                if (object.data != null) {
+                    out.write(object.data, (int) start, (int) length);
+                } else {
+                    byte[] zeros = new byte[(int) Math.min(length, 65536)];
+                    for (long remaining = length; remaining > 0; remaining -= zeros.length) {
+                        out.write(zeros, 0, (int) Math.min(zeros.length, remaining));
+                    }
+                }
+            }
+        }
+    }
+
+    private byte[] slice(StoredObject source, String range) {
+        byte[] data = source.data != null ? source.data : new byte[(int) source.size];
+        if (range == null) {
+            return data;
+        }
+        Matcher matcher = RANGE_PATTERN.matcher(range);
+        if (!matcher.matches()) {
+            return data;
+        }
+        int start = Integer.parseInt(matcher.group(1));
+        int end = Integer.parseInt(matcher.group(2));
+        byte[] slice = new byte[end - start + 1];
+        System.arraycopy(data, start, slice, 0, slice.length);
+        return slice;
+    }
+
+    /**
+     * 读取上传内容并计算MD5；SDK 以 STREAMING-AWS4-HMAC-SHA256-PAYLOAD 签名时请求体为 aws-chunked 格式，需要先解码
+     */
+    private Received receive(HttpExchange exchange) throws IOException {
+        String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        boolean chunked = contentSha != null && contentSha.startsWith("STREAMING-");
+        MessageDigest digest = DigestUtil.digester("MD5").getDigest();
+        ByteArrayOutputStream retained = retainData ? new ByteArrayOutputStream() : null;
+        long size = 0;
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[65536];
+            if (chunked) {
+                while (true) {
+                    String header = readLine(in);
+                    int chunkSize = Integer.parseInt(header.split(";", 2)[0].trim(), 16);
+                    if (chunkSize == 0) {
+                        break;
+                    }
+                    int remaining = chunkSize;
+                    while (remaining > 0) {
+                        int read = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                        if (read < 0) {
+                            throw new IOException("aws-chunked 请求体不完整");
+                        }
+                        digest.update(buffer, 0, read);
+                        if (retained != null) {
+                            retained.write(buffer, 0, read);
+                        }
+                        remaining -= read;
+                    }
+                    size += chunkSize;
+                    readLine(in);
+                }
+                while (in.read(buffer) >= 0) {
+                    // 丢弃结尾
+                }
+            } else {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    digest.update(buffer, 0, read);
+                    if (retained != null) {
+                        retained.write(buffer, 0, read);
+                    }
+                    size += read;
+                }
+            }
+        }
+        bytesReceived.addAndGet(size);
+        return new Received(size, HexUtil.encodeHexStr(digest.digest()), retained == null ? null : retained.toByteArray());
+    }
+
+    private static boolean digestMatches(HttpExchange exchange, Received received) {
+        String contentMd5 = exchange.getRequestHeaders().getFirst("Content-MD5");
+        return contentMd5 == null || HexUtil.encodeHexStr(Base64.decode(contentMd5)).equalsIgnoreCase(received.md5);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        readBody(exchange);
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        send(exchange, status, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void error(HttpExchange exchange, int status, String code, String message) throws IOException {
+        sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escapeXml(message)
+                + "</Message><RequestId>fake</RequestId></Error>");
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("x-amz-request-id", "fake");
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            query.put(decode(eq < 0 ? pair : pair.substring(0, eq)), eq < 0 ? "" : decode(pair.substring(eq + 1)));
+        }
+        return query;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String escapeXml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unescapeXml(String value) {
+        return value.replace("&quot;", "\"").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+
+    private static String isoDate(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    private static String httpDate(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    private static final class StoredObject {
+        private final long size;
+        private final String md5;
+        private final byte[] data;
+        private final long createdAt = System.currentTimeMillis();
+
+        private StoredObject(long size, String md5, byte[] data) {
+            this.size = size;
+            this.md5 = md5;
+            this.data = data;
+        }
+    }
+
+    private static final class MultipartUpload {
+        private final String bucket;
+        private final String key;
+        private final ConcurrentSkipListMap<Integer, StoredObject> parts = new ConcurrentSkipListMap<>();
+
+        private MultipartUpload(String bucket, String key) {
+            this.bucket = bucket;
+            this.key = key;
+        }
+    }
+
+    private static final class Received {
+        private final long size;
+        private final String md5;
+        private final byte[] data;
+
+        private Received(long size, String md5, byte[] data) {
+            this.size = size;
+            this.md5 = md5;
+            this.data = data;
+        }
+    }
+}
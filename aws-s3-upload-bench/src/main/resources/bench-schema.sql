@@ -0,0 +1,33 @@
+-- sql/aws.sql 的H2（MySQL模式）版本，索引与生产表结构保持一致
+
+CREATE TABLE IF NOT EXISTS sys_upload_chunk (
+  id bigint NOT NULL AUTO_INCREMENT,
+  upload_id varchar(255) NOT NULL,
+  part_number int NOT NULL,
+  etag varchar(255) DEFAULT NULL,
+  md5 char(32) DEFAULT NULL,
+  created_at datetime DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  CONSTRAINT uk_task_part UNIQUE (upload_id, part_number)
+);
+CREATE INDEX IF NOT EXISTS idx_md5 ON sys_upload_chunk (md5);
+
+CREATE TABLE IF NOT EXISTS sys_upload_task (
+  id bigint NOT NULL AUTO_INCREMENT,
+  upload_id varchar(255) DEFAULT NULL,
+  file_identifier varchar(500) NOT NULL,
+  file_name varchar(500) NOT NULL,
+  bucket_name varchar(255) NOT NULL,
+  object_key varchar(500) NOT NULL,
+  total_size bigint NOT NULL,
+  chunk_size bigint NOT NULL,
+  total_chunks int NOT NULL,
+  status tinyint NOT NULL DEFAULT 0,
+  created_at datetime DEFAULT CURRENT_TIMESTAMP,
+  updated_at datetime DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id),
+  CONSTRAINT uk_identifier_bucket UNIQUE (file_identifier, bucket_name)
+);
+CREATE INDEX IF NOT EXISTS idx_upload_id ON sys_upload_task (upload_id);
+CREATE INDEX IF NOT EXISTS idx_status_created_id ON sys_upload_task (status, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_status_file_name ON sys_upload_task (status, file_name);
@@ -1,10 +1,10 @@
 /**
  * API 服务实现
  */
-import axios from 'axios'
+import axios, {type InternalAxiosRequestConfig} from 'axios'
 import config from '@/config'
 import type {ResponseType} from '../index'
-import type {FilesType, TaskInfoVO} from './typing'
+import type {CopyJobVO, CursorPageVO, DeltaInitVO, FilesType, PartUploadResultVO, PresignedPartVO, TaskInfoVO, UploadPlanVO} from './typing'
 
 // 创建axios实例
 const service = axios.create({
@@ -23,12 +23,27 @@ service.interceptors.request.use(
     }
 )
 
+// 服务繁忙（503/429）时的最大重试次数
+const BUSY_MAX_RETRIES = 3
+
 // 响应拦截器
 service.interceptors.response.use(
     (response) => {
         return response.data
     },
     (error) => {
+        // 服务端请求处理线程池已满时返回 503 和 Retry-After，按建议的秒数逐次加长等待后重试
+        const status = error.response?.status
+        const requestConfig = error.config as (InternalAxiosRequestConfig & {busyRetryCount?: number}) | undefined
+        if (requestConfig && (status === 503 || status === 429)) {
+            const retryCount = requestConfig.busyRetryCount ?? 0
+            if (retryCount < BUSY_MAX_RETRIES) {
+                requestConfig.busyRetryCount = retryCount + 1
+                const retryAfterSeconds = Number(error.response.headers['retry-after']) || 1
+                return new Promise((resolve) => setTimeout(resolve, retryAfterSeconds * 1000 * requestConfig.busyRetryCount!))
+                    .then(() => service(requestConfig))
+            }
+        }
         return Promise.reject(error)
     }
 )
@@ -42,6 +57,24 @@ export const checkFileByMd5 = (md5: string): Promise<ResponseType<TaskInfoVO>> =
     return service.get(`/bunUpload/multipart/check/${md5}`)
 }
 
+/**
+ * 查询跨存储桶复制进度
+ * @param md5 文件MD5值
+ * @returns 复制作业进度
+ */
+export const getCopyProgress = (md5: string): Promise<ResponseType<CopyJobVO>> => {
+    return service.get(`/bunUpload/multipart/copy/${md5}`)
+}
+
+/**
+ * 获取服务端推荐的分片大小，需在切片计算MD5之前调用
+ * @param totalSize 文件大小（字节）
+ * @returns 推荐的分片大小与分片数量
+ */
+export const getUploadPlan = (totalSize: number): Promise<ResponseType<UploadPlanVO>> => {
+    return service.get('/bunUpload/multipart/plan', {params: {totalSize}})
+}
+
 /**
  * 初始化分片上传
  * @param params 初始化参数
@@ -57,6 +90,22 @@ export const initMultPartFile = (params: {
     return service.post('/bunUpload/multipart/init', params)
 }
 
+/**
+ * 增量上传初始化：携带每个分片的MD5，服务端复用已有文件中相同的分片
+ * @param params 初始化参数与按分片序号排列的分片MD5
+ * @returns 上传ID与已就绪的分片
+ */
+export const initDeltaUpload = (params: {
+    fileIdentifier: string
+    totalSize: number
+    chunkNum: number
+    chunkSize: number
+    fileName: string
+    chunkHashes: string[]
+}): Promise<ResponseType<DeltaInitVO>> => {
+    return service.post('/bunUpload/multipart/initDelta', params)
+}
+
 /**
  * 合并文件分片
  * @param md5 文件MD5值
@@ -86,17 +135,93 @@ export const uploadSingleFile = (file: File): Promise<ResponseType<string>> => {
  * @param file 分片文件
  * @param uploadId 上传ID
  * @param partNumber 分片序号
+ * @param md5 分片MD5（可选），服务端据此校验分片内容
  * @returns 上传结果
  */
-export const uploadPart = (file: File, uploadId: string, partNumber: number): Promise<ResponseType<any>> => {
+export const uploadPart = (file: File, uploadId: string, partNumber: number, md5?: string): Promise<ResponseType<any>> => {
     const formData = new FormData()
     formData.append('file', file)
     formData.append('uploadId', uploadId)
     formData.append('partNumber', partNumber.toString())
+    if (md5) formData.append('md5', md5)
     console.log(formData)
     return service.post('/bunUpload/multipart/uploadPart', formData)
 }
 
+/**
+ * 批量上传分片，一次请求携带同一个uploadId的多个分片
+ * @param parts 分片内容与分片序号
+ * @param uploadId 上传ID
+ * @returns 每个分片的上传结果
+ */
+export const uploadParts = (parts: { file: Blob, partNumber: number, md5?: string }[], uploadId: string): Promise<ResponseType<PartUploadResultVO[]>> => {
+    const formData = new FormData()
+    parts.forEach(({file, partNumber}) => {
+        formData.append('files', file, `chunk-${partNumber}`)
+        formData.append('partNumbers', partNumber.toString())
+    })
+    // 要么每个分片都带MD5，要么都不带，保证与files一一对应
+    if (parts.every(({md5}) => md5)) {
+        parts.forEach(({md5}) => formData.append('md5s', md5 as string))
+    }
+    formData.append('uploadId', uploadId)
+    return service.post('/bunUpload/multipart/uploadParts', formData)
+}
+
+/**
+ * 以原始字节流上传分片，服务端直接把请求体转发到S3，不经过multipart解析
+ * @param blob 分片内容
+ * @param uploadId 上传ID
+ * @param partNumber 分片序号
+ * @param md5 分片MD5（可选），服务端据此校验分片内容
+ * @returns 上传结果
+ */
+export const uploadPartStream = (blob: Blob, uploadId: string, partNumber: number, md5?: string): Promise<ResponseType<any>> => {
+    return service.post('/bunUpload/multipart/uploadPart/stream', blob, {
+        params: md5 ? {uploadId, partNumber, md5} : {uploadId, partNumber},
+        headers: {
+            'Content-Type': 'application/octet-stream'
+        }
+    })
+}
+
+/**
+ * 获取分片直传S3的预签名地址
+ * @param uploadId 上传ID
+ * @param startPartNumber 起始分片序号（包含）
+ * @param endPartNumber 结束分片序号（包含）
+ * @returns 每个分片的预签名地址
+ */
+export const presignUploadParts = (uploadId: string, startPartNumber: number, endPartNumber: number): Promise<ResponseType<PresignedPartVO[]>> => {
+    return service.post('/bunUpload/multipart/presign', {uploadId, startPartNumber, endPartNumber})
+}
+
+/**
+ * 把分片直接PUT到预签名地址，返回S3响应头中的ETag（存储桶CORS需暴露ETag）
+ * @param url 预签名地址
+ * @param blob 分片内容
+ * @returns ETag
+ */
+export const putPartToPresignedUrl = async (url: string, blob: Blob): Promise<string> => {
+    const response = await axios.put(url, blob, {
+        headers: {
+            'Content-Type': 'application/octet-stream'
+        }
+    })
+    return response.headers['etag']
+}
+
+/**
+ * 回传直传完成的分片
+ * @param uploadId 上传ID
+ * @param partNumber 分片序号
+ * @param etag S3返回的ETag
+ * @returns 记录结果
+ */
+export const reportPart = (uploadId: string, partNumber: number, etag: string): Promise<ResponseType<boolean>> => {
+    return service.post('/bunUpload/multipart/reportPart', {uploadId, partNumber, etag})
+}
+
 /**
  * 获取文件列表
  * @param fileName 文件名（可选，支持模糊查询）
@@ -107,6 +232,20 @@ export const fetchFileList = (fileName?: string): Promise<ResponseType<FilesType
     return service.get('/bunUpload/files', {params})
 }
 
+/**
+ * 游标分页获取文件列表
+ * @param fileName 文件名前缀（可选）
+ * @param cursor 上一页返回的nextCursor，首页不传
+ * @param pageSize 每页条数
+ * @returns 当前页文件与下一页游标
+ */
+export const fetchFilePage = (fileName?: string, cursor?: string, pageSize = 20): Promise<ResponseType<CursorPageVO<FilesType>>> => {
+    const params: Record<string, string | number> = {pageSize}
+    if (fileName) params.fileName = fileName
+    if (cursor) params.cursor = cursor
+    return service.get('/bunUpload/files/page', {params})
+}
+
 /**
  * 删除文件
  * @param fileId 文件ID
@@ -52,4 +52,90 @@ export interface FilesType {
   uploadTime: string
   // 文件MD5
   md5: string
-}
\ No newline at end of file
+}
+
+// 游标分页结果
+export interface CursorPageVO<T> {
+  // 当前页数据
+  records: T[]
+  // 下一页游标
+  nextCursor: string | null
+  // 是否还有下一页
+  hasMore: boolean
+}
+
+// 增量上传初始化结果
+export interface DeltaInitVO {
+  // 上传状态：2002 按 reusedParts 继续上传，2001 相同文件已上传完成，2004 复制中，5001 相同文件上传失败
+  code: number
+  // 上传ID
+  uploadId: string
+  // 服务端已就绪的分片序号（含复用的分片），无需再上传
+  reusedParts: number[]
+  // 本次从已有文件复制的字节数
+  reusedBytes: number
+  // 秒传时文件的访问地址
+  url: string
+}
+
+// 服务端推荐的分片划分
+export interface UploadPlanVO {
+  // 推荐的分片大小（字节）
+  chunkSize: number
+  // 分片数量
+  chunkNum: number
+  // 分片大小的依据：default | partLimit
+  basis: string
+  // 推荐同时上传的分片数
+  concurrency: number
+  // 该客户端最近的分片上传吞吐（字节/秒）
+  throughputBytesPerSecond?: number
+  // 该客户端最近的单分片请求耗时（毫秒）
+  partMillis?: number
+  // 样本数
+  samples?: number
+}
+
+// 跨存储桶复制作业进度
+export interface CopyJobVO {
+  // 文件标识
+  fileIdentifier: string
+  // 源存储桶
+  sourceBucket: string
+  // 目标存储桶
+  targetBucket: string
+  // 作业状态
+  status: 'RUNNING' | 'SUCCEEDED' | 'FAILED'
+  // 文件总大小
+  totalBytes: number
+  // 已复制字节数
+  copiedBytes: number
+  // 分片总数
+  totalParts: number
+  // 已复制分片数
+  completedParts: number
+  // 失败原因
+  message: string | null
+}
+
+// 分片预签名地址
+export interface PresignedPartVO {
+  // 分片序号
+  partNumber: number
+  // 预签名的上传地址
+  url: string
+  // 过期时间（毫秒时间戳）
+  expireAt: number
+}
+
+// 批量上传时单个分片的结果
+export interface PartUploadResultVO {
+  // 分片序号
+  partNumber: number
+  // 是否成功
+  success: boolean
+  // S3返回的ETag
+  etag?: string
+  // 失败原因
+  message?: string
+}
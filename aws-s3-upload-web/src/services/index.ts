@@ -20,7 +20,10 @@ export enum HttpCodeUploadEnum {
   UPLOAD_SUCCESS = 2001, // 上传成功
   UPLOADING = 2002, // 上传中
   NOT_UPLOADED = 2003, // 未上传
-  UPLOAD_FILE_FAILED = 5001 // 文件上传失败
+  COPYING = 2004, // 服务端从其它存储桶复制中
+  UPLOAD_FILE_FAILED = 5001, // 文件上传失败
+  UPLOAD_PARTS_MISSING = 5002, // 合并时分片不完整
+  UPLOAD_CHECKSUM_MISMATCH = 5003 // 分片或文件校验失败
 }
 
 // 通用响应接口
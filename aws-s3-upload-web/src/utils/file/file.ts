@@ -75,9 +75,9 @@ const THREAD_COUNT = navigator.hardwareConcurrency || 4
 /**
  * 将一个较大的文件分割成多个较小的部分（分片），并通过 Web Workers 并发地处理这些分片
  * */
-export async function cutFile(file: File): Promise<ChunkFileType[]> {
+export async function cutFile(file: File, chunkSize: number = CHUNK_SIZE): Promise<ChunkFileType[]> {
 	// 计算文件需要分割成的分片总数(向上取整)
-	const chunkCount = Math.ceil(file.size / CHUNK_SIZE)
+	const chunkCount = Math.ceil(file.size / chunkSize)
 	// 计算每个 Web Worker 需要处理的分片数量(向上取整)
 	const threadChunkCount = Math.ceil(chunkCount / THREAD_COUNT)
 	// 初始化一个空数组 result 用于存储最终的分片数据
@@ -111,7 +111,7 @@ export async function cutFile(file: File): Promise<ChunkFileType[]> {
 			// 使用Worker对象的postMessage()方法向工作线程(worker.js)发送消息,将必要的数据通过 postMessage 方法发送给 Web Worker，包括原始文件、每个分片的大小 (CHUNK_SIZE) 以及该 Web Worker 应该处理的起始和结束分片索引。
 			worker.postMessage({
 				file,
-				CHUNK_SIZE,
+				CHUNK_SIZE: chunkSize,
 				startChunkIndex: start,
 				endChunkIndex: end,
 			})
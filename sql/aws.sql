@@ -26,9 +26,11 @@ CREATE TABLE `sys_upload_chunk` (
   `upload_id` varchar(255) COLLATE utf8mb4_general_ci NOT NULL COMMENT '关联 sys_upload_task的s3唯一的上传',
   `part_number` int NOT NULL COMMENT '分片序号',
   `etag` varchar(255) COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT 'S3返回的etag',
+  `md5` char(32) COLLATE utf8mb4_general_ci DEFAULT NULL COMMENT '分片内容的MD5',
   `created_at` datetime DEFAULT CURRENT_TIMESTAMP,
   PRIMARY KEY (`id`),
-  UNIQUE KEY `uk_task_part` (`upload_id`,`part_number`)
+  UNIQUE KEY `uk_task_part` (`upload_id`,`part_number`),
+  KEY `idx_md5` (`md5`)
 ) ENGINE=InnoDB AUTO_INCREMENT=52 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
 -- ----------------------------
@@ -45,11 +47,14 @@ CREATE TABLE `sys_upload_task` (
   `total_size` bigint NOT NULL COMMENT '文件总大小',
   `chunk_size` bigint NOT NULL COMMENT '分片大小',
   `total_chunks` int NOT NULL COMMENT '总分片数',
-  `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态: 0=上传中,1=已完成,2=未上传',
+  `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态: 0=上传中,1=已完成,2=未上传,3=从其它存储桶复制中',
   `created_at` datetime DEFAULT CURRENT_TIMESTAMP,
   `updated_at` datetime DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   PRIMARY KEY (`id`),
-  UNIQUE KEY `uk_file_identifier` (`file_identifier`)
+  UNIQUE KEY `uk_identifier_bucket` (`file_identifier`,`bucket_name`),
+  KEY `idx_upload_id` (`upload_id`),
+  KEY `idx_status_created_id` (`status`,`created_at`,`id`),
+  KEY `idx_status_file_name` (`status`,`file_name`)
 ) ENGINE=InnoDB AUTO_INCREMENT=1 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
 SET FOREIGN_KEY_CHECKS = 1;
@@ -0,0 +1,6 @@
+-- ----------------------------
+-- 升级已有数据库：sys_upload_task 增加 upload_id 索引
+-- 分片上传、合并与会话缓存未命中时按uploadId定位任务，没有索引时每次都全表扫描
+-- ----------------------------
+ALTER TABLE `sys_upload_task`
+  ADD KEY `idx_upload_id` (`upload_id`);
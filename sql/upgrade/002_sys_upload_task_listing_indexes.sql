@@ -0,0 +1,7 @@
+-- ----------------------------
+-- 升级已有数据库：sys_upload_task 增加文件列表索引
+-- idx_status_created_id 供文件列表按上传时间游标分页，idx_status_file_name 供文件名前缀查询
+-- ----------------------------
+ALTER TABLE `sys_upload_task`
+  ADD KEY `idx_status_created_id` (`status`, `created_at`, `id`),
+  ADD KEY `idx_status_file_name` (`status`, `file_name`);
@@ -0,0 +1,7 @@
+-- ----------------------------
+-- 升级已有数据库：sys_upload_chunk 增加分片MD5
+-- 分片记录的查询、写入与对账都会读写 md5 字段，旧库升级后才能启动新版本
+-- 已有的分片记录 md5 为空，合并时不参与默克尔树根校验
+-- ----------------------------
+ALTER TABLE `sys_upload_chunk`
+  ADD COLUMN `md5` char(32) COLLATE utf8mb4_general_ci NULL DEFAULT NULL COMMENT '分片内容的MD5' AFTER `etag`;
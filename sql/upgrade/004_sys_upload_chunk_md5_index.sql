@@ -0,0 +1,7 @@
+-- ----------------------------
+-- 升级已有数据库：sys_upload_chunk 增加分片MD5索引
+-- 增量上传按分片MD5在已完成的文件中查找相同分片，没有索引时每次初始化都全表扫描
+-- md5 为空的旧分片记录不会被复用；需先执行 003_sys_upload_chunk_md5.sql
+-- ----------------------------
+ALTER TABLE `sys_upload_chunk`
+  ADD KEY `idx_md5` (`md5`);
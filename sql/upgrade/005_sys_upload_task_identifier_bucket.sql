@@ -0,0 +1,10 @@
+-- ----------------------------
+-- 升级已有数据库：sys_upload_task 的唯一键与状态说明
+-- 同一文件可以分别存在于多个存储桶，唯一键由 file_identifier 改为 (file_identifier, bucket_name)，
+-- 否则跨存储桶复制插入目标存储桶的任务总是违反唯一键，跨存储桶秒传不会生效
+-- 状态增加 3=从其它存储桶复制中
+-- ----------------------------
+ALTER TABLE `sys_upload_task`
+  DROP INDEX `uk_file_identifier`,
+  ADD UNIQUE KEY `uk_identifier_bucket` (`file_identifier`, `bucket_name`),
+  MODIFY COLUMN `status` tinyint NOT NULL DEFAULT '0' COMMENT '状态: 0=上传中,1=已完成,2=未上传,3=从其它存储桶复制中';